@@ -1,6 +1,7 @@
 package client;
 
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.nio.channels.Pipe;
 import java.nio.channels.SelectableChannel;
 import java.util.LinkedList;
@@ -17,6 +18,7 @@ import client.shell.ContentManager;
 import core.handler.ChannelType;
 import core.handler.InputHandler;
 import core.net.Com;
+import core.net.ReliableCom;
 
 /**
  * Program for running client application.
@@ -63,6 +65,8 @@ public class Client {
             return;
         }
 
+        com = new ReliableCom(com, new InetSocketAddress(ip, port));
+
         Pipe input_shell, shell_com, com_shell, com_socket, socket_com;
         try {
             input_shell = Pipe.open();
@@ -70,6 +74,11 @@ public class Client {
             com_shell = Pipe.open();
             com_socket = Pipe.open();
             socket_com = Pipe.open();
+
+            // Handlers write to each other from the same thread, so writes mustn't block
+            for (Pipe pipe : new Pipe[] { shell_com, com_shell, com_socket, socket_com }) {
+                pipe.sink().configureBlocking(false);
+            }
         } catch (IOException e) {
             System.err.println("Cannot open pipe: " + e);
             return;
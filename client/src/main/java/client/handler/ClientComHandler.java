@@ -30,6 +30,8 @@ enum ClientComHandlerState {
     IVProcessing,
     NCProcessingSR,
     NCProcessingOR,
+    NCProcessingOC,
+    OCRequest,
     FinishRequest,
     Error
 }
@@ -53,6 +55,9 @@ public class ClientComHandler extends ComHandler<ClientComHandlerState> {
     // Currently processed event
     private Event event;
 
+    // Requests of the shell received while output was streamed
+    private LinkedList<Event> deferred;
+
     /**
      * Constructs new {@code ClientComHandler} with provided arguments.
      *
@@ -66,6 +71,7 @@ public class ClientComHandler extends ComHandler<ClientComHandlerState> {
         super(inputChannels, outputChannels, ClientComHandlerState.Waiting);
 
         this.contentManager = contentManager;
+        this.deferred = new LinkedList<>();
     }
 
     @Override
@@ -119,6 +125,12 @@ public class ClientComHandler extends ComHandler<ClientComHandlerState> {
                 case NCProcessingOR:
                     this.handleNCProcessingOR();
                     break;
+                case NCProcessingOC:
+                    this.handleNCProcessingOC();
+                    break;
+                case OCRequest:
+                    this.handleOCRequest();
+                    break;
                 case FinishRequest:
                     this.handleFinishRequest();
                     break;
@@ -153,6 +165,8 @@ public class ClientComHandler extends ComHandler<ClientComHandlerState> {
             }
 
             this.nextState(ClientComHandlerState.NewRequest);
+        } else if (this.readyChannels.contains(ChannelType.Shell)) {
+            this.nextState(ClientComHandlerState.OCRequest);
         } else {
             this.nextState(ClientComHandlerState.ExistingRequest);
         }
@@ -168,11 +182,22 @@ public class ClientComHandler extends ComHandler<ClientComHandlerState> {
         }
 
         SourceChannel channel = (SourceChannel) ic.get();
-        try {
-            this.event = (Event) NBChannelController.read(channel);
-        } catch (IOException e) {
-            System.err.println("Cannot read from the channel.");
-            this.nextState(ClientComHandlerState.Error);
+        if (!this.deferred.isEmpty()) {
+            this.event = this.deferred.removeFirst();
+        } else {
+            try {
+                this.event = (Event) NBChannelController.read(channel);
+            } catch (IOException e) {
+                System.err.println("Cannot read from the channel.");
+                this.nextState(ClientComHandlerState.Error);
+                return;
+            }
+        }
+
+        // Rest of the request will be read when it arrives, shell is listened to until then
+        if (this.event == null) {
+            this.filterSubscriptions();
+            this.nextState(ClientComHandlerState.Waiting);
             return;
         }
 
@@ -254,6 +279,12 @@ public class ClientComHandler extends ComHandler<ClientComHandlerState> {
             return;
         }
 
+        // Rest of the object will be read when it arrives
+        if (response == null) {
+            this.nextState(ClientComHandlerState.Waiting);
+            return;
+        }
+
         this.stateData = response;
 
         // logger.info(""+response.getType());
@@ -267,6 +298,9 @@ public class ClientComHandler extends ComHandler<ClientComHandlerState> {
             case OutputResponse:
                 this.nextState(ClientComHandlerState.NCProcessingOR);
                 break;
+            case OutputChunk:
+                this.nextState(ClientComHandlerState.NCProcessingOC);
+                break;
             default:
                 this.nextState(ClientComHandlerState.Error);
                 break;
@@ -360,10 +394,120 @@ public class ClientComHandler extends ComHandler<ClientComHandlerState> {
         this.nextState(ClientComHandlerState.FinishRequest);
     }
 
+    private void handleNCProcessingOC() {
+        Event data = (Event) this.stateData;
+        @SuppressWarnings("unchecked")
+        LinkedList<String> output = (LinkedList<String>) data.getData();
+
+        Event respOC = new Event(EventType.OutputChunk, output);
+
+        ChannelType type = ChannelType.Shell;
+        Optional<SelectableChannel> oc = this.getFirstOutputChannel(type);
+        if (!oc.isPresent()) {
+            logger.warn("Output channel " + type + " was not found.");
+            this.nextState(ClientComHandlerState.Error);
+            return;
+        }
+
+        SinkChannel channel = (SinkChannel) oc.get();
+        try {
+            NBChannelController.write(channel, respOC);
+        } catch (IOException e) {
+            System.err.println("Cannot write to the channel.");
+            this.nextState(ClientComHandlerState.Error);
+            return;
+        }
+
+        // Next chunk is requested when the shell has printed this one
+        try {
+            this.filterSubscriptions(ChannelType.Shell);
+        } catch (IOException e) {
+            this.nextState(ClientComHandlerState.Error);
+            return;
+        }
+
+        this.nextState(ClientComHandlerState.Waiting);
+    }
+
+    private void handleOCRequest() {
+        ChannelType type = ChannelType.Shell;
+        Optional<SelectableChannel> ic = this.getFirstInputChannel(type);
+        if (!ic.isPresent()) {
+            logger.warn("Input channel " + type + " was not found.");
+            this.nextState(ClientComHandlerState.Error);
+            return;
+        }
+
+        SourceChannel source = (SourceChannel) ic.get();
+        Event ack;
+        try {
+            ack = (Event) NBChannelController.read(source);
+        } catch (IOException e) {
+            System.err.println("Cannot read from the channel.");
+            this.nextState(ClientComHandlerState.Error);
+            return;
+        }
+
+        // Rest of the object will be read when it arrives
+        if (ack == null) {
+            this.nextState(ClientComHandlerState.Waiting);
+            return;
+        }
+
+        // Shell already sent the next request, it's processed after the output
+        if (ack.getType() != EventType.OutputChunk) {
+            this.deferred.add(ack);
+            this.nextState(ClientComHandlerState.Waiting);
+            return;
+        }
+
+        Event reqOC = new Event(EventType.OutputChunk, null);
+
+        type = ChannelType.Network;
+        Optional<SelectableChannel> oc = this.getFirstOutputChannel(type);
+        if (!oc.isPresent()) {
+            logger.warn("Output channel " + type + " was not found.");
+            this.nextState(ClientComHandlerState.Error);
+            return;
+        }
+
+        SinkChannel channel = (SinkChannel) oc.get();
+        try {
+            NBChannelController.write(channel, reqOC);
+        } catch (IOException e) {
+            System.err.println("Cannot write to the channel.");
+            this.nextState(ClientComHandlerState.Error);
+            return;
+        }
+
+        try {
+            this.filterSubscriptions(ChannelType.Network);
+        } catch (IOException e) {
+            this.nextState(ClientComHandlerState.Error);
+            return;
+        }
+
+        this.nextState(ClientComHandlerState.Waiting);
+    }
+
     private void handleFinishRequest() {
         this.event = null;
         this.stateData = null;
 
+        if (!this.deferred.isEmpty()) {
+            try {
+                this.filterSubscriptions(ChannelType.Network);
+            } catch (IOException e) {
+                this.deferred.clear();
+                this.filterSubscriptions();
+                this.nextState(ClientComHandlerState.Waiting);
+                return;
+            }
+
+            this.nextState(ClientComHandlerState.NewRequest);
+            return;
+        }
+
         this.filterSubscriptions();
 
         this.nextState(ClientComHandlerState.Waiting);
@@ -168,6 +168,12 @@ public class ClientShellHandler extends ShellHandler<ClientShellHandlerState> {
             return;
         }
 
+        // Rest of the object will be read when it arrives
+        if (this.input == null) {
+            this.nextState(ClientShellHandlerState.Waiting);
+            return;
+        }
+
         this.nextState(ClientShellHandlerState.InputParsingProcessing);
     }
 
@@ -279,6 +285,12 @@ public class ClientShellHandler extends ShellHandler<ClientShellHandlerState> {
             return;
         }
 
+        // Rest of the object will be read when it arrives
+        if (event == null) {
+            this.nextState(ClientShellHandlerState.ComIdValidationWaiting);
+            return;
+        }
+
         if (event.getType() == EventType.IdValidation) {
             boolean result = (boolean) event.getData();
             this.setArgIdValidationResult(result);
@@ -309,6 +321,12 @@ public class ClientShellHandler extends ShellHandler<ClientShellHandlerState> {
             return;
         }
 
+        // Rest of the object will be read when it arrives
+        if (event == null) {
+            this.nextState(ClientShellHandlerState.Waiting);
+            return;
+        }
+
         if (event.getType() == EventType.OutputResponse) {
             @SuppressWarnings("unchecked")
             LinkedList<String> result = (LinkedList<String>) event.getData();
@@ -319,6 +337,30 @@ public class ClientShellHandler extends ShellHandler<ClientShellHandlerState> {
 
             this.showInputGreeting();
 
+            this.nextState(ClientShellHandlerState.Waiting);
+        } else if (event.getType() == EventType.OutputChunk) {
+            @SuppressWarnings("unchecked")
+            LinkedList<String> result = (LinkedList<String>) event.getData();
+
+            for (String line : result) {
+                System.out.println(line);
+            }
+
+            // Chunk is printed, com handler requests the next one
+            ChannelType outType = ChannelType.Com;
+            Optional<SelectableChannel> oc = this.getFirstOutputChannel(outType);
+            if (!oc.isPresent()) {
+                logger.warn("Output channel " + outType + " was not found.");
+                this.nextState(ClientShellHandlerState.Waiting);
+                return;
+            }
+
+            try {
+                NBChannelController.write((SinkChannel) oc.get(), new Event(EventType.OutputChunk, null));
+            } catch (IOException e) {
+                System.err.println("Cannot write to the channel.");
+            }
+
             this.nextState(ClientShellHandlerState.Waiting);
         } else {
             this.nextState(ClientShellHandlerState.Waiting);
@@ -3,21 +3,16 @@ package client.handler;
 import java.io.IOException;
 import java.net.SocketAddress;
 import java.nio.channels.DatagramChannel;
-import java.nio.channels.Pipe;
 import java.nio.channels.SelectableChannel;
 import java.nio.channels.Pipe.SinkChannel;
 import java.nio.channels.Pipe.SourceChannel;
 import java.util.LinkedList;
 import java.util.Optional;
-import java.util.Timer;
-import java.util.TimerTask;
 
-import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import client.net.PingTask;
 import core.event.Event;
 import core.event.EventType;
 import core.handler.ChannelType;
@@ -28,7 +23,6 @@ import core.utils.NBChannelController;
 
 enum ClientSocketHandlerState {
     Waiting,
-    PingTimeout,
     NewComEvent,
     NewNetworkEvent,
     CompletedMessage,
@@ -37,18 +31,20 @@ enum ClientSocketHandlerState {
 
 public class ClientSocketHandler extends SocketHandler<DatagramChannel, ClientSocketHandlerState> {
 
-    private static final int PING_DELAY = 100;
+    // Interval between pings until server announces its own
+    private static final long INITIAL_PING_DELAY = 200;
 
     // Logger
     private static final Logger logger = LoggerFactory.getLogger("SocketHandler");
 
-    // Message
-    private Pair<Integer, LinkedList<Packet>> message;
+    // Received message
+    private Packet message;
 
-    // Disconnection task
-    private Timer timer;
-    private TimerTask timerTask;
-    private Pipe disconnectionPipe;
+    // Interval between pings announced by server
+    private long pingDelay;
+
+    // Time of the last sent packet
+    private long lastSent;
 
     /**
      * Constructs new {@code ClientSocketHandler} with provided arguments.
@@ -56,21 +52,42 @@ public class ClientSocketHandler extends SocketHandler<DatagramChannel, ClientSo
      * @param inputChannels input channels of the handler
      * @param outputChannels output channels of the handler
      * @param networkCom network communicator
-     * @throws IOException if cannot open a pipe
+     * @throws IOException if cannot setup the handler
      */
     public ClientSocketHandler(LinkedList<Pair<ChannelType, SelectableChannel>> inputChannels,
                                LinkedList<Pair<ChannelType, SelectableChannel>> outputChannels,
                                Com networkCom) throws IOException {
         super(inputChannels, outputChannels, ClientSocketHandlerState.Waiting, networkCom);
 
-        this.disconnectionPipe = Pipe.open();
+        this.pingDelay = INITIAL_PING_DELAY;
+        this.lastSent = 0;
+    }
 
-        this.timer = new Timer();
-        this.timerTask = new PingTask(this.disconnectionPipe.sink());
+    /**
+     * Pings server if nothing was sent for the ping interval and performs
+     * timed work of the network communicator. Sent commands keep the
+     * session alive as well, so pings are sent only by idle client.
+     *
+     * @return time in milliseconds until the next call is due
+     */
+    @Override
+    public long tick() {
+        long now = System.currentTimeMillis();
+        if (now - this.lastSent >= this.pingDelay) {
+            Event reqPG = new Event(EventType.Ping, this.pingDelay);
+
+            Packet packet = new Packet(EventType.Ping, reqPG);
+            this.networkCom.send(packet, null);
+            this.lastSent = now;
+        }
 
-        this.timer.scheduleAtFixedRate(timerTask, 0, PING_DELAY);
+        long timeout = this.lastSent + this.pingDelay - now;
+        long comTimeout = super.tick();
+        if (comTimeout > 0 && comTimeout < timeout) {
+            timeout = comTimeout;
+        }
 
-        this.inputChannels.add(new ImmutablePair<>(ChannelType.Internal, disconnectionPipe.source()));
+        return Math.max(1, timeout);
     }
 
     @Override
@@ -78,7 +95,6 @@ public class ClientSocketHandler extends SocketHandler<DatagramChannel, ClientSo
         logger.trace("New event from " + type);
 
         switch (type) {
-            case Internal:
             case Com:
             case Network:
                 this.readyChannels = new LinkedList<ChannelType>() {{ add(type); }};
@@ -101,9 +117,6 @@ public class ClientSocketHandler extends SocketHandler<DatagramChannel, ClientSo
                 case Waiting:
                     this.handleWaitingState();
                     break;
-                case PingTimeout:
-                    this.handlePingTimeout();
-                    break;
                 case NewComEvent:
                     this.handleNewComEvent();
                     break;
@@ -127,44 +140,13 @@ public class ClientSocketHandler extends SocketHandler<DatagramChannel, ClientSo
             return;
         }
 
-        if (this.readyChannels.contains(ChannelType.Internal)) {
-            this.nextState(ClientSocketHandlerState.PingTimeout);
-        } else if (this.readyChannels.contains(ChannelType.Com)) {
+        if (this.readyChannels.contains(ChannelType.Com)) {
             this.nextState(ClientSocketHandlerState.NewComEvent);
         } else if (this.readyChannels.contains(ChannelType.Network)) {
             this.nextState(ClientSocketHandlerState.NewNetworkEvent);
         }
     }
 
-    private void handlePingTimeout() {
-        ChannelType type = ChannelType.Internal;
-        Optional<SelectableChannel> ic = this.getFirstInputChannel(type);
-        if (!ic.isPresent()) {
-            logger.warn("Input channel " + type + " was not found.");
-            this.nextState(ClientSocketHandlerState.Error);
-            return;
-        }
-
-        SourceChannel channel = (SourceChannel) ic.get();
-
-        @SuppressWarnings("unused")
-        Event event;
-        try {
-            event = (Event) NBChannelController.read(channel);
-        } catch (IOException e) {
-            System.err.println("Cannot read from the channel.");
-            this.nextState(ClientSocketHandlerState.Waiting);
-            return;
-        }
-
-        Event reqPG = new Event(EventType.Ping, null);
-
-        Packet packet = new Packet(EventType.Ping, reqPG);
-        this.networkCom.send(packet, null);
-
-        this.nextState(ClientSocketHandlerState.Waiting);
-    }
-
     private void handleNewComEvent() {
         ChannelType type = ChannelType.Com;
         Optional<SelectableChannel> ic = this.getFirstInputChannel(type);
@@ -185,34 +167,52 @@ public class ClientSocketHandler extends SocketHandler<DatagramChannel, ClientSo
             return;
         }
 
+        // Rest of the object will be read when it arrives
+        if (reqNC == null) {
+            this.nextState(ClientSocketHandlerState.Waiting);
+            return;
+        }
+
         Packet packet = new Packet(EventType.NewCommands, reqNC);
         this.networkCom.send(packet, null);
+        this.lastSent = System.currentTimeMillis();
 
         this.nextState(ClientSocketHandlerState.Waiting);
     }
 
     private void handleNewNetworkEvent() {
         Pair<SocketAddress, Packet> data = this.networkCom.receive();
-        Packet packet = data.getValue();
-
-        if (this.message == null) {
-            this.message = new ImmutablePair<>(1, new LinkedList<>());
+        if (data == null) {
+            this.nextState(ClientSocketHandlerState.Waiting);
+            return;
         }
 
-        Integer requiredLength = this.message.getLeft();
-        LinkedList<Packet> receivedPackets = this.message.getRight();
+        Packet packet = data.getValue();
+        if (!(packet.getData() instanceof Event)) {
+            logger.warn("Packet " + packet.getType() + " carries no event, ignoring.");
+            this.nextState(ClientSocketHandlerState.NewNetworkEvent);
+            return;
+        }
 
-        receivedPackets.push(packet);
+        // Server announces interval between pings in reply to ping with another one
+        if (packet.getType() == EventType.Ping) {
+            Object delay = ((Event) packet.getData()).getData();
+            if (delay instanceof Long && (Long) delay > 0) {
+                logger.debug("Ping interval: " + delay + " ms");
+                this.pingDelay = (Long) delay;
+            }
 
-        if (requiredLength == receivedPackets.size()) {
-            this.nextState(ClientSocketHandlerState.CompletedMessage);
-        } else {
-            this.nextState(ClientSocketHandlerState.Waiting);
+            this.nextState(ClientSocketHandlerState.NewNetworkEvent);
+            return;
         }
+
+        this.message = packet;
+
+        this.nextState(ClientSocketHandlerState.CompletedMessage);
     }
 
     private void handleCompletedMessage() {
-        Event event = (Event) this.message.getValue().getLast().getData();
+        Event event = (Event) this.message.getData();
         this.message = null;
 
         ChannelType type = ChannelType.Com;
@@ -232,7 +232,8 @@ public class ClientSocketHandler extends SocketHandler<DatagramChannel, ClientSo
             return;
         }
 
-        this.nextState(ClientSocketHandlerState.Waiting);
+        // Reading the rest of received packets
+        this.nextState(ClientSocketHandlerState.NewNetworkEvent);
     }
 
     private void handleError() {
@@ -4,6 +4,7 @@ import java.io.IOException;
 import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
+import java.nio.channels.WritableByteChannel;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -14,6 +15,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import core.handler.ChannelType;
+import core.utils.NBChannelController;
 
 /**
  * Class for handling application events via other handlers.
@@ -92,8 +94,11 @@ public class EventHandler {
     public void run() {
         while (true) {
             try {
+                long timeout = this.socketHandler.tick();
+                this.subscribePendingWrites();
+
                 logger.trace("Selecting channels...");
-                this.selector.select();
+                this.selector.select(timeout);
                 Set<SelectionKey> selectedKeys = this.selector.selectedKeys();
                 logger.debug("Selected channels count: " + selectedKeys.size());
 
@@ -101,6 +106,11 @@ public class EventHandler {
                 while (iter.hasNext()) {
                     SelectionKey key = iter.next();
 
+                    if (key.isValid() && key.isWritable()) {
+                        this.flush(key);
+                        continue;
+                    }
+
                     Object[] attachments = (Object[]) key.attachment();
                     ChannelType handler = (ChannelType) attachments[0];
                     ChannelType channelType = (ChannelType) attachments[1];
@@ -145,6 +155,36 @@ public class EventHandler {
         }
     }
 
+    /**
+     * Selects channels with queued objects for writing, so they are
+     * flushed as soon as the reading side frees the space.
+     *
+     * @throws IOException if cannot register channel
+     */
+    private void subscribePendingWrites() throws IOException {
+        for (WritableByteChannel channel : NBChannelController.getPendingChannels()) {
+            SelectableChannel selectable = (SelectableChannel) channel;
+            SelectionKey key = selectable.keyFor(this.selector);
+            if (key == null) {
+                selectable.register(this.selector, SelectionKey.OP_WRITE);
+            } else {
+                key.interestOps(SelectionKey.OP_WRITE);
+            }
+        }
+    }
+
+    /**
+     * Writes queued objects to the channel of {@code key}.
+     *
+     * @param key key of the writable channel
+     * @throws IOException if cannot write to the channel
+     */
+    private void flush(SelectionKey key) throws IOException {
+        if (NBChannelController.flush((WritableByteChannel) key.channel())) {
+            key.interestOps(0);
+        }
+    }
+
     private void updateChannelSubscriptions(ChannelType type,
                                             LinkedList<Pair<ChannelType, SelectableChannel>> ic,
                                             LinkedList<Pair<ChannelType, SelectableChannel>> subs) {
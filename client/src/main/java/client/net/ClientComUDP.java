@@ -3,25 +3,45 @@ package client.net;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.nio.channels.DatagramChannel;
 import java.nio.channels.SelectableChannel;
 
-import org.apache.commons.lang3.SerializationUtils;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 
+import core.net.BufferPool;
 import core.net.Com;
 import core.net.packet.Packet;
+import core.net.packet.PacketAssembler;
+import core.net.packet.PacketFormatException;
+import core.net.packet.PacketFragmenter;
 
 public class ClientComUDP implements Com {
 
+    private static final int SOCKET_BUFFER_SIZE = 1024 * 1024;
+
+    private static final int POOL_MAX_CAPACITY = 1024 * 1024;
+
+    private static final int POOL_MAX_FREE = 4;
+
     // Socket
     private DatagramChannel socket;
 
     // Address
     private SocketAddress address;
 
+    // Splitter of outgoing packets
+    private PacketFragmenter fragmenter;
+
+    // Reassembler of incoming packets
+    private PacketAssembler assembler;
+
+    // Buffers of incoming datagrams and messages
+    private BufferPool pool;
+
     /**
      * Constructs new {@code ClientComUDP} with provided arguments.
      *
@@ -33,6 +53,12 @@ public class ClientComUDP implements Com {
         this.address = new InetSocketAddress(ip, port);
         this.socket = DatagramChannel.open();
         this.socket.configureBlocking(false);
+        this.socket.setOption(StandardSocketOptions.SO_SNDBUF, SOCKET_BUFFER_SIZE);
+        this.socket.setOption(StandardSocketOptions.SO_RCVBUF, SOCKET_BUFFER_SIZE);
+
+        this.fragmenter = new PacketFragmenter();
+        this.pool = new BufferPool(POOL_MAX_CAPACITY, POOL_MAX_FREE);
+        this.assembler = new PacketAssembler(this.pool);
     }
 
     /**
@@ -48,11 +74,21 @@ public class ClientComUDP implements Com {
      */
     @Override
     public void send(Packet packet, SocketAddress address) {
-        byte[] data = SerializationUtils.serialize(packet);
-        ByteBuffer buffer = ByteBuffer.wrap(data);
+        int count;
+        try {
+            count = this.fragmenter.encode(packet);
+        } catch (BufferOverflowException e) {
+            System.err.println("Cannot send packet: packet is too large.");
+            return;
+        }
 
         try {
-            this.socket.send(buffer, this.address);
+            for (int i = 0; i < count; i++) {
+                if (this.socket.send(this.fragmenter.fragment(i), this.address) == 0) {
+                    System.err.println("Cannot send packet: socket buffer is full.");
+                    return;
+                }
+            }
         } catch (IOException e) {
             System.err.println("Cannot send packet: " + e);
         }
@@ -63,9 +99,21 @@ public class ClientComUDP implements Com {
      */
     @Override
     public Pair<SocketAddress, Packet> receive() {
-        byte[] data = new byte[16384];
-        ByteBuffer buffer = ByteBuffer.wrap(data);
+        ByteBuffer buffer = this.pool.acquire(PacketFragmenter.DATAGRAM_SIZE);
+        try {
+            return this.receive(buffer);
+        } finally {
+            this.pool.release(buffer);
+        }
+    }
 
+    /**
+     * Receives datagram into {@code buffer} and passes it to the assembler.
+     *
+     * @param buffer buffer of the datagram
+     * @return sender and packet, or null if there is no complete packet
+     */
+    private Pair<SocketAddress, Packet> receive(ByteBuffer buffer) {
         SocketAddress address;
         try {
             address = this.socket.receive(buffer);
@@ -74,7 +122,25 @@ public class ClientComUDP implements Com {
             return null;
         }
 
-        return new ImmutablePair<>(address, SerializationUtils.deserialize(data));
+        if (address == null) {
+            return null;
+        }
+
+        buffer.flip();
+
+        Packet packet;
+        try {
+            packet = this.assembler.accept(address, buffer);
+        } catch (PacketFormatException e) {
+            System.err.println("Cannot decode packet from " + address + ": " + e.getMessage());
+            return null;
+        }
+
+        if (packet == null) {
+            return null;
+        }
+
+        return new ImmutablePair<>(address, packet);
     }
 
     /**
@@ -261,6 +261,19 @@ public enum CommandType {
             "print elements sorted by 'minutesOfWaiting' property in the descending order"
         ),
         null
+    ),
+    IMPORT(
+        new CommandInfo(
+            "import",
+            "add elements from the database file (.csv or .bin) in the import directory of the server"
+        ),
+        new Argument[] {
+            new StringArgument(
+                "filename",
+                (x) -> x != null,
+                "filename (string, cannot be empty)",
+                "This argument cannot be empty")
+        }
     )
     ;
 
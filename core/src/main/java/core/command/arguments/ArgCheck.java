@@ -1,5 +1,7 @@
 package core.command.arguments;
 
+import core.database.StrSerializable;
+
 /**
  * Functional interface for validating command arguments.
  *
@@ -15,4 +17,20 @@ public interface ArgCheck {
      */
     boolean check(String value);
 
+    /**
+     * Validates value of a field by the same specification as {@code check}.
+     * By default converts value to string and passes it to {@code check},
+     * validators of fields override it to check value without conversion.
+     *
+     * @param value field value to check
+     * @return true if value is valid, else false
+     */
+    default boolean checkValue(Object value) {
+        if (value instanceof StrSerializable) {
+            return this.check(((StrSerializable) value).serialize()[0]);
+        }
+
+        return this.check(value == null ? null : "" + value);
+    }
+
 }
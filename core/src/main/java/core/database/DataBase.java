@@ -24,10 +24,19 @@ public interface DataBase<T extends StrSerializable & DataBaseObject> {
 
     /**
      * Writes {@code data} to {@code filename}.
+     * May be called from a background thread while new changes are recorded.
      *
      * @param data to write
+     * @return true if data was written, else false
      */
-    void write(LinkedList<T> data);
+    boolean write(Iterable<T> data);
+
+    /**
+     * Called when snapshot of the data for the next {@code write} is taken.
+     * Changes recorded after this call are not covered by the snapshot.
+     * Does nothing by default.
+     */
+    default void beginWrite() {}
 
     /**
      * Reads data from {@code filename}.
@@ -36,4 +45,55 @@ public interface DataBase<T extends StrSerializable & DataBaseObject> {
      */
     LinkedList<T> read();
 
+    /**
+     * Records addition of {@code item}.
+     * Does nothing by default, changes are persisted only by {@code write}.
+     *
+     * @param item added object
+     */
+    default void logAdd(T item) {}
+
+    /**
+     * Records addition of {@code items}.
+     * Records every item with {@code logAdd} by default.
+     *
+     * @param items added objects
+     */
+    default void logAddAll(Iterable<T> items) {
+        for (T item : items) {
+            this.logAdd(item);
+        }
+    }
+
+    /**
+     * Records update of {@code item}.
+     * Does nothing by default, changes are persisted only by {@code write}.
+     *
+     * @param item new version of the object
+     */
+    default void logUpdate(T item) {}
+
+    /**
+     * Records removal of {@code item}.
+     * Does nothing by default, changes are persisted only by {@code write}.
+     *
+     * @param item removed object
+     */
+    default void logRemove(T item) {}
+
+    /**
+     * Records removal of all objects.
+     * Does nothing by default, changes are persisted only by {@code write}.
+     */
+    default void logClear() {}
+
+    /**
+     * Checks if recorded changes should be compacted with {@code write}.
+     *
+     * @return true if compaction is required, else false
+     */
+    default boolean needsCompaction() {
+        return false;
+    }
+
 }
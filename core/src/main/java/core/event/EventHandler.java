@@ -5,6 +5,7 @@ import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.util.LinkedList;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.apache.commons.lang3.tuple.Pair;
 
@@ -15,6 +16,8 @@ import core.handler.Handler;
  * This class uses {@code Selector} to catch events for
  * handlers on input channels provided by them. Then calls
  * {@code process} method of the corresponding handler.
+ * Readiness of {@code EventQueue}-s is tracked by the class itself,
+ * selector is woken up if queue is written by another thread.
  *
  * @author ivatolm
  */
@@ -25,6 +28,12 @@ public abstract class EventHandler<E extends Enum<?>> {
      */
     protected Selector selector;
 
+    /** Keys of the queues ready for reading */
+    private ConcurrentLinkedQueue<SelectionKey> readyQueues;
+
+    /** Thread selecting channels */
+    private volatile Thread selectingThread;
+
     /**
      * Constructs new {@code EventHandler} with provided arguments.
      *
@@ -32,6 +41,63 @@ public abstract class EventHandler<E extends Enum<?>> {
      */
     protected EventHandler() throws IOException {
         this.selector = Selector.open();
+        this.readyQueues = new ConcurrentLinkedQueue<>();
+    }
+
+    /**
+     * Selects ready channels. Doesn't block if there are ready queues.
+     *
+     * @param timeout maximum time to block in milliseconds, 0 to block indefinitely
+     * @return number of selected keys of the selector
+     * @throws IOException if I/O error occurs
+     */
+    protected int select(long timeout) throws IOException {
+        this.selectingThread = Thread.currentThread();
+
+        if (!this.readyQueues.isEmpty()) {
+            return this.selector.selectNow();
+        }
+
+        return this.selector.select(timeout);
+    }
+
+    /**
+     * Takes keys of the queues ready for reading. Each key must be passed
+     * to {@code queueHandled} after handling.
+     *
+     * @return keys of the ready queues
+     */
+    protected LinkedList<SelectionKey> takeReadyQueues() {
+        LinkedList<SelectionKey> result = new LinkedList<>();
+
+        SelectionKey key;
+        while ((key = this.readyQueues.poll()) != null) {
+            result.add(key);
+        }
+
+        return result;
+    }
+
+    /**
+     * Called after key taken by {@code takeReadyQueues} was handled.
+     *
+     * @param key key of the queue
+     */
+    protected void queueHandled(SelectionKey key) {
+        ((EventQueue.Key) key).handled();
+    }
+
+    /**
+     * Called by the queue when it becomes ready for reading.
+     *
+     * @param key key of the queue
+     */
+    void queueReady(EventQueue.Key key) {
+        this.readyQueues.add(key);
+
+        if (Thread.currentThread() != this.selectingThread) {
+            this.selector.wakeup();
+        }
     }
 
     /**
@@ -43,7 +109,12 @@ public abstract class EventHandler<E extends Enum<?>> {
      */
     protected void subscribeChannelRead(SelectableChannel channel, Object[] attachment) throws IOException {
         channel.configureBlocking(false);
-        channel.register(selector, SelectionKey.OP_READ, attachment);
+
+        if (channel instanceof EventQueue.Source) {
+            ((EventQueue.Source) channel).register(this, SelectionKey.OP_READ, attachment);
+        } else {
+            channel.register(selector, SelectionKey.OP_READ, attachment);
+        }
     }
 
     /**
@@ -127,11 +198,15 @@ public abstract class EventHandler<E extends Enum<?>> {
 
     /**
      * Unsubscribe channel from all operations.
+     * Does nothing if channel is not subscribed, e.g. its queue was closed.
      *
      * @param channel channel to unsubscribe
      */
     protected void unsubscribeChannel(SelectableChannel channel) {
-        channel.keyFor(this.selector).cancel();
+        SelectionKey key = channel.keyFor(this.selector);
+        if (key != null) {
+            key.cancel();
+        }
     }
 
     /**
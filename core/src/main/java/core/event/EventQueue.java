@@ -0,0 +1,343 @@
+package core.event;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.channels.IllegalSelectorException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.spi.SelectorProvider;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * In-process replacement of {@code Pipe} for passing objects between
+ * handlers of the same {@code EventHandler}. Objects are passed by
+ * reference through a lock-free queue, so they are neither serialized
+ * nor copied through the kernel. Ends of the queue are channels, so
+ * they can be used by handlers as any other input or output channel,
+ * but readiness of the source is tracked by {@code EventHandler}
+ * instead of its {@code Selector}.
+ *
+ * @author ivatolm
+ */
+public class EventQueue {
+
+    /** Queued objects */
+    private final ConcurrentLinkedQueue<Serializable> queue;
+
+    /** Reading end of the queue */
+    private final Source source;
+
+    /** Writing end of the queue */
+    private final Sink sink;
+
+    /** Is queue closed? */
+    private volatile boolean closed;
+
+    /**
+     * Constructs new empty queue.
+     */
+    private EventQueue() {
+        this.queue = new ConcurrentLinkedQueue<>();
+        this.source = new Source();
+        this.sink = new Sink();
+    }
+
+    /**
+     * Opens new queue.
+     *
+     * @return new queue
+     */
+    public static EventQueue open() {
+        return new EventQueue();
+    }
+
+    /**
+     * @return reading end of the queue
+     */
+    public Source source() {
+        return this.source;
+    }
+
+    /**
+     * @return writing end of the queue
+     */
+    public Sink sink() {
+        return this.sink;
+    }
+
+    /**
+     * Closes the queue. Queued objects are dropped, objects written
+     * afterwards are ignored and subscription of the source is cancelled.
+     */
+    public void close() {
+        this.closed = true;
+        this.queue.clear();
+
+        Key key = this.source.key;
+        if (key != null) {
+            key.cancel();
+        }
+    }
+
+    /**
+     * @return true if queue was closed, else false
+     */
+    public boolean isClosed() {
+        return this.closed;
+    }
+
+    /**
+     * Base class of the ends of the queue.
+     * Ends are not created by a {@code SelectorProvider} and can't be
+     * registered with a {@code Selector}, {@code register} throws
+     * {@code IllegalSelectorException}. Source is subscribed through
+     * {@code EventHandler} instead.
+     */
+    private abstract static class QueueChannel extends SelectableChannel {
+
+        /**
+         * Returns default provider of the system, so code comparing
+         * providers works, though queue can't be registered with its selectors.
+         *
+         * @return default selector provider
+         */
+        @Override
+        public SelectorProvider provider() {
+            return SelectorProvider.provider();
+        }
+
+        @Override
+        public boolean isRegistered() {
+            return false;
+        }
+
+        @Override
+        public SelectionKey keyFor(Selector sel) {
+            return null;
+        }
+
+        @Override
+        public SelectionKey register(Selector sel, int ops, Object att) {
+            throw new IllegalSelectorException();
+        }
+
+        @Override
+        public SelectableChannel configureBlocking(boolean block) throws IOException {
+            if (block) {
+                throw new IOException("Queue cannot be blocking.");
+            }
+
+            return this;
+        }
+
+        @Override
+        public boolean isBlocking() {
+            return false;
+        }
+
+        @Override
+        public Object blockingLock() {
+            return this;
+        }
+
+        @Override
+        protected void implCloseChannel() {
+        }
+
+    }
+
+    /**
+     * Reading end of the queue.
+     */
+    public final class Source extends QueueChannel {
+
+        /** Subscription of the event handler, null if not subscribed */
+        private volatile Key key;
+
+        /**
+         * Reads one object from the queue.
+         *
+         * @return object read from the queue
+         * @throws IOException if queue is empty
+         */
+        public Serializable read() throws IOException {
+            Serializable object = EventQueue.this.queue.poll();
+            if (object == null) {
+                throw new IOException("Queue is empty.");
+            }
+
+            return object;
+        }
+
+        /**
+         * Reads one object from the queue if there is any.
+         *
+         * @return object read from the queue, or null if queue is empty
+         */
+        public Serializable poll() {
+            return EventQueue.this.queue.poll();
+        }
+
+        @Override
+        public int validOps() {
+            return SelectionKey.OP_READ;
+        }
+
+        @Override
+        public boolean isRegistered() {
+            return this.key != null && this.key.isValid();
+        }
+
+        @Override
+        public SelectionKey keyFor(Selector sel) {
+            Key key = this.key;
+            if (key != null && key.isValid() && key.selector() == sel) {
+                return key;
+            }
+
+            return null;
+        }
+
+        /**
+         * Subscribes {@code handler} to readiness of the queue.
+         *
+         * @param handler handler notified when queue is ready
+         * @param ops interest set
+         * @param att attachment of the key
+         * @return key of the subscription
+         */
+        SelectionKey register(EventHandler<?> handler, int ops, Object att) {
+            Key key = new Key(handler, ops);
+            key.attach(att);
+            this.key = key;
+
+            key.notifyReady();
+            return key;
+        }
+
+    }
+
+    /**
+     * Writing end of the queue.
+     */
+    public final class Sink extends QueueChannel {
+
+        /**
+         * Writes {@code object} to the queue. Object is passed by reference,
+         * so it mustn't be modified afterwards. Object is ignored if queue
+         * was closed.
+         *
+         * @param object object to be written
+         */
+        public void write(Serializable object) {
+            if (EventQueue.this.closed) {
+                return;
+            }
+
+            EventQueue.this.queue.add(object);
+
+            Key key = EventQueue.this.source.key;
+            if (key != null) {
+                key.notifyReady();
+            }
+        }
+
+        @Override
+        public int validOps() {
+            return SelectionKey.OP_WRITE;
+        }
+
+    }
+
+    /**
+     * Subscription of the event handler to the source of the queue.
+     */
+    final class Key extends SelectionKey {
+
+        /** Subscribed event handler */
+        private final EventHandler<?> handler;
+
+        /** Interest set */
+        private volatile int interestOps;
+
+        /** Is subscription valid? */
+        private volatile boolean valid = true;
+
+        /** Is key already queued as ready in the event handler? */
+        private final AtomicBoolean pending = new AtomicBoolean();
+
+        /**
+         * Constructs new key.
+         *
+         * @param handler subscribed event handler
+         * @param ops interest set
+         */
+        private Key(EventHandler<?> handler, int ops) {
+            this.handler = handler;
+            this.interestOps = ops;
+        }
+
+        /**
+         * Queues key as ready in the event handler if queue is not empty
+         * and handler is interested in reading it.
+         */
+        void notifyReady() {
+            if (this.valid &&
+                (this.interestOps & SelectionKey.OP_READ) != 0 &&
+                !EventQueue.this.queue.isEmpty() &&
+                this.pending.compareAndSet(false, true)) {
+                this.handler.queueReady(this);
+            }
+        }
+
+        /**
+         * Called by the event handler when key was handled. Queues key
+         * again if there are objects left.
+         */
+        void handled() {
+            this.pending.set(false);
+            this.notifyReady();
+        }
+
+        @Override
+        public SelectableChannel channel() {
+            return EventQueue.this.source;
+        }
+
+        @Override
+        public Selector selector() {
+            return this.handler.selector;
+        }
+
+        @Override
+        public boolean isValid() {
+            return this.valid;
+        }
+
+        @Override
+        public void cancel() {
+            this.valid = false;
+        }
+
+        @Override
+        public int interestOps() {
+            return this.interestOps;
+        }
+
+        @Override
+        public SelectionKey interestOps(int ops) {
+            this.interestOps = ops;
+            this.notifyReady();
+            return this;
+        }
+
+        @Override
+        public int readyOps() {
+            return EventQueue.this.queue.isEmpty() ? 0 : SelectionKey.OP_READ;
+        }
+
+    }
+
+}
@@ -10,8 +10,11 @@ public enum EventType {
     NewCommands,
     ScriptRequest,
     OutputResponse,
+    OutputChunk,
     ConnectionTimeout,
     PingTimeout,
     Ping,
-    Close
+    Close,
+    Ack,
+    Reset
 }
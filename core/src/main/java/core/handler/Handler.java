@@ -185,6 +185,27 @@ public abstract class Handler<E extends Enum<?>, S extends Enum<?>> extends FSM<
         this.outputChannels.add(oc);
     }
 
+    /**
+     * Removes {@code channel} from input channels and subscriptions.
+     *
+     * @param channel channel to remove
+     */
+    public void removeInputChannel(SelectableChannel channel) {
+        this.inputChannels.removeIf(ic -> ic.getValue() == channel);
+        if (this.subscriptions != this.inputChannels) {
+            this.subscriptions.removeIf(ic -> ic.getValue() == channel);
+        }
+    }
+
+    /**
+     * Removes {@code channel} from output channels.
+     *
+     * @param channel channel to remove
+     */
+    public void removeOutputChannel(SelectableChannel channel) {
+        this.outputChannels.removeIf(oc -> oc.getValue() == channel);
+    }
+
     /**
      * Returns running state of the Handler.
      *
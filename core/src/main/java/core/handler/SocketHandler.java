@@ -36,4 +36,13 @@ public abstract class SocketHandler<C extends SelectableChannel, S extends Enum<
         this.inputChannels.add(new ImmutablePair<>(ChannelType.Network, this.networkCom.getChannel()));
     }
 
+    /**
+     * Performs timed work of the network communicator.
+     *
+     * @return time in milliseconds until the next call is due, 0 if there is no such time
+     */
+    public long tick() {
+        return this.networkCom.tick();
+    }
+
 }
@@ -0,0 +1,152 @@
+package core.models;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+
+import core.command.arguments.ArgCheck;
+import core.command.arguments.LongArgument;
+
+/**
+ * Precomputed steps of {@code Validatable.validate} for a class.
+ * Reflection is used only once per class to find annotated fields,
+ * create their validators and accessors, so validation itself reads
+ * fields through method handles and checks values without converting
+ * them to strings.
+ *
+ * @author ivatolm
+ */
+final class ValidationPlan {
+
+    /** Plans by validated class */
+    private static final ConcurrentHashMap<Class<?>, ValidationPlan> plans = new ConcurrentHashMap<>();
+
+    /** Validators by their class, shared by all plans */
+    private static final ConcurrentHashMap<Class<? extends ArgCheck>, ArgCheck> validators = new ConcurrentHashMap<>();
+
+    /** Accessors of annotated fields in declaration order */
+    private final MethodHandle[] getters;
+
+    /** Validators of the fields, null if field has no {@code Validator} */
+    private final ArgCheck[] checks;
+
+    /** Is field validated as id? */
+    private final boolean[] asId;
+
+    /**
+     * Constructs new plan for {@code clazz}.
+     *
+     * @param clazz class to validate
+     * @throws ReflectiveOperationException if validators or accessors cannot be created
+     */
+    private ValidationPlan(Class<?> clazz) throws ReflectiveOperationException {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodType type = MethodType.methodType(Object.class, Object.class);
+
+        ArrayList<MethodHandle> getters = new ArrayList<>();
+        ArrayList<ArgCheck> checks = new ArrayList<>();
+        ArrayList<Boolean> asId = new ArrayList<>();
+
+        for (Field field : clazz.getDeclaredFields()) {
+            boolean hasValidator = field.isAnnotationPresent(Validator.class);
+            boolean isId = field.isAnnotationPresent(ValidateAsId.class);
+            if (!hasValidator && !isId) {
+                continue;
+            }
+
+            field.setAccessible(true);
+            getters.add(lookup.unreflectGetter(field).asType(type));
+            checks.add(hasValidator ? validator(field.getAnnotation(Validator.class).validator()) : null);
+            asId.add(isId);
+        }
+
+        this.getters = getters.toArray(new MethodHandle[0]);
+        this.checks = checks.toArray(new ArgCheck[0]);
+        this.asId = new boolean[asId.size()];
+        for (int i = 0; i < this.asId.length; i++) {
+            this.asId[i] = asId.get(i);
+        }
+    }
+
+    /**
+     * Returns plan for {@code clazz}, creates it on first call.
+     *
+     * @param clazz class to validate
+     * @return plan for the class
+     * @throws ReflectiveOperationException if plan cannot be created
+     */
+    static ValidationPlan of(Class<?> clazz) throws ReflectiveOperationException {
+        ValidationPlan plan = plans.get(clazz);
+        if (plan == null) {
+            plan = new ValidationPlan(clazz);
+            plans.putIfAbsent(clazz, plan);
+        }
+
+        return plan;
+    }
+
+    /**
+     * Checks fields of {@code obj} in declaration order. Stops at the
+     * first field validated as id and returns result of {@code idValidator}.
+     *
+     * @param obj object to check
+     * @param idValidator validator of id
+     * @return true if object is valid, else false
+     * @throws Throwable if field cannot be read
+     */
+    boolean validate(Object obj, IdValidator idValidator) throws Throwable {
+        for (int i = 0; i < this.getters.length; i++) {
+            Object value = (Object) this.getters[i].invokeExact(obj);
+
+            if (this.checks[i] != null && !this.checks[i].checkValue(value)) {
+                return false;
+            }
+
+            if (this.asId[i]) {
+                LongArgument arg = new LongArgument();
+                arg.setValue((Long) value);
+                return idValidator.check(arg);
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Checks all fields of {@code obj} having validator.
+     *
+     * @param obj object to check
+     * @return true if object is valid, else false
+     * @throws Throwable if field cannot be read
+     */
+    boolean validateFields(Object obj) throws Throwable {
+        for (int i = 0; i < this.getters.length; i++) {
+            if (this.checks[i] != null && !this.checks[i].checkValue((Object) this.getters[i].invokeExact(obj))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns shared instance of {@code validatorClass}.
+     *
+     * @param validatorClass class of the validator
+     * @return validator
+     * @throws ReflectiveOperationException if validator cannot be created
+     */
+    private static ArgCheck validator(Class<? extends ArgCheck> validatorClass) throws ReflectiveOperationException {
+        ArgCheck check = validators.get(validatorClass);
+        if (check == null) {
+            check = validatorClass.getDeclaredConstructor().newInstance();
+            validators.putIfAbsent(validatorClass, check);
+        }
+
+        return check;
+    }
+
+}
@@ -14,4 +14,10 @@ public class CarNameValidator implements ArgCheck {
         return value != null;
     }
 
+    @Override
+    public boolean checkValue(Object value) {
+        // Missing name was checked as "null" string and accepted
+        return value == null || value instanceof String;
+    }
+
 }
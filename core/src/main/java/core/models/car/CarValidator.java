@@ -10,6 +10,12 @@ import core.utils.SimpleParseException;
  */
 public class CarValidator implements ArgCheck {
 
+    /** Validator of {@code name} used by {@code checkValue} */
+    private static final CarNameValidator NAME_VALIDATOR = new CarNameValidator();
+
+    /** Validator of {@code cool} used by {@code checkValue} */
+    private static final CarCoolValidator COOL_VALIDATOR = new CarCoolValidator();
+
     @Override
     public boolean check(String value) {
         Car car = new Car();
@@ -29,4 +35,15 @@ public class CarValidator implements ArgCheck {
                coolValidator.check("" + car.getCool());
     }
 
+    @Override
+    public boolean checkValue(Object value) {
+        if (!(value instanceof Car)) {
+            return false;
+        }
+
+        Car car = (Car) value;
+        return NAME_VALIDATOR.checkValue(car.getName()) &&
+               COOL_VALIDATOR.checkValue(car.getCool());
+    }
+
 }
@@ -10,6 +10,12 @@ import core.utils.SimpleParseException;
  */
 public class CoordinatesValidator implements ArgCheck {
 
+    /** Validator of {@code x} used by {@code checkValue} */
+    private static final CoordinatesXValidator X_VALIDATOR = new CoordinatesXValidator();
+
+    /** Validator of {@code y} used by {@code checkValue} */
+    private static final CoordinatesYValidator Y_VALIDATOR = new CoordinatesYValidator();
+
     @Override
     public boolean check(String value) {
         Coordinates coordinates = new Coordinates();
@@ -29,4 +35,15 @@ public class CoordinatesValidator implements ArgCheck {
                yValidator.check("" + coordinates.getY());
     }
 
+    @Override
+    public boolean checkValue(Object value) {
+        if (!(value instanceof Coordinates)) {
+            return false;
+        }
+
+        Coordinates coordinates = (Coordinates) value;
+        return X_VALIDATOR.checkValue(coordinates.getX()) &&
+               Y_VALIDATOR.checkValue(coordinates.getY());
+    }
+
 }
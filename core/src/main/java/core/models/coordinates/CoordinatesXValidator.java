@@ -22,4 +22,9 @@ public class CoordinatesXValidator implements ArgCheck {
         return value != null && y > -58;
     }
 
+    @Override
+    public boolean checkValue(Object value) {
+        return value instanceof Integer && (Integer) value > -58;
+    }
+
 }
@@ -22,4 +22,9 @@ public class CoordinatesYValidator implements ArgCheck {
         return value != null && y <= 414;
     }
 
+    @Override
+    public boolean checkValue(Object value) {
+        return value instanceof Float && (Float) value <= 414;
+    }
+
 }
@@ -22,4 +22,9 @@ public class HumanBeingCreationDateValidator implements ArgCheck {
         return true;
     }
 
+    @Override
+    public boolean checkValue(Object value) {
+        return value instanceof LocalDate;
+    }
+
 }
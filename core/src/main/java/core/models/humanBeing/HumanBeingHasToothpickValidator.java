@@ -18,4 +18,9 @@ public class HumanBeingHasToothpickValidator implements ArgCheck {
         return value != null && ((Boolean) arg.getValue()) instanceof Boolean;
     }
 
+    @Override
+    public boolean checkValue(Object value) {
+        return value instanceof Boolean;
+    }
+
 }
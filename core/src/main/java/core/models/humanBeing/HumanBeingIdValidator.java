@@ -23,4 +23,9 @@ public class HumanBeingIdValidator implements ArgCheck {
         return true;
     }
 
+    @Override
+    public boolean checkValue(Object value) {
+        return value instanceof Long;
+    }
+
 }
@@ -20,4 +20,9 @@ public class HumanBeingImpactSpeedValidator implements ArgCheck {
         return value != null;
     }
 
+    @Override
+    public boolean checkValue(Object value) {
+        return value instanceof Long;
+    }
+
 }
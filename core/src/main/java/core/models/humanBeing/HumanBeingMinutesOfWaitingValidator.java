@@ -23,4 +23,9 @@ public class HumanBeingMinutesOfWaitingValidator implements ArgCheck {
         return true;
     }
 
+    @Override
+    public boolean checkValue(Object value) {
+        return value == null || value instanceof Integer;
+    }
+
 }
@@ -14,4 +14,9 @@ public class HumanBeingNameValidator implements ArgCheck {
         return value != null && !value.isEmpty();
     }
 
+    @Override
+    public boolean checkValue(Object value) {
+        return value instanceof String && !((String) value).isEmpty();
+    }
+
 }
@@ -21,4 +21,9 @@ public class HumanBeingRealHeroValidator implements ArgCheck {
         return ((Boolean) arg.getValue()) instanceof Boolean;
     }
 
+    @Override
+    public boolean checkValue(Object value) {
+        return value == null || value instanceof Boolean;
+    }
+
 }
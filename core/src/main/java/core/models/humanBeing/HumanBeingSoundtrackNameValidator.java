@@ -14,4 +14,9 @@ public class HumanBeingSoundtrackNameValidator implements ArgCheck {
         return value != null;
     }
 
+    @Override
+    public boolean checkValue(Object value) {
+        return value instanceof String;
+    }
+
 }
@@ -16,4 +16,9 @@ public class MoodValidator implements ArgCheck {
         return valueValidator.check("" + value);
     }
 
+    @Override
+    public boolean checkValue(Object value) {
+        return value instanceof Mood;
+    }
+
 }
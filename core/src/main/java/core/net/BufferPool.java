@@ -0,0 +1,105 @@
+package core.net;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+
+/**
+ * Pool of direct buffers for receiving and assembling packets.
+ * Buffers are grouped by capacity, which is a power of two, so a
+ * released buffer can be reused for any smaller request of its group.
+ * Requests larger than {@code maxCapacity} get unpooled heap buffers.
+ * Pool is not thread-safe, it's meant to be used by the thread of
+ * the communicator.
+ *
+ * @author ivatolm
+ */
+public class BufferPool {
+
+    /** Smallest capacity of pooled buffer */
+    private static final int MIN_CAPACITY = 1024;
+
+    /** Largest capacity of pooled buffer */
+    private int maxCapacity;
+
+    /** Maximum number of free buffers kept in each group */
+    private int maxFree;
+
+    /** Free buffers by binary logarithm of their capacity */
+    private ArrayList<ArrayDeque<ByteBuffer>> free;
+
+    /**
+     * Constructs new empty pool.
+     *
+     * @param maxCapacity largest capacity of pooled buffer, rounded up to a power of two
+     * @param maxFree maximum number of free buffers kept of each capacity
+     */
+    public BufferPool(int maxCapacity, int maxFree) {
+        this.maxCapacity = capacityOf(maxCapacity);
+        this.maxFree = maxFree;
+
+        this.free = new ArrayList<>();
+        for (int capacity = MIN_CAPACITY; capacity <= this.maxCapacity; capacity <<= 1) {
+            this.free.add(new ArrayDeque<>());
+        }
+    }
+
+    /**
+     * Returns buffer with position of 0 and limit of {@code size}.
+     *
+     * @param size required size of the buffer
+     * @return buffer of at least {@code size} bytes
+     */
+    public ByteBuffer acquire(int size) {
+        if (size > this.maxCapacity) {
+            return ByteBuffer.allocate(size);
+        }
+
+        int capacity = capacityOf(size);
+        ByteBuffer buffer = this.free.get(groupOf(capacity)).poll();
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(capacity);
+        }
+
+        buffer.clear();
+        buffer.limit(size);
+        return buffer;
+    }
+
+    /**
+     * Returns {@code buffer} to the pool. Buffer mustn't be used afterwards.
+     *
+     * @param buffer buffer returned by {@code acquire}
+     */
+    public void release(ByteBuffer buffer) {
+        if (!buffer.isDirect() || buffer.capacity() > this.maxCapacity) {
+            return;
+        }
+
+        ArrayDeque<ByteBuffer> group = this.free.get(groupOf(buffer.capacity()));
+        if (group.size() < this.maxFree) {
+            group.push(buffer);
+        }
+    }
+
+    /**
+     * @param size required size
+     * @return smallest pooled capacity that fits {@code size}
+     */
+    private static int capacityOf(int size) {
+        if (size <= MIN_CAPACITY) {
+            return MIN_CAPACITY;
+        }
+
+        return Integer.highestOneBit(size - 1) << 1;
+    }
+
+    /**
+     * @param capacity pooled capacity
+     * @return index of the group of buffers with {@code capacity}
+     */
+    private static int groupOf(int capacity) {
+        return Integer.numberOfTrailingZeros(capacity) - Integer.numberOfTrailingZeros(MIN_CAPACITY);
+    }
+
+}
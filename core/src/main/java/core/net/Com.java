@@ -30,12 +30,32 @@ public interface Com {
     void send(Packet packet, SocketAddress address);
 
     /**
-     * Receives packet from other peer.
+     * Receives packet from other peer. Packets larger than one datagram
+     * are returned when their last fragment is received.
      *
-     * @return pair of ip and received packet
+     * @return pair of ip and received packet, null if there is no complete packet yet
      */
     Pair<SocketAddress, Packet> receive();
 
+    /**
+     * Performs timed work of the communicator, like retransmission
+     * of lost packets. Must be called by the thread using the communicator.
+     *
+     * @return time in milliseconds until the next call is due, 0 if there is no such time
+     */
+    default long tick() {
+        return 0;
+    }
+
+    /**
+     * Forgets state kept for the peer, like packets waiting for delivery.
+     * Must be called by the thread using the communicator.
+     *
+     * @param address address of the peer
+     */
+    default void forget(SocketAddress address) {
+    }
+
     /**
      * Returns {@code Channel} object.
      *
@@ -0,0 +1,569 @@
+package core.net;
+
+import java.net.SocketAddress;
+import java.nio.channels.SelectableChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+
+import core.event.EventType;
+import core.net.packet.Packet;
+
+/**
+ * Communicator delivering packets of another communicator reliably
+ * and in order. Packets sent to every peer get sequence numbers of the
+ * session with that peer. Receiver acknowledges them with the number
+ * up to which everything was received and a bitmap of packets received
+ * after the first gap (selective acknowledgement). Acknowledgements are
+ * carried by every packet and by separate {@code Ack} packets. Packets
+ * that weren't acknowledged in time are retransmitted, timeout is
+ * derived from measured round-trip time as in RFC 6298. Duplicates are
+ * dropped and reordered packets are delivered in order.
+ * {@code Ping} packets are not sequenced, as they are sent periodically anyway.
+ * Session is forgotten when it's idle for {@code SESSION_TIMEOUT}, when
+ * nothing was received from the peer with unacknowledged packets for
+ * {@code PEER_TIMEOUT}, or when user of the communicator calls {@code forget}.
+ *
+ * Higher half of the sequence number is a random epoch of the sending
+ * session. Receiver that doesn't know the epoch of a packet (because
+ * it has forgotten or never had the session) and cannot start from it
+ * replies with {@code Reset}, then the sender renumbers its packets in
+ * a new epoch. Receiver doesn't start the epoch it has reset, even with
+ * its first packet, as the sender has renumbered that packet as well.
+ *
+ * @author ivatolm
+ */
+public class ReliableCom implements Com {
+
+    /** Retransmission timeout before round-trip time is measured */
+    private static final long INITIAL_RTO = 200;
+
+    /** Bounds of retransmission timeout */
+    private static final long MIN_RTO = 20;
+    private static final long MAX_RTO = 2000;
+
+    /** Maximum distance from the oldest unacknowledged packet, equal to the size of selective acknowledgement */
+    private static final int WINDOW = 64;
+
+    /** Number of packets sent later and acknowledged before the missing one is considered lost */
+    private static final int REORDERING = 3;
+
+    /** Time in milliseconds after which idle session is forgotten */
+    private static final long SESSION_TIMEOUT = 5000;
+
+    /** Time in milliseconds without packets from the peer after which its unacknowledged packets are dropped */
+    private static final long PEER_TIMEOUT = 15000;
+
+    /** Communicator sending the packets */
+    private Com com;
+
+    /** Peer of the packets sent without address */
+    private SocketAddress peer;
+
+    /** Sessions by address of the peer */
+    private HashMap<SocketAddress, Session> sessions;
+
+    /** Received packets ready to be returned in order */
+    private ArrayDeque<Pair<SocketAddress, Packet>> delivered;
+
+    /**
+     * Constructs new {@code ReliableCom} over {@code com}.
+     *
+     * @param com communicator sending the packets
+     */
+    public ReliableCom(Com com) {
+        this(com, null);
+    }
+
+    /**
+     * Constructs new {@code ReliableCom} over {@code com}, that sends
+     * packets to a single peer regardless of their address.
+     *
+     * @param com communicator sending the packets
+     * @param peer address of the peer
+     */
+    public ReliableCom(Com com, SocketAddress peer) {
+        this.com = com;
+        this.peer = peer;
+        this.sessions = new HashMap<>();
+        this.delivered = new ArrayDeque<>();
+    }
+
+    /**
+     * Implements {@code isAlive} method of {@code Com}.
+     */
+    @Override
+    public boolean isAlive() {
+        return this.com.isAlive();
+    }
+
+    /**
+     * Implements {@code send} method of {@code Com}.
+     */
+    @Override
+    public void send(Packet packet, SocketAddress address) {
+        if (address == null) {
+            address = this.peer;
+        }
+
+        long now = System.currentTimeMillis();
+        Session session = this.getSession(address, now);
+        session.lastActivity = now;
+
+        if (packet.getType() == EventType.Ping) {
+            this.com.send(new Packet(packet.getType(), packet.getData(), 0, session.getAck(), session.getSack()),
+                          address);
+            return;
+        }
+
+        session.backlog.add(packet);
+        this.flush(session, address, now);
+    }
+
+    /**
+     * Implements {@code receive} method of {@code Com}.
+     */
+    @Override
+    public Pair<SocketAddress, Packet> receive() {
+        if (!this.delivered.isEmpty()) {
+            return this.delivered.poll();
+        }
+
+        Pair<SocketAddress, Packet> data = this.com.receive();
+        if (data == null) {
+            return null;
+        }
+
+        SocketAddress address = data.getKey();
+        if (this.peer != null) {
+            address = this.peer;
+        }
+
+        Packet packet = data.getValue();
+
+        long now = System.currentTimeMillis();
+        Session session = this.getSession(address, now);
+        session.lastActivity = now;
+        session.lastReceived = now;
+
+        if (packet.getType() == EventType.Reset) {
+            this.reset(session, address, packet.getAck(), now);
+            return null;
+        }
+
+        this.acknowledged(session, address, packet.getAck(), packet.getSack(), now);
+
+        long sequence = packet.getSequence();
+        if (sequence == 0) {
+            if (packet.getType() == EventType.Ack) {
+                return null;
+            }
+
+            return new ImmutablePair<>(address, packet);
+        }
+
+        int epoch = (int) (sequence >>> 32);
+        long counter = sequence & 0xFFFFFFFFL;
+        if (epoch != session.remoteEpoch) {
+            if (epoch == session.retiredEpoch) {
+                return null;
+            }
+
+            // Only the first packet of the epoch can start it, otherwise earlier ones would be lost.
+            // Epoch that was reset is never started, sender has renumbered its packets,
+            // so its delayed first packet would be delivered twice.
+            if (counter != 1 || epoch == session.resetEpoch) {
+                session.resetEpoch = epoch;
+                this.com.send(new Packet(EventType.Reset, null, 0, sequence, 0), address);
+                return null;
+            }
+
+            session.retiredEpoch = session.remoteEpoch;
+            session.remoteEpoch = epoch;
+            session.received = 0;
+            session.reordered.clear();
+        }
+
+        // Duplicates are acknowledged again, previous acknowledgement might have been lost
+        if (counter > session.received && counter <= session.received + 1 + WINDOW &&
+            !session.reordered.containsKey(counter)) {
+            session.reordered.put(counter, packet);
+
+            Packet next;
+            while ((next = session.reordered.remove(session.received + 1)) != null) {
+                session.received++;
+                this.delivered.add(new ImmutablePair<>(address, next));
+            }
+        }
+
+        this.com.send(new Packet(EventType.Ack, null, 0, session.getAck(), session.getSack()), address);
+
+        return this.delivered.poll();
+    }
+
+    /**
+     * Implements {@code tick} method of {@code Com}.
+     * Retransmits packets whose timeout has expired and forgets idle sessions.
+     */
+    @Override
+    public long tick() {
+        long now = System.currentTimeMillis();
+        long next = Long.MAX_VALUE;
+
+        Iterator<Map.Entry<SocketAddress, Session>> iterator = this.sessions.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<SocketAddress, Session> entry = iterator.next();
+            SocketAddress address = entry.getKey();
+            Session session = entry.getValue();
+
+            if (session.unacked.isEmpty()) {
+                if (now - session.lastActivity > SESSION_TIMEOUT) {
+                    iterator.remove();
+                }
+
+                continue;
+            }
+
+            // Peer that stopped answering is gone, otherwise its packets would be retransmitted forever
+            if (now - session.lastReceived > PEER_TIMEOUT) {
+                iterator.remove();
+                continue;
+            }
+
+            boolean expired = false;
+            for (Outgoing outgoing : session.unacked.values()) {
+                if (outgoing.deadline <= now) {
+                    this.transmit(session, address, outgoing, now);
+                    expired = true;
+                }
+
+                next = Math.min(next, outgoing.deadline);
+            }
+
+            // Timeout means that estimation was too optimistic
+            if (expired) {
+                session.rto = Math.min(session.rto * 2, MAX_RTO);
+            }
+        }
+
+        return next == Long.MAX_VALUE ? 0 : Math.max(1, next - now);
+    }
+
+    /**
+     * Implements {@code forget} method of {@code Com}.
+     * Drops the session with unacknowledged and not yet sent packets.
+     */
+    @Override
+    public void forget(SocketAddress address) {
+        this.sessions.remove(address);
+    }
+
+    /**
+     * Implements {@code getChannel} method of {@code Com}.
+     */
+    @Override
+    public SelectableChannel getChannel() {
+        return this.com.getChannel();
+    }
+
+    /**
+     * Returns session with {@code address}, creating it if needed.
+     *
+     * @param address address of the peer
+     * @param now current time
+     * @return session with the peer
+     */
+    private Session getSession(SocketAddress address, long now) {
+        Session session = this.sessions.get(address);
+        if (session == null) {
+            session = new Session(now);
+            this.sessions.put(address, session);
+        }
+
+        return session;
+    }
+
+    /**
+     * Sends packets of the backlog while window is not full.
+     *
+     * @param session session with the peer
+     * @param address address of the peer
+     * @param now current time
+     */
+    private void flush(Session session, SocketAddress address, long now) {
+        while (!session.backlog.isEmpty() &&
+               (session.unacked.isEmpty() || session.nextSequence - session.unacked.firstKey() < WINDOW)) {
+            Outgoing outgoing = new Outgoing(session.nextSequence++, session.backlog.poll());
+            session.unacked.put(outgoing.sequence, outgoing);
+
+            this.transmit(session, address, outgoing, now);
+        }
+    }
+
+    /**
+     * Sends {@code outgoing} with current acknowledgement of the session.
+     *
+     * @param session session with the peer
+     * @param address address of the peer
+     * @param outgoing packet to send
+     * @param now current time
+     */
+    private void transmit(Session session, SocketAddress address, Outgoing outgoing, long now) {
+        Packet packet = new Packet(outgoing.packet.getType(), outgoing.packet.getData(),
+                                   outgoing.sequence, session.getAck(), session.getSack());
+        this.com.send(packet, address);
+
+        outgoing.transmissions++;
+        outgoing.order = ++session.transmitted;
+        outgoing.sentAt = now;
+        outgoing.deadline = now + session.rto;
+    }
+
+    /**
+     * Removes acknowledged packets, updates round-trip time and
+     * retransmits packets that are reported missing.
+     *
+     * @param session session with the peer
+     * @param address address of the peer
+     * @param ack sequence number up to which all packets were received
+     * @param sack bitmap of received packets after {@code ack + 1}
+     * @param now current time
+     */
+    private void acknowledged(Session session, SocketAddress address, long ack, long sack, long now) {
+        // Acknowledgements of other epochs are about packets that don't exist anymore
+        if (session.unacked.isEmpty() || (int) (ack >>> 32) != session.epoch) {
+            return;
+        }
+
+        Iterator<Outgoing> iterator = session.unacked.headMap(ack, true).values().iterator();
+        while (iterator.hasNext()) {
+            this.delivered(session, iterator.next(), now);
+            iterator.remove();
+        }
+
+        for (int i = 0; sack != 0 && i < Long.SIZE; i++) {
+            if ((sack & (1L << i)) == 0) {
+                continue;
+            }
+
+            sack &= ~(1L << i);
+
+            Outgoing outgoing = session.unacked.remove(ack + 2 + i);
+            if (outgoing != null) {
+                this.delivered(session, outgoing, now);
+            }
+        }
+
+        // Packets sent long enough before the acknowledged ones were most likely lost,
+        // they are retransmitted without waiting for the timeout
+        for (Outgoing outgoing : session.unacked.values()) {
+            if (outgoing.order + REORDERING <= session.delivered) {
+                this.transmit(session, address, outgoing, now);
+            }
+        }
+
+        this.flush(session, address, now);
+    }
+
+    /**
+     * Renumbers unacknowledged packets in a new epoch, if peer doesn't
+     * know the epoch of {@code sequence}.
+     *
+     * @param session session with the peer
+     * @param address address of the peer
+     * @param sequence sequence number unknown to the peer
+     * @param now current time
+     */
+    private void reset(Session session, SocketAddress address, long sequence, long now) {
+        // Reset might be a late reply to the packet of the previous epoch
+        if (!session.unacked.containsKey(sequence)) {
+            return;
+        }
+
+        ArrayList<Outgoing> outgoings = new ArrayList<>(session.unacked.values());
+        session.unacked.clear();
+        session.newEpoch();
+
+        for (Outgoing outgoing : outgoings) {
+            Outgoing renumbered = new Outgoing(session.nextSequence++, outgoing.packet);
+            // Not measuring round-trip time, as peer might have seen the old packet
+            renumbered.transmissions = 1;
+            session.unacked.put(renumbered.sequence, renumbered);
+
+            this.transmit(session, address, renumbered, now);
+        }
+    }
+
+    /**
+     * Updates round-trip time of the session with acknowledged {@code outgoing}.
+     * Retransmitted packets are not measured, as it's unknown which copy was acknowledged.
+     *
+     * @param session session with the peer
+     * @param outgoing acknowledged packet
+     * @param now current time
+     */
+    private void delivered(Session session, Outgoing outgoing, long now) {
+        session.delivered = Math.max(session.delivered, outgoing.order);
+
+        if (outgoing.transmissions != 1) {
+            return;
+        }
+
+        double rtt = now - outgoing.sentAt;
+        if (session.srtt < 0) {
+            session.srtt = rtt;
+            session.rttvar = rtt / 2;
+        } else {
+            session.rttvar = 0.75 * session.rttvar + 0.25 * Math.abs(session.srtt - rtt);
+            session.srtt = 0.875 * session.srtt + 0.125 * rtt;
+        }
+
+        long rto = (long) (session.srtt + Math.max(1, 4 * session.rttvar));
+        session.rto = Math.max(MIN_RTO, Math.min(rto, MAX_RTO));
+    }
+
+    /**
+     * State of delivery with one peer.
+     */
+    private static class Session {
+
+        /** Epoch of the sent packets */
+        private int epoch;
+
+        /** Sequence number of the next sent packet */
+        private long nextSequence;
+
+        /** Sent packets that weren't acknowledged yet */
+        private TreeMap<Long, Outgoing> unacked = new TreeMap<>();
+
+        /** Number of transmissions in the session */
+        private long transmitted = 0;
+
+        /** The latest transmission that was acknowledged */
+        private long delivered = 0;
+
+        /** Packets waiting for the window to be sent */
+        private ArrayDeque<Packet> backlog = new ArrayDeque<>();
+
+        /** Epoch of the received packets, 0 if nothing was received */
+        private int remoteEpoch = 0;
+
+        /** Previous epoch of the received packets, whose late packets are ignored */
+        private int retiredEpoch = 0;
+
+        /** The latest epoch of the received packets that was answered with {@code Reset} */
+        private int resetEpoch = 0;
+
+        /** Number of the packet of the epoch up to which all packets were received */
+        private long received = 0;
+
+        /** Received packets after the first missing one by their number in the epoch */
+        private TreeMap<Long, Packet> reordered = new TreeMap<>();
+
+        /** Smoothed round-trip time, negative if not measured */
+        private double srtt = -1;
+
+        /** Variation of round-trip time */
+        private double rttvar = 0;
+
+        /** Retransmission timeout */
+        private long rto = INITIAL_RTO;
+
+        /** Time of the last sent or received packet */
+        private long lastActivity;
+
+        /** Time of the last received packet */
+        private long lastReceived;
+
+        /**
+         * Constructs new session.
+         *
+         * @param now current time
+         */
+        private Session(long now) {
+            this.lastActivity = now;
+            this.lastReceived = now;
+            this.newEpoch();
+        }
+
+        /**
+         * Starts numbering sent packets in a new random epoch.
+         */
+        private void newEpoch() {
+            int epoch;
+            do {
+                epoch = ThreadLocalRandom.current().nextInt(1, Integer.MAX_VALUE);
+            } while (epoch == this.epoch);
+
+            this.epoch = epoch;
+            this.nextSequence = ((long) epoch << 32) + 1;
+        }
+
+        /**
+         * @return sequence number up to which all packets were received
+         */
+        private long getAck() {
+            return ((long) this.remoteEpoch << 32) | this.received;
+        }
+
+        /**
+         * @return bitmap of received packets after {@code getAck() + 1}
+         */
+        private long getSack() {
+            long sack = 0;
+            for (long counter : this.reordered.keySet()) {
+                long offset = counter - this.received - 2;
+                if (offset >= 0 && offset < Long.SIZE) {
+                    sack |= 1L << offset;
+                }
+            }
+
+            return sack;
+        }
+
+    }
+
+    /**
+     * Sent packet waiting for acknowledgement.
+     */
+    private static class Outgoing {
+
+        /** Sequence number of the packet */
+        private final long sequence;
+
+        /** Packet without delivery header */
+        private final Packet packet;
+
+        /** Number of times the packet was sent */
+        private int transmissions = 0;
+
+        /** Number of the last transmission in the session */
+        private long order;
+
+        /** Time of the last transmission */
+        private long sentAt;
+
+        /** Time of the next retransmission */
+        private long deadline;
+
+        /**
+         * Constructs new outgoing packet.
+         *
+         * @param sequence sequence number of the packet
+         * @param packet packet to send
+         */
+        private Outgoing(long sequence, Packet packet) {
+            this.sequence = sequence;
+            this.packet = packet;
+        }
+
+    }
+
+}
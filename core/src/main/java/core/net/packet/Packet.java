@@ -18,6 +18,15 @@ public class Packet implements Serializable {
     // Data of packet
     private Object data;
 
+    // Sequence number of packet in the session, 0 if not sequenced
+    private long sequence;
+
+    // Sequence number up to which all packets were received
+    private long ack;
+
+    // Received packets after the first missing one, bit i is for {@code ack + 2 + i}
+    private long sack;
+
     /**
      * Constructs new {@code Packet} with provided arguments.
      *
@@ -25,8 +34,24 @@ public class Packet implements Serializable {
      * @param data data of the packet
      */
     public Packet(EventType type, Object data) {
+        this(type, data, 0, 0, 0);
+    }
+
+    /**
+     * Constructs new {@code Packet} with provided arguments.
+     *
+     * @param type type of the packet
+     * @param data data of the packet
+     * @param sequence sequence number of the packet, 0 if not sequenced
+     * @param ack sequence number up to which all packets were received
+     * @param sack bitmap of received packets after {@code ack + 1}
+     */
+    public Packet(EventType type, Object data, long sequence, long ack, long sack) {
         this.type = type;
         this.data = data;
+        this.sequence = sequence;
+        this.ack = ack;
+        this.sack = sack;
     }
 
     /**
@@ -43,4 +68,25 @@ public class Packet implements Serializable {
         return this.data;
     }
 
+    /**
+     * @return sequence number of the packet, 0 if not sequenced
+     */
+    public long getSequence() {
+        return this.sequence;
+    }
+
+    /**
+     * @return sequence number up to which all packets were received
+     */
+    public long getAck() {
+        return this.ack;
+    }
+
+    /**
+     * @return bitmap of received packets after {@code getAck() + 1}
+     */
+    public long getSack() {
+        return this.sack;
+    }
+
 }
@@ -0,0 +1,262 @@
+package core.net.packet;
+
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Iterator;
+
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+
+import core.net.BufferPool;
+
+/**
+ * Reassembles messages from datagrams produced by {@code PacketFragmenter}.
+ * Fragments are kept in buffers of the pool as they arrive in any order,
+ * so memory of incomplete message is proportional to the received data
+ * rather than to the length claimed by its header. When the last fragment
+ * arrives they are joined into one buffer, which goes back to the pool
+ * when message is decoded. Messages that weren't completed in
+ * {@code TIMEOUT} after their first fragment are dropped, resending
+ * fragments doesn't keep them alive.
+ *
+ * Received data of incomplete messages is limited per sender to one
+ * message of maximum size and in total to {@code MAX_PENDING_MESSAGES}
+ * of them, fragments beyond the limits are rejected until some messages
+ * are completed or expire.
+ *
+ * @author ivatolm
+ */
+public class PacketAssembler {
+
+    /** Time in milliseconds after which incomplete message is dropped */
+    public static final long TIMEOUT = 5000;
+
+    /** Maximum size in bytes of incomplete messages of one sender, enough for one message of maximum size */
+    public static final long MAX_PEER_PENDING =
+        (long) (PacketFragmenter.MAX_MESSAGE_SIZE / PacketFragmenter.FRAGMENT_SIZE + 1) * PacketFragmenter.DATAGRAM_SIZE;
+
+    /** Number of incomplete messages of maximum size that can be received at once */
+    public static final int MAX_PENDING_MESSAGES = 16;
+
+    /** Maximum size in bytes of all incomplete messages */
+    public static final long MAX_PENDING = MAX_PENDING_MESSAGES * MAX_PEER_PENDING;
+
+    /** Pool of buffers of the messages */
+    private BufferPool pool;
+
+    /** Incomplete messages by sender and id */
+    private HashMap<Pair<SocketAddress, Integer>, Assembly> assemblies;
+
+    /** Size of incomplete messages by sender */
+    private HashMap<SocketAddress, Long> peerPending;
+
+    /** Size of all incomplete messages */
+    private long pending;
+
+    /** Time of the next check for expired messages */
+    private long nextExpiration;
+
+    /**
+     * Constructs new assembler.
+     *
+     * @param pool pool of buffers of the messages
+     */
+    public PacketAssembler(BufferPool pool) {
+        this.pool = pool;
+        this.assemblies = new HashMap<>();
+        this.peerPending = new HashMap<>();
+        this.pending = 0;
+        this.nextExpiration = 0;
+    }
+
+    /**
+     * Accepts received datagram.
+     *
+     * @param address sender of the datagram
+     * @param datagram received datagram
+     * @return packet if message is complete, else null
+     * @throws PacketFormatException if datagram or message is malformed
+     */
+    public Packet accept(SocketAddress address, ByteBuffer datagram) throws PacketFormatException {
+        long now = System.currentTimeMillis();
+        this.expire(now);
+
+        if (datagram.remaining() < PacketFragmenter.HEADER_SIZE) {
+            throw new PacketFormatException("Datagram is too short: " + datagram.remaining());
+        }
+
+        byte version = datagram.get();
+        if (version != PacketFragmenter.VERSION) {
+            throw new PacketFormatException("Unsupported datagram version: " + version);
+        }
+
+        int messageId = datagram.getInt();
+        int length = datagram.getInt();
+        int index = datagram.getInt();
+
+        if (length < 0 || length > PacketFragmenter.MAX_MESSAGE_SIZE) {
+            throw new PacketFormatException("Invalid length of the message: " + length);
+        }
+
+        int count = (length + PacketFragmenter.FRAGMENT_SIZE - 1) / PacketFragmenter.FRAGMENT_SIZE;
+        if (index < 0 || index >= count) {
+            throw new PacketFormatException("Invalid index of the fragment: " + index + " of " + count);
+        }
+
+        int offset = index * PacketFragmenter.FRAGMENT_SIZE;
+        int size = Math.min(PacketFragmenter.FRAGMENT_SIZE, length - offset);
+        if (datagram.remaining() != size) {
+            throw new PacketFormatException("Invalid size of the fragment: " + datagram.remaining());
+        }
+
+        // Message of one fragment is decoded in place
+        if (count == 1) {
+            return PacketCodec.decode(datagram);
+        }
+
+        Pair<SocketAddress, Integer> key = new ImmutablePair<>(address, messageId);
+        Assembly assembly = this.assemblies.get(key);
+        if (assembly != null && assembly.length != length) {
+            this.drop(key, assembly);
+            throw new PacketFormatException("Length of the message has changed.");
+        }
+
+        if (assembly != null && assembly.fragments.containsKey(index)) {
+            return null;
+        }
+
+        ByteBuffer fragment = this.pool.acquire(size);
+        long charge = fragment.capacity();
+        long peerPending = this.peerPending.getOrDefault(address, 0L);
+        if (peerPending + charge > MAX_PEER_PENDING || this.pending + charge > MAX_PENDING) {
+            this.pool.release(fragment);
+            throw new PacketFormatException("Too much data of incomplete messages, fragment is dropped.");
+        }
+
+        if (assembly == null) {
+            assembly = new Assembly(address, length, count, now);
+            this.assemblies.put(key, assembly);
+        }
+
+        fragment.put(datagram);
+        fragment.flip();
+        assembly.fragments.put(index, fragment);
+        assembly.pending += charge;
+        this.peerPending.put(address, peerPending + charge);
+        this.pending += charge;
+
+        if (assembly.fragments.size() < assembly.count) {
+            return null;
+        }
+
+        ByteBuffer data = this.pool.acquire(length);
+        for (int i = 0; i < assembly.count; i++) {
+            data.put(assembly.fragments.get(i));
+        }
+        this.drop(key, assembly);
+
+        data.flip();
+        try {
+            return PacketCodec.decode(data);
+        } finally {
+            this.pool.release(data);
+        }
+    }
+
+    /**
+     * Drops incomplete messages whose deadline has passed.
+     *
+     * @param now current time
+     */
+    private void expire(long now) {
+        if (now < this.nextExpiration || this.assemblies.isEmpty()) {
+            return;
+        }
+
+        Iterator<Assembly> iterator = this.assemblies.values().iterator();
+        while (iterator.hasNext()) {
+            Assembly assembly = iterator.next();
+            if (now > assembly.deadline) {
+                iterator.remove();
+                this.release(assembly);
+            }
+        }
+
+        this.nextExpiration = now + TIMEOUT / 2;
+    }
+
+    /**
+     * Forgets incomplete message and releases its fragments.
+     *
+     * @param key sender and id of the message
+     * @param assembly incomplete message
+     */
+    private void drop(Pair<SocketAddress, Integer> key, Assembly assembly) {
+        this.assemblies.remove(key);
+        this.release(assembly);
+    }
+
+    /**
+     * Returns fragments of removed {@code assembly} to the pool and
+     * subtracts their size from the pending data.
+     *
+     * @param assembly removed incomplete message
+     */
+    private void release(Assembly assembly) {
+        for (ByteBuffer fragment : assembly.fragments.values()) {
+            this.pool.release(fragment);
+        }
+
+        this.pending -= assembly.pending;
+        long peerPending = this.peerPending.get(assembly.address) - assembly.pending;
+        if (peerPending == 0) {
+            this.peerPending.remove(assembly.address);
+        } else {
+            this.peerPending.put(assembly.address, peerPending);
+        }
+    }
+
+    /**
+     * Incomplete message.
+     */
+    private static class Assembly {
+
+        /** Sender of the message */
+        private final SocketAddress address;
+
+        /** Length of the message */
+        private final int length;
+
+        /** Number of fragments */
+        private final int count;
+
+        /** Received fragments by their indices */
+        private final HashMap<Integer, ByteBuffer> fragments;
+
+        /** Size of buffers of received fragments */
+        private long pending;
+
+        /** Time after which the message is dropped, counted from its first fragment */
+        private final long deadline;
+
+        /**
+         * Constructs new incomplete message.
+         *
+         * @param address sender of the message
+         * @param length length of the message
+         * @param count number of fragments
+         * @param now current time
+         */
+        private Assembly(SocketAddress address, int length, int count, long now) {
+            this.address = address;
+            this.length = length;
+            this.count = count;
+            this.fragments = new HashMap<>();
+            this.pending = 0;
+            this.deadline = now + TIMEOUT;
+        }
+
+    }
+
+}
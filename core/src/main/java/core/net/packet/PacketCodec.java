@@ -0,0 +1,580 @@
+package core.net.packet;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.LinkedList;
+import java.util.List;
+
+import core.command.Command;
+import core.command.CommandType;
+import core.command.arguments.Argument;
+import core.command.arguments.BooleanArgument;
+import core.command.arguments.FloatArgument;
+import core.command.arguments.IntegerArgument;
+import core.command.arguments.LongArgument;
+import core.command.arguments.MoodArgument;
+import core.command.arguments.StringArgument;
+import core.event.Event;
+import core.event.EventType;
+import core.models.mood.Mood;
+
+/**
+ * Binary codec of the packets sent between client and server.
+ * Packet starts with version of the protocol, type of the packet and
+ * its delivery header, then its data is written as a tagged value.
+ * Integers are written as variable-length quantities, strings in UTF-8,
+ * so encoding doesn't allocate and packets are much smaller than
+ * Java-serialized ones.
+ * Supported values are events, commands with their arguments, lists,
+ * strings, numbers, booleans and moods. Values are nested at most
+ * {@code MAX_DEPTH} levels deep, so decoding a hostile packet can't
+ * exhaust the stack. Data of the packet is an event, only {@code Ack}
+ * and {@code Reset} packets carry no data.
+ *
+ * @author ivatolm
+ */
+public class PacketCodec {
+
+    /** Version of the protocol */
+    public static final byte VERSION = 2;
+
+    /** Maximum nesting of the values */
+    private static final int MAX_DEPTH = 16;
+
+    // Tags of the values
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_FALSE = 1;
+    private static final byte TAG_TRUE = 2;
+    private static final byte TAG_INTEGER = 3;
+    private static final byte TAG_LONG = 4;
+    private static final byte TAG_FLOAT = 5;
+    private static final byte TAG_STRING = 6;
+    private static final byte TAG_MOOD = 7;
+    private static final byte TAG_LIST = 8;
+    private static final byte TAG_ARGUMENT = 9;
+    private static final byte TAG_COMMAND = 10;
+    private static final byte TAG_EVENT = 11;
+
+    // Kinds of the arguments
+    private static final byte ARGUMENT_BOOLEAN = 0;
+    private static final byte ARGUMENT_FLOAT = 1;
+    private static final byte ARGUMENT_INTEGER = 2;
+    private static final byte ARGUMENT_LONG = 3;
+    private static final byte ARGUMENT_MOOD = 4;
+    private static final byte ARGUMENT_STRING = 5;
+
+    /** Cached values of the enums */
+    private static final EventType[] EVENT_TYPES = EventType.values();
+    private static final CommandType[] COMMAND_TYPES = CommandType.values();
+    private static final Mood[] MOODS = Mood.values();
+
+    /** Decoded chars of the string, reused by each thread */
+    private static final ThreadLocal<char[]> CHARS = ThreadLocal.withInitial(() -> new char[256]);
+
+    /**
+     * Encodes {@code packet} into {@code buffer} starting from its position.
+     *
+     * @param packet packet to encode
+     * @param buffer buffer to write to
+     * @throws BufferOverflowException if packet doesn't fit into the buffer
+     * @throws IllegalArgumentException if packet contains unsupported value
+     */
+    public static void encode(Packet packet, ByteBuffer buffer) {
+        buffer.put(VERSION);
+        putVarInt(buffer, packet.getType().ordinal());
+        putVarLong(buffer, packet.getSequence());
+        putVarLong(buffer, packet.getAck());
+        putVarLong(buffer, packet.getSack());
+        putValue(buffer, packet.getData());
+    }
+
+    /**
+     * Decodes packet from {@code buffer} starting from its position.
+     *
+     * @param buffer buffer to read from
+     * @return decoded packet
+     * @throws PacketFormatException if packet is malformed
+     */
+    public static Packet decode(ByteBuffer buffer) throws PacketFormatException {
+        try {
+            byte version = buffer.get();
+            if (version != VERSION) {
+                throw new PacketFormatException("Unsupported protocol version: " + version);
+            }
+
+            EventType type = getEnum(EVENT_TYPES, getVarInt(buffer));
+            long sequence = getVarLong(buffer);
+            long ack = getVarLong(buffer);
+            long sack = getVarLong(buffer);
+            Object data = getValue(buffer, 0);
+
+            if (buffer.hasRemaining()) {
+                throw new PacketFormatException("Unexpected bytes after the packet: " + buffer.remaining());
+            }
+
+            boolean dataless = type == EventType.Ack || type == EventType.Reset;
+            if (data == null ? !dataless : !(data instanceof Event)) {
+                throw new PacketFormatException("Unexpected data of " + type + " packet.");
+            }
+
+            return new Packet(type, data, sequence, ack, sack);
+        } catch (BufferUnderflowException e) {
+            throw new PacketFormatException("Packet is truncated.");
+        }
+    }
+
+    /**
+     * Encodes single {@code value} without the header of the packet.
+     * Used for passing values between handlers of the same process.
+     *
+     * @param value value to encode
+     * @param buffer buffer to write to
+     * @throws BufferOverflowException if value doesn't fit into the buffer
+     * @throws IllegalArgumentException if value is unsupported
+     */
+    public static void encodeValue(Object value, ByteBuffer buffer) {
+        putValue(buffer, value);
+    }
+
+    /**
+     * Decodes value written by {@code encodeValue}, that takes the rest of {@code buffer}.
+     *
+     * @param buffer buffer to read from
+     * @return decoded value
+     * @throws PacketFormatException if value is malformed
+     */
+    public static Object decodeValue(ByteBuffer buffer) throws PacketFormatException {
+        try {
+            Object value = getValue(buffer, 0);
+
+            if (buffer.hasRemaining()) {
+                throw new PacketFormatException("Unexpected bytes after the value: " + buffer.remaining());
+            }
+
+            return value;
+        } catch (BufferUnderflowException e) {
+            throw new PacketFormatException("Value is truncated.");
+        }
+    }
+
+    /**
+     * Writes tagged {@code value}.
+     *
+     * @param buffer buffer to write to
+     * @param value value to write
+     */
+    private static void putValue(ByteBuffer buffer, Object value) {
+        if (value == null) {
+            buffer.put(TAG_NULL);
+        } else if (value instanceof Boolean) {
+            buffer.put((Boolean) value ? TAG_TRUE : TAG_FALSE);
+        } else if (value instanceof Integer) {
+            buffer.put(TAG_INTEGER);
+            putVarLong(buffer, zigZag((Integer) value));
+        } else if (value instanceof Long) {
+            buffer.put(TAG_LONG);
+            putVarLong(buffer, zigZag((Long) value));
+        } else if (value instanceof Float) {
+            buffer.put(TAG_FLOAT);
+            buffer.putFloat((Float) value);
+        } else if (value instanceof String) {
+            buffer.put(TAG_STRING);
+            putString(buffer, (String) value);
+        } else if (value instanceof Mood) {
+            buffer.put(TAG_MOOD);
+            buffer.put((byte) ((Mood) value).ordinal());
+        } else if (value instanceof List) {
+            List<?> list = (List<?>) value;
+
+            buffer.put(TAG_LIST);
+            putVarInt(buffer, list.size());
+            for (Object item : list) {
+                putValue(buffer, item);
+            }
+        } else if (value instanceof Argument) {
+            Argument argument = (Argument) value;
+
+            buffer.put(TAG_ARGUMENT);
+            buffer.put(argumentKind(argument));
+            putValue(buffer, argument.getValue());
+        } else if (value instanceof Command) {
+            Command command = (Command) value;
+            LinkedList<Argument> args = command.getArgsValues();
+
+            buffer.put(TAG_COMMAND);
+            putVarInt(buffer, command.getType().ordinal());
+            putVarInt(buffer, args.size());
+            for (Argument argument : args) {
+                putValue(buffer, argument);
+            }
+        } else if (value instanceof Event) {
+            Event event = (Event) value;
+
+            buffer.put(TAG_EVENT);
+            putVarInt(buffer, event.getType().ordinal());
+            putValue(buffer, event.getData());
+        } else {
+            throw new IllegalArgumentException("Cannot encode value of " + value.getClass());
+        }
+    }
+
+    /**
+     * Reads tagged value.
+     *
+     * @param buffer buffer to read from
+     * @param depth number of values containing this one
+     * @return read value
+     * @throws PacketFormatException if value is malformed or nested too deep
+     */
+    private static Object getValue(ByteBuffer buffer, int depth) throws PacketFormatException {
+        if (depth > MAX_DEPTH) {
+            throw new PacketFormatException("Value is nested too deep.");
+        }
+
+        byte tag = buffer.get();
+        switch (tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_FALSE:
+                return false;
+            case TAG_TRUE:
+                return true;
+            case TAG_INTEGER:
+                return (int) unZigZag(getVarLong(buffer));
+            case TAG_LONG:
+                return unZigZag(getVarLong(buffer));
+            case TAG_FLOAT:
+                return buffer.getFloat();
+            case TAG_STRING:
+                return getString(buffer);
+            case TAG_MOOD:
+                return getEnum(MOODS, buffer.get());
+            case TAG_LIST: {
+                int size = getLength(buffer);
+
+                LinkedList<Object> list = new LinkedList<>();
+                for (int i = 0; i < size; i++) {
+                    list.add(getValue(buffer, depth + 1));
+                }
+
+                return list;
+            }
+            case TAG_ARGUMENT: {
+                Argument argument = createArgument(buffer.get());
+                argument.setValue(getValue(buffer, depth + 1));
+
+                return argument;
+            }
+            case TAG_COMMAND: {
+                CommandType type = getEnum(COMMAND_TYPES, getVarInt(buffer));
+                int size = getLength(buffer);
+
+                LinkedList<Argument> args = new LinkedList<>();
+                for (int i = 0; i < size; i++) {
+                    Object argument = getValue(buffer, depth + 1);
+                    if (!(argument instanceof Argument)) {
+                        throw new PacketFormatException("Argument of the command expected.");
+                    }
+
+                    args.add((Argument) argument);
+                }
+
+                return new Command(type, args);
+            }
+            case TAG_EVENT: {
+                EventType type = getEnum(EVENT_TYPES, getVarInt(buffer));
+
+                return new Event(type, getValue(buffer, depth + 1));
+            }
+            default:
+                throw new PacketFormatException("Unknown tag of the value: " + tag);
+        }
+    }
+
+    /**
+     * @param argument argument to encode
+     * @return kind of the argument
+     */
+    private static byte argumentKind(Argument argument) {
+        if (argument instanceof BooleanArgument) {
+            return ARGUMENT_BOOLEAN;
+        } else if (argument instanceof FloatArgument) {
+            return ARGUMENT_FLOAT;
+        } else if (argument instanceof IntegerArgument) {
+            return ARGUMENT_INTEGER;
+        } else if (argument instanceof LongArgument) {
+            return ARGUMENT_LONG;
+        } else if (argument instanceof MoodArgument) {
+            return ARGUMENT_MOOD;
+        } else if (argument instanceof StringArgument) {
+            return ARGUMENT_STRING;
+        }
+
+        throw new IllegalArgumentException("Cannot encode argument of " + argument.getClass());
+    }
+
+    /**
+     * @param kind kind of the argument
+     * @return new argument of the kind without value
+     * @throws PacketFormatException if kind is unknown
+     */
+    private static Argument createArgument(byte kind) throws PacketFormatException {
+        switch (kind) {
+            case ARGUMENT_BOOLEAN:
+                return new BooleanArgument();
+            case ARGUMENT_FLOAT:
+                return new FloatArgument();
+            case ARGUMENT_INTEGER:
+                return new IntegerArgument();
+            case ARGUMENT_LONG:
+                return new LongArgument();
+            case ARGUMENT_MOOD:
+                return new MoodArgument();
+            case ARGUMENT_STRING:
+                return new StringArgument();
+            default:
+                throw new PacketFormatException("Unknown kind of the argument: " + kind);
+        }
+    }
+
+    /**
+     * Writes length of {@code value} in UTF-8 and its bytes.
+     *
+     * @param buffer buffer to write to
+     * @param value string to write
+     */
+    private static void putString(ByteBuffer buffer, String value) {
+        int length = value.length();
+
+        // Computing size first, so string is encoded without copying
+        int size = 0;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                size += 1;
+            } else if (c < 0x800) {
+                size += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length &&
+                       Character.isLowSurrogate(value.charAt(i + 1))) {
+                size += 4;
+                i++;
+            } else {
+                size += 3;
+            }
+        }
+
+        putVarInt(buffer, size);
+        if (buffer.remaining() < size) {
+            throw new BufferOverflowException();
+        }
+
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length &&
+                       Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer.put((byte) (0xF0 | (codePoint >> 18)));
+                buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+            } else {
+                // Unpaired surrogates are written as is, like Java does in modified UTF-8
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    /**
+     * Reads string written by {@code putString}.
+     * Strings are decoded through a reused array of chars, so no
+     * intermediate array of bytes is allocated. Heap and direct buffers
+     * are decoded the same way: unpaired surrogates written by
+     * {@code putString} are restored, overlong and truncated sequences
+     * are rejected.
+     *
+     * @param buffer buffer to read from
+     * @return read string
+     * @throws PacketFormatException if string is malformed
+     */
+    private static String getString(ByteBuffer buffer) throws PacketFormatException {
+        int size = getLength(buffer);
+
+        // Every byte gives at most one char
+        char[] chars = CHARS.get();
+        if (chars.length < size) {
+            chars = new char[Math.max(size, chars.length * 2)];
+            CHARS.set(chars);
+        }
+
+        int length = 0;
+        int position = buffer.position();
+        int end = position + size;
+        while (position < end) {
+            int b = buffer.get(position++);
+            if (b >= 0) {
+                chars[length++] = (char) b;
+                continue;
+            }
+
+            int extra;
+            int codePoint;
+            int min;
+            if ((b & 0xE0) == 0xC0) {
+                extra = 1;
+                codePoint = b & 0x1F;
+                min = 0x80;
+            } else if ((b & 0xF0) == 0xE0) {
+                extra = 2;
+                codePoint = b & 0x0F;
+                min = 0x800;
+            } else if ((b & 0xF8) == 0xF0) {
+                extra = 3;
+                codePoint = b & 0x07;
+                min = 0x10000;
+            } else {
+                throw new PacketFormatException("Malformed string.");
+            }
+
+            if (position + extra > end) {
+                throw new PacketFormatException("Malformed string.");
+            }
+
+            for (int i = 0; i < extra; i++) {
+                int next = buffer.get(position++);
+                if ((next & 0xC0) != 0x80) {
+                    throw new PacketFormatException("Malformed string.");
+                }
+
+                codePoint = (codePoint << 6) | (next & 0x3F);
+            }
+
+            if (codePoint < min) {
+                throw new PacketFormatException("Malformed string.");
+            }
+
+            if (Character.isBmpCodePoint(codePoint)) {
+                chars[length++] = (char) codePoint;
+            } else if (Character.isValidCodePoint(codePoint)) {
+                chars[length++] = Character.highSurrogate(codePoint);
+                chars[length++] = Character.lowSurrogate(codePoint);
+            } else {
+                throw new PacketFormatException("Malformed string.");
+            }
+        }
+
+        buffer.position(end);
+        return new String(chars, 0, length);
+    }
+
+    /**
+     * Reads length that must fit into the rest of the buffer.
+     *
+     * @param buffer buffer to read from
+     * @return read length
+     * @throws PacketFormatException if length is invalid
+     */
+    private static int getLength(ByteBuffer buffer) throws PacketFormatException {
+        int length = getVarInt(buffer);
+        if (length < 0 || length > buffer.remaining()) {
+            throw new PacketFormatException("Invalid length: " + length);
+        }
+
+        return length;
+    }
+
+    /**
+     * @param values values of the enum
+     * @param ordinal ordinal of the value
+     * @return value of the enum with {@code ordinal}
+     * @throws PacketFormatException if there is no such value
+     */
+    private static <T> T getEnum(T[] values, int ordinal) throws PacketFormatException {
+        if (ordinal < 0 || ordinal >= values.length) {
+            throw new PacketFormatException("Unknown ordinal: " + ordinal);
+        }
+
+        return values[ordinal];
+    }
+
+    /**
+     * Writes non-negative {@code value} in 7-bit groups.
+     *
+     * @param buffer buffer to write to
+     * @param value value to write
+     */
+    private static void putVarInt(ByteBuffer buffer, int value) {
+        putVarLong(buffer, value & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Writes {@code value} as unsigned in 7-bit groups.
+     *
+     * @param buffer buffer to write to
+     * @param value value to write
+     */
+    private static void putVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+
+        buffer.put((byte) value);
+    }
+
+    /**
+     * @param buffer buffer to read from
+     * @return value written by {@code putVarInt}
+     * @throws PacketFormatException if value is too long
+     */
+    private static int getVarInt(ByteBuffer buffer) throws PacketFormatException {
+        long value = getVarLong(buffer);
+        if (value > 0xFFFFFFFFL) {
+            throw new PacketFormatException("Integer is too long.");
+        }
+
+        return (int) value;
+    }
+
+    /**
+     * @param buffer buffer to read from
+     * @return value written by {@code putVarLong}
+     * @throws PacketFormatException if value is too long
+     */
+    private static long getVarLong(ByteBuffer buffer) throws PacketFormatException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+
+        throw new PacketFormatException("Integer is too long.");
+    }
+
+    /**
+     * @param value signed value
+     * @return value with sign moved to the lowest bit
+     */
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    /**
+     * @param value value produced by {@code zigZag}
+     * @return signed value
+     */
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+}
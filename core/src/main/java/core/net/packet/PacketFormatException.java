@@ -0,0 +1,20 @@
+package core.net.packet;
+
+/**
+ * Exception representing situation of received packet being malformed
+ * or encoded by unsupported version of the protocol.
+ *
+ * @author ivatolm
+ */
+public class PacketFormatException extends Exception {
+
+    /**
+     * Constructs new instance with message of {@code message}
+     *
+     * @param message message of the exception
+     */
+    public PacketFormatException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,130 @@
+package core.net.packet;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Splits encoded packets into datagrams.
+ * Every datagram starts with a header of the fragment: version of the
+ * format, id of the message, total length of the message and index of
+ * the fragment. Number of fragments is derived from the length, so the
+ * receiving side knows when the message is complete.
+ * Buffers are reused between packets, so one instance mustn't be used
+ * by several threads.
+ *
+ * @author ivatolm
+ */
+public class PacketFragmenter {
+
+    /** Version of the datagram format */
+    static final byte VERSION = 1;
+
+    /** Size of the header of the fragment */
+    static final int HEADER_SIZE = 1 + 4 + 4 + 4;
+
+    /** Maximum size of the datagram */
+    public static final int DATAGRAM_SIZE = 16384;
+
+    /** Maximum size of the message in one fragment */
+    static final int FRAGMENT_SIZE = DATAGRAM_SIZE - HEADER_SIZE;
+
+    /** Maximum size of the encoded message, far above output pages and scripts */
+    public static final int MAX_MESSAGE_SIZE = 1024 * 1024;
+
+    /** Encoded message, preceded by the space for the header */
+    private ByteBuffer message;
+
+    /** Datagram of the current fragment */
+    private ByteBuffer datagram;
+
+    /** Id of the current message */
+    private int messageId;
+
+    /** Length of the current message */
+    private int length;
+
+    /**
+     * Constructs new fragmenter.
+     */
+    public PacketFragmenter() {
+        this.message = ByteBuffer.allocate(DATAGRAM_SIZE);
+        this.datagram = ByteBuffer.allocate(DATAGRAM_SIZE);
+        this.messageId = 0;
+        this.length = 0;
+    }
+
+    /**
+     * Encodes {@code packet} as a new message.
+     * Previously encoded message is discarded.
+     *
+     * @param packet packet to encode
+     * @return number of fragments of the message
+     * @throws BufferOverflowException if packet exceeds {@code MAX_MESSAGE_SIZE}
+     */
+    public int encode(Packet packet) {
+        while (true) {
+            this.message.clear();
+            this.message.position(HEADER_SIZE);
+
+            try {
+                PacketCodec.encode(packet, this.message);
+                break;
+            } catch (BufferOverflowException e) {
+                int capacity = this.message.capacity();
+                if (capacity - HEADER_SIZE >= MAX_MESSAGE_SIZE) {
+                    throw e;
+                }
+
+                this.message = ByteBuffer.allocate(Math.min(capacity * 2, MAX_MESSAGE_SIZE + HEADER_SIZE));
+            }
+        }
+
+        this.messageId++;
+        this.length = this.message.position() - HEADER_SIZE;
+
+        return (this.length + FRAGMENT_SIZE - 1) / FRAGMENT_SIZE;
+    }
+
+    /**
+     * Returns datagram of the fragment of the last encoded message.
+     * Returned buffer is valid until the next call.
+     *
+     * @param index index of the fragment
+     * @return buffer ready to be sent
+     */
+    public ByteBuffer fragment(int index) {
+        int offset = index * FRAGMENT_SIZE;
+        int size = Math.min(FRAGMENT_SIZE, this.length - offset);
+
+        // Single fragment is sent right from the message buffer
+        if (offset == 0 && size == this.length) {
+            ByteBuffer buffer = this.message;
+            buffer.clear();
+            this.putHeader(buffer, index);
+            buffer.position(0);
+            buffer.limit(HEADER_SIZE + size);
+            return buffer;
+        }
+
+        ByteBuffer buffer = this.datagram;
+        buffer.clear();
+        this.putHeader(buffer, index);
+        buffer.put(this.message.array(), HEADER_SIZE + offset, size);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Writes header of the fragment.
+     *
+     * @param buffer buffer to write to
+     * @param index index of the fragment
+     */
+    private void putHeader(ByteBuffer buffer, int index) {
+        buffer.put(VERSION);
+        buffer.putInt(this.messageId);
+        buffer.putInt(this.length);
+        buffer.putInt(index);
+    }
+
+}
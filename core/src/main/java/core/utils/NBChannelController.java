@@ -1,77 +1,337 @@
 package core.utils;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.Serializable;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
+import java.nio.channels.Channel;
 import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
 import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
-import org.apache.commons.lang3.SerializationUtils;
+import core.net.packet.PacketCodec;
+import core.net.packet.PacketFormatException;
 
 /**
  * Class providing static methods for reading and writing
  * objects to non-blocking channels.
+ * Every object is framed by 4-byte big-endian length and encoded with
+ * {@code PacketCodec}. Buffers are kept for each channel and reused,
+ * buffers grown for a large object are shrunk back after it.
+ * State of the channel is forgotten when it's found closed.
+ * Object that isn't fully received yet is left in the buffer of the
+ * channel until the next read, so the caller returns to the selector
+ * instead of waiting for the rest. Object that doesn't fit into the
+ * non-blocking channel is queued and written by {@code flush}.
  *
  * @author ivatolm
  */
 public class NBChannelController {
 
     // Length of field representing size of the object
-    private static final int LENGTH_FIELD_SIZE = SerializationUtils.serialize(42).length;
+    private static final int LENGTH_FIELD_SIZE = 4;
+
+    // Initial size of the buffer of the channel
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+
+    // Maximum size of the encoded object
+    private static final int MAX_OBJECT_SIZE = 64 * 1024 * 1024;
+
+    // Maximum size of the buffer kept after the object
+    private static final int MAX_KEPT_BUFFER_SIZE = 64 * 1024;
+
+    // Readers by channel
+    private static final Map<ReadableByteChannel, Reader> readers = new ConcurrentHashMap<>();
+
+    // Writers by channel
+    private static final Map<WritableByteChannel, Writer> writers = new ConcurrentHashMap<>();
 
     /**
      * Reads one object from the channel and returns it.
      *
      * @param channel channel to read from
-     * @return object read from the channel
-     * @throws IOException if failed to read from channel
+     * @return object read from the channel, or null if it isn't fully received yet
+     * @throws IOException if failed to read from channel or object is malformed
      */
     public static Serializable read(ReadableByteChannel channel) throws IOException {
-        int readCnt = 0;
+        try {
+            return readers.computeIfAbsent(channel, (c) -> new Reader()).read(channel);
+        } catch (EOFException e) {
+            // Nothing will be read after the end of the stream
+            readers.remove(channel);
+            throw e;
+        } catch (IOException e) {
+            forgetIfClosed(channel);
+            throw e;
+        }
+    }
+
+    /**
+     * Writes one object to the channel. Part of the object that doesn't
+     * fit into non-blocking channel is queued until {@code flush}.
+     *
+     * @param channel channel to write to
+     * @param object object to be written
+     * @throws IOException if failed to write to channel or object cannot be encoded
+     */
+    public static void write(WritableByteChannel channel, Serializable object) throws IOException {
+        try {
+            writers.computeIfAbsent(channel, (c) -> new Writer()).write(channel, object);
+        } catch (IOException e) {
+            forgetIfClosed(channel);
+            throw e;
+        }
+    }
 
-        ByteBuffer lengthBuffer = ByteBuffer.allocate(LENGTH_FIELD_SIZE);
-        while (readCnt != LENGTH_FIELD_SIZE) {
-            readCnt += channel.read(lengthBuffer);
+    /**
+     * Writes queued objects to the channel.
+     *
+     * @param channel channel to write to
+     * @return true if nothing is left in the queue, else false
+     * @throws IOException if failed to write to channel
+     */
+    public static boolean flush(WritableByteChannel channel) throws IOException {
+        Writer writer = writers.get(channel);
+        if (writer == null) {
+            return true;
         }
 
-        int length = SerializationUtils.deserialize(lengthBuffer.array());
+        try {
+            return writer.flush(channel);
+        } catch (IOException e) {
+            forgetIfClosed(channel);
+            throw e;
+        }
+    }
 
-        readCnt = 0;
-        ByteBuffer objectBuffer = ByteBuffer.allocate(length);
-        while (readCnt != length) {
-            readCnt += channel.read(objectBuffer);
+    /**
+     * Returns channels with queued objects.
+     *
+     * @return channels waiting for {@code flush}
+     */
+    public static LinkedList<WritableByteChannel> getPendingChannels() {
+        LinkedList<WritableByteChannel> result = new LinkedList<>();
+        for (Map.Entry<WritableByteChannel, Writer> entry : writers.entrySet()) {
+            if (!entry.getKey().isOpen()) {
+                writers.remove(entry.getKey());
+            } else if (entry.getValue().hasPending()) {
+                result.add(entry.getKey());
+            }
         }
 
-        Serializable object = SerializationUtils.deserialize(objectBuffer.array());
-        return object;
+        return result;
     }
 
     /**
-     * Writes one object to the channel.
+     * Forgets buffers and queued objects of the channel if it was closed.
      *
-     * @param channel channel to write to
-     * @param object object to be written
-     * @throws IOException if failed to write to channel
+     * @param channel channel that failed
      */
-    public static void write(WritableByteChannel channel, Serializable object) throws IOException {
-        int writeCnt;
+    private static void forgetIfClosed(Channel channel) {
+        if (!channel.isOpen()) {
+            readers.remove(channel);
+            writers.remove(channel);
+        }
+    }
+
+    /**
+     * Reading state of the channel.
+     */
+    private static class Reader {
+
+        // Length of the current object
+        private ByteBuffer length = ByteBuffer.allocate(LENGTH_FIELD_SIZE);
 
-        byte[] objectBytes = SerializationUtils.serialize(object);
-        byte[] objectLengthBytes = SerializationUtils.serialize(objectBytes.length);
+        // Current object, null if its length isn't read yet
+        private ByteBuffer object = null;
 
-        writeCnt = channel.write(ByteBuffer.wrap(objectLengthBytes));
-        if (writeCnt != LENGTH_FIELD_SIZE) {
-            throw new IOException(
-                "Cannot write object to channel: " + writeCnt + " != " + LENGTH_FIELD_SIZE
-            );
+        // Buffer reused for the objects
+        private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+
+        /**
+         * Reads available part of the current object.
+         * Doesn't read beyond the object, so the rest stays in the channel.
+         *
+         * @param channel channel to read from
+         * @return object if it was fully read, else null
+         * @throws IOException if failed to read from channel or object is malformed
+         */
+        private synchronized Serializable read(ReadableByteChannel channel) throws IOException {
+            if (this.object == null) {
+                if (channel.read(this.length) < 0) {
+                    throw new EOFException("Channel was closed.");
+                }
+
+                if (this.length.hasRemaining()) {
+                    return null;
+                }
+
+                this.length.flip();
+                int size = this.length.getInt();
+                this.length.clear();
+
+                if (size <= 0 || size > MAX_OBJECT_SIZE) {
+                    throw new IOException("Invalid length of the object: " + size);
+                }
+
+                if (this.buffer.capacity() < size) {
+                    this.buffer = ByteBuffer.allocate(Math.max(size, this.buffer.capacity() * 2));
+                }
+
+                this.object = this.buffer;
+                this.object.clear();
+                this.object.limit(size);
+            }
+
+            if (channel.read(this.object) < 0) {
+                throw new EOFException("Channel was closed.");
+            }
+
+            if (this.object.hasRemaining()) {
+                return null;
+            }
+
+            ByteBuffer data = this.object;
+            this.object = null;
+
+            data.flip();
+            try {
+                return (Serializable) PacketCodec.decodeValue(data);
+            } catch (PacketFormatException e) {
+                throw new IOException("Cannot decode object: " + e.getMessage());
+            } finally {
+                if (this.buffer.capacity() > MAX_KEPT_BUFFER_SIZE) {
+                    this.buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+                }
+            }
         }
 
-        writeCnt = channel.write(ByteBuffer.wrap(objectBytes));
-        if (writeCnt != objectBytes.length) {
-            throw new IOException(
-                "Cannot write object to channel: " + writeCnt + " != " + objectBytes.length
-            );
+    }
+
+    /**
+     * Writing state of the channel.
+     */
+    private static class Writer {
+
+        // Buffer reused for encoding the objects
+        private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+
+        // Parts of the objects that didn't fit into the channel
+        private ArrayDeque<ByteBuffer> pending = new ArrayDeque<>();
+
+        /**
+         * Writes {@code object}, queueing the part that didn't fit.
+         *
+         * @param channel channel to write to
+         * @param object object to be written
+         * @throws IOException if failed to write to channel or object cannot be encoded
+         */
+        private synchronized void write(WritableByteChannel channel, Serializable object) throws IOException {
+            try {
+                this.write(channel, this.encode(object));
+            } finally {
+                if (this.buffer.capacity() > MAX_KEPT_BUFFER_SIZE) {
+                    this.buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+                }
+            }
         }
+
+        /**
+         * Writes encoded {@code frame}, queueing the part that didn't fit.
+         *
+         * @param channel channel to write to
+         * @param frame encoded object with its length
+         * @throws IOException if failed to write to channel
+         */
+        private void write(WritableByteChannel channel, ByteBuffer frame) throws IOException {
+            // Blocking channel accepts the whole object
+            if (channel instanceof SelectableChannel && ((SelectableChannel) channel).isBlocking()) {
+                while (frame.hasRemaining()) {
+                    channel.write(frame);
+                }
+
+                return;
+            }
+
+            // Objects are written in order, so the new one waits for the queued ones
+            if (this.pending.isEmpty()) {
+                channel.write(frame);
+            }
+
+            if (frame.hasRemaining()) {
+                ByteBuffer rest = ByteBuffer.allocate(frame.remaining());
+                rest.put(frame);
+                rest.flip();
+
+                this.pending.add(rest);
+            }
+        }
+
+        /**
+         * Writes queued parts of the objects while channel accepts them.
+         *
+         * @param channel channel to write to
+         * @return true if nothing is left in the queue, else false
+         * @throws IOException if failed to write to channel
+         */
+        private synchronized boolean flush(WritableByteChannel channel) throws IOException {
+            while (!this.pending.isEmpty()) {
+                ByteBuffer rest = this.pending.peek();
+                channel.write(rest);
+                if (rest.hasRemaining()) {
+                    return false;
+                }
+
+                this.pending.poll();
+            }
+
+            return true;
+        }
+
+        /**
+         * @return true if there are queued parts of the objects, else false
+         */
+        private synchronized boolean hasPending() {
+            return !this.pending.isEmpty();
+        }
+
+        /**
+         * Encodes {@code object} with its length into the reused buffer.
+         *
+         * @param object object to encode
+         * @return buffer ready to be written
+         * @throws IOException if object cannot be encoded
+         */
+        private ByteBuffer encode(Serializable object) throws IOException {
+            while (true) {
+                this.buffer.clear();
+                this.buffer.position(LENGTH_FIELD_SIZE);
+
+                try {
+                    PacketCodec.encodeValue(object, this.buffer);
+                    break;
+                } catch (BufferOverflowException e) {
+                    int capacity = this.buffer.capacity();
+                    if (capacity - LENGTH_FIELD_SIZE >= MAX_OBJECT_SIZE) {
+                        throw new IOException("Object is too large.");
+                    }
+
+                    this.buffer = ByteBuffer.allocate(Math.min(capacity * 2, MAX_OBJECT_SIZE + LENGTH_FIELD_SIZE));
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Cannot encode object: " + e.getMessage());
+                }
+            }
+
+            this.buffer.flip();
+            this.buffer.putInt(0, this.buffer.limit() - LENGTH_FIELD_SIZE);
+            return this.buffer;
+        }
+
     }
 
 }
@@ -0,0 +1,239 @@
+package core.utils;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+
+/**
+ * Hashed timing wheel of deadlines of keys.
+ * Time is divided into ticks, each deadline is kept in the slot of its
+ * tick modulo number of slots. Postponing deadline only updates the
+ * entry, it's moved to the right slot when its current slot is reached,
+ * so touching key on every packet takes constant time. Deadlines are
+ * expired in batches by the owner's loop, key expires not earlier than
+ * its deadline and at most one tick later. Wheel is not thread-safe.
+ *
+ * @author ivatolm
+ */
+public class TimerWheel<K> {
+
+    /** Duration of the tick in milliseconds */
+    private long tickDuration;
+
+    /** First entries of the slots */
+    private Entry<K>[] slots;
+
+    /** Entries by their keys */
+    private HashMap<K, Entry<K>> entries;
+
+    /** Next tick to be processed */
+    private long tick;
+
+    /**
+     * Constructs new empty wheel.
+     *
+     * @param tickDuration duration of the tick in milliseconds
+     * @param size number of slots
+     * @param now current time in milliseconds
+     */
+    public TimerWheel(long tickDuration, int size, long now) {
+        @SuppressWarnings("unchecked")
+        Entry<K>[] slots = (Entry<K>[]) new Entry<?>[size];
+
+        this.tickDuration = tickDuration;
+        this.slots = slots;
+        this.entries = new HashMap<>();
+        this.tick = now / tickDuration;
+    }
+
+    /**
+     * Sets deadline of {@code key} to {@code delay} after {@code now}.
+     * Key is added if it isn't in the wheel.
+     *
+     * @param key key to touch
+     * @param delay time in milliseconds until expiration
+     * @param now current time in milliseconds
+     */
+    public void touch(K key, long delay, long now) {
+        long deadline = this.tickOf(now + delay);
+
+        Entry<K> entry = this.entries.get(key);
+        if (entry == null) {
+            entry = new Entry<>(key, deadline);
+            this.entries.put(key, entry);
+            this.link(entry, Math.max(deadline, this.tick));
+            return;
+        }
+
+        // Earlier deadline might be missed in the current slot
+        if (deadline < entry.deadline) {
+            this.unlink(entry);
+            this.link(entry, Math.max(deadline, this.tick));
+        }
+
+        entry.deadline = deadline;
+    }
+
+    /**
+     * Removes {@code key} from the wheel.
+     *
+     * @param key key to remove
+     * @return true if key was in the wheel, else false
+     */
+    public boolean remove(K key) {
+        Entry<K> entry = this.entries.remove(key);
+        if (entry == null) {
+            return false;
+        }
+
+        this.unlink(entry);
+        return true;
+    }
+
+    /**
+     * Removes keys whose deadlines have passed.
+     *
+     * @param now current time in milliseconds
+     * @return expired keys
+     */
+    public LinkedList<K> expire(long now) {
+        LinkedList<K> result = new LinkedList<>();
+
+        long last = now / this.tickDuration;
+
+        // Every slot is visited once if several rounds were missed
+        if (last - this.tick >= this.slots.length) {
+            this.tick = last - this.slots.length + 1;
+        }
+
+        for (; this.tick <= last; this.tick++) {
+            int index = this.indexOf(this.tick);
+            Entry<K> entry = this.slots[index];
+            this.slots[index] = null;
+
+            while (entry != null) {
+                Entry<K> next = entry.next;
+                entry.prev = null;
+                entry.next = null;
+
+                if (entry.deadline <= last) {
+                    this.entries.remove(entry.key);
+                    result.add(entry.key);
+                } else {
+                    this.link(entry, entry.deadline);
+                }
+
+                entry = next;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns time until the next tick if there are keys in the wheel.
+     *
+     * @param now current time in milliseconds
+     * @return time in milliseconds until {@code expire} is due, 0 if wheel is empty
+     */
+    public long getTimeout(long now) {
+        if (this.entries.isEmpty()) {
+            return 0;
+        }
+
+        return Math.max(1, this.tick * this.tickDuration - now);
+    }
+
+    /**
+     * @return number of keys in the wheel
+     */
+    public int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * @param time time in milliseconds
+     * @return first tick not earlier than {@code time}
+     */
+    private long tickOf(long time) {
+        return (time + this.tickDuration - 1) / this.tickDuration;
+    }
+
+    /**
+     * @param tick tick
+     * @return index of the slot of {@code tick}
+     */
+    private int indexOf(long tick) {
+        return (int) (tick % this.slots.length);
+    }
+
+    /**
+     * Inserts {@code entry} into the slot of {@code tick}.
+     *
+     * @param entry entry to insert
+     * @param tick tick of the slot
+     */
+    private void link(Entry<K> entry, long tick) {
+        int index = this.indexOf(tick);
+
+        entry.slot = index;
+        entry.prev = null;
+        entry.next = this.slots[index];
+        if (entry.next != null) {
+            entry.next.prev = entry;
+        }
+
+        this.slots[index] = entry;
+    }
+
+    /**
+     * Removes {@code entry} from its slot.
+     *
+     * @param entry entry to remove
+     */
+    private void unlink(Entry<K> entry) {
+        if (entry.prev != null) {
+            entry.prev.next = entry.next;
+        } else if (this.slots[entry.slot] == entry) {
+            this.slots[entry.slot] = entry.next;
+        }
+
+        if (entry.next != null) {
+            entry.next.prev = entry.prev;
+        }
+
+        entry.prev = null;
+        entry.next = null;
+    }
+
+    /**
+     * Deadline of the key.
+     */
+    private static class Entry<K> {
+
+        /** Key of the entry */
+        private final K key;
+
+        /** Tick of the deadline */
+        private long deadline;
+
+        /** Index of the slot containing entry */
+        private int slot;
+
+        /** Neighbours in the slot */
+        private Entry<K> prev;
+        private Entry<K> next;
+
+        /**
+         * Constructs new entry.
+         *
+         * @param key key of the entry
+         * @param deadline tick of the deadline
+         */
+        private Entry(K key, long deadline) {
+            this.key = key;
+            this.deadline = deadline;
+        }
+
+    }
+
+}
@@ -0,0 +1,93 @@
+package core.net;
+
+import java.net.SocketAddress;
+import java.nio.channels.SelectableChannel;
+import java.util.Random;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+import core.net.packet.Packet;
+
+/**
+ * Communicator dropping a share of packets sent by another communicator.
+ * Simulates lossy network for checking delivery over local connections.
+ *
+ * @author ivatolm
+ */
+public class LossyCom implements Com {
+
+    /** Communicator sending the packets */
+    private Com com;
+
+    /** Probability of the packet being dropped */
+    private double loss;
+
+    /** Source of randomness */
+    private Random random;
+
+    /**
+     * Constructs new {@code LossyCom} over {@code com}.
+     *
+     * @param com communicator sending the packets
+     * @param loss probability of the packet being dropped
+     * @param random source of randomness
+     */
+    public LossyCom(Com com, double loss, Random random) {
+        this.com = com;
+        this.loss = loss;
+        this.random = random;
+    }
+
+    /**
+     * Implements {@code isAlive} method of {@code Com}.
+     */
+    @Override
+    public boolean isAlive() {
+        return this.com.isAlive();
+    }
+
+    /**
+     * Implements {@code send} method of {@code Com}.
+     */
+    @Override
+    public void send(Packet packet, SocketAddress address) {
+        if (this.random.nextDouble() < this.loss) {
+            return;
+        }
+
+        this.com.send(packet, address);
+    }
+
+    /**
+     * Implements {@code receive} method of {@code Com}.
+     */
+    @Override
+    public Pair<SocketAddress, Packet> receive() {
+        return this.com.receive();
+    }
+
+    /**
+     * Implements {@code tick} method of {@code Com}.
+     */
+    @Override
+    public long tick() {
+        return this.com.tick();
+    }
+
+    /**
+     * Implements {@code forget} method of {@code Com}.
+     */
+    @Override
+    public void forget(SocketAddress address) {
+        this.com.forget(address);
+    }
+
+    /**
+     * Implements {@code getChannel} method of {@code Com}.
+     */
+    @Override
+    public SelectableChannel getChannel() {
+        return this.com.getChannel();
+    }
+
+}
@@ -0,0 +1,168 @@
+package core.net;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.channels.SelectableChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Test;
+
+import core.event.Event;
+import core.event.EventType;
+import core.net.packet.Packet;
+
+/**
+ * Tests of delivery of {@code ReliableCom} over in-memory communicators.
+ *
+ * @author ivatolm
+ */
+public class ReliableComTest {
+
+    private static final SocketAddress CLIENT = new InetSocketAddress("127.0.0.1", 1);
+    private static final SocketAddress SERVER = new InetSocketAddress("127.0.0.1", 2);
+
+    /**
+     * Communicator passing packets to the queue of its peer.
+     */
+    private static class QueueCom implements Com {
+
+        /** Address of this end */
+        private final SocketAddress address;
+
+        /** Other end */
+        private QueueCom peer;
+
+        /** Received packets */
+        private final ArrayDeque<Pair<SocketAddress, Packet>> inbox = new ArrayDeque<>();
+
+        private QueueCom(SocketAddress address) {
+            this.address = address;
+        }
+
+        private static QueueCom[] pair() {
+            QueueCom client = new QueueCom(CLIENT);
+            QueueCom server = new QueueCom(SERVER);
+            client.peer = server;
+            server.peer = client;
+            return new QueueCom[] { client, server };
+        }
+
+        @Override
+        public boolean isAlive() {
+            return true;
+        }
+
+        @Override
+        public void send(Packet packet, SocketAddress address) {
+            this.peer.inbox.add(new ImmutablePair<>(this.address, packet));
+        }
+
+        @Override
+        public Pair<SocketAddress, Packet> receive() {
+            return this.inbox.poll();
+        }
+
+        @Override
+        public SelectableChannel getChannel() {
+            return null;
+        }
+
+    }
+
+    private static Packet packet(int number) {
+        return new Packet(EventType.NewCommands, new Event(EventType.NewCommands, number));
+    }
+
+    private static int number(Pair<SocketAddress, Packet> data) {
+        return (Integer) ((Event) data.getValue().getData()).getData();
+    }
+
+    /**
+     * Receives everything queued for {@code com}.
+     */
+    private static void drain(ReliableCom com, QueueCom raw, ArrayList<Integer> delivered) {
+        Pair<SocketAddress, Packet> data;
+        do {
+            data = com.receive();
+            if (data != null) {
+                delivered.add(number(data));
+            }
+        } while (data != null || !raw.inbox.isEmpty());
+    }
+
+    @Test
+    public void deliversEverythingInOrderUnderLoss() throws InterruptedException {
+        int count = 5000;
+        double loss = 0.05;
+
+        QueueCom[] raw = QueueCom.pair();
+        ReliableCom client = new ReliableCom(new LossyCom(raw[0], loss, new Random(1)), SERVER);
+        ReliableCom server = new ReliableCom(new LossyCom(raw[1], loss, new Random(2)));
+
+        ArrayList<Integer> delivered = new ArrayList<>();
+        ArrayList<Integer> replies = new ArrayList<>();
+
+        long start = System.currentTimeMillis();
+        int sent = 0;
+        while (delivered.size() < count && System.currentTimeMillis() - start < 30000) {
+            while (sent < count && sent - delivered.size() < 256) {
+                client.send(packet(sent++), null);
+            }
+
+            drain(server, raw[1], delivered);
+            drain(client, raw[0], replies);
+
+            if (raw[0].inbox.isEmpty() && raw[1].inbox.isEmpty()) {
+                client.tick();
+                server.tick();
+                Thread.sleep(1);
+            }
+        }
+        long duration = System.currentTimeMillis() - start;
+
+        assertEquals(count, delivered.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(i, (int) delivered.get(i));
+        }
+
+        // Loss costs retransmission timeouts, but not a stall of the window
+        assertTrue("Delivery took " + duration + " ms", duration < 20000);
+    }
+
+    @Test
+    public void resetEpochIsNotStartedByDelayedFirstPacket() {
+        QueueCom[] raw = QueueCom.pair();
+        ReliableCom client = new ReliableCom(raw[0], SERVER);
+        ReliableCom server = new ReliableCom(raw[1]);
+
+        client.send(packet(1), null);
+        client.send(packet(2), null);
+
+        // Second packet overtakes the first one, server doesn't know the epoch and resets it
+        Pair<SocketAddress, Packet> first = raw[1].inbox.poll();
+        ArrayList<Integer> delivered = new ArrayList<>();
+        drain(server, raw[1], delivered);
+        assertEquals(0, delivered.size());
+
+        // Client renumbers both packets in a new epoch, then the first one of the old epoch arrives
+        drain(client, raw[0], new ArrayList<>());
+        raw[1].inbox.addFirst(first);
+
+        for (int i = 0; i < 4; i++) {
+            drain(server, raw[1], delivered);
+            drain(client, raw[0], new ArrayList<>());
+        }
+
+        assertEquals(2, delivered.size());
+        assertEquals(1, (int) delivered.get(0));
+        assertEquals(2, (int) delivered.get(1));
+    }
+
+}
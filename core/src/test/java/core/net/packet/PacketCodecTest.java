@@ -0,0 +1,89 @@
+package core.net.packet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedList;
+
+import org.junit.Test;
+
+import core.event.Event;
+import core.event.EventType;
+
+/**
+ * Tests of {@code PacketCodec} against malformed packets.
+ *
+ * @author ivatolm
+ */
+public class PacketCodecTest {
+
+    /**
+     * Writes header of the packet of {@code type} without its data.
+     */
+    private static ByteBuffer header(EventType type, int capacity) {
+        ByteBuffer buffer = ByteBuffer.allocate(capacity);
+        buffer.put(PacketCodec.VERSION);
+        buffer.put((byte) type.ordinal());
+        buffer.put((byte) 0).put((byte) 0).put((byte) 0);
+        return buffer;
+    }
+
+    private static void assertMalformed(ByteBuffer buffer) {
+        buffer.flip();
+        try {
+            PacketCodec.decode(buffer);
+            fail("Malformed packet was decoded.");
+        } catch (PacketFormatException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void deeplyNestedListIsRejected() {
+        int depth = 200000;
+        ByteBuffer buffer = header(EventType.NewCommands, 2 * depth + 16);
+        buffer.put((byte) 11).put((byte) EventType.NewCommands.ordinal());
+        for (int i = 0; i < depth; i++) {
+            buffer.put((byte) 8).put((byte) 1);
+        }
+        buffer.put((byte) 0);
+
+        assertMalformed(buffer);
+    }
+
+    @Test
+    public void dataOtherThanEventIsRejected() {
+        ByteBuffer buffer = header(EventType.Ping, 16);
+        buffer.put((byte) 6).put((byte) 1).put((byte) 'x');
+
+        assertMalformed(buffer);
+    }
+
+    @Test
+    public void missingDataIsRejected() {
+        ByteBuffer buffer = header(EventType.Ping, 16);
+        buffer.put((byte) 0);
+
+        assertMalformed(buffer);
+    }
+
+    @Test
+    public void eventRoundTrips() throws PacketFormatException {
+        LinkedList<String> data = new LinkedList<>();
+        data.add("строка");
+
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        PacketCodec.encode(new Packet(EventType.OutputResponse, new Event(EventType.OutputResponse, data)), buffer);
+        buffer.flip();
+
+        Packet packet = PacketCodec.decode(buffer);
+        assertEquals(data, ((Event) packet.getData()).getData());
+
+        buffer.clear();
+        PacketCodec.encode(new Packet(EventType.Ack, null, 0, 5, 0), buffer);
+        buffer.flip();
+        assertEquals(5, PacketCodec.decode(buffer).getAck());
+    }
+
+}
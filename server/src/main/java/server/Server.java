@@ -3,23 +3,36 @@ package server;
 import java.io.IOException;
 import java.nio.channels.Pipe;
 import java.nio.channels.SelectableChannel;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.LinkedList;
 
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 
+import core.database.DataBase;
+import core.event.EventQueue;
 import core.handler.ChannelType;
 import core.handler.InputHandler;
 import core.models.humanBeing.HumanBeing;
 import core.net.Com;
+import core.net.ReliableCom;
+import server.database.BinaryDatabase;
 import server.database.CSVDatabase;
+import server.database.WALDatabase;
 import server.handler.ServerComHandler;
 import server.handler.ServerEventHandler;
 import server.handler.ServerShellHandler;
 import server.handler.ServerSocketHandler;
+import server.interpreter.CheckpointScheduler;
+import server.interpreter.CollectionStore;
+import server.interpreter.IdGenerator;
 import server.interpreter.Interpreter;
+import server.net.DatagramDispatcher;
 import server.net.ServerComUDP;
 import server.runner.Runner;
+import server.runner.WorkerPool;
 
 /**
  * Program for running server application.
@@ -30,6 +43,16 @@ import server.runner.Runner;
  * - sending output to the client.
  * Takes three mandatory input arguments:
  *  filename of the database, ip and port of the server.
+ * Collection store can be selected with {@code -Dcollection=array|indexed|linked}.
+ * Database mode can be selected with {@code -Ddatabase.mode=csv|wal|binary}, in wal mode
+ * log is compacted after {@code -Ddatabase.wal.compaction} records (1000 by default).
+ * Collection is saved every {@code -Dcheckpoint.interval} seconds (60 by default)
+ * and after {@code -Dcheckpoint.mutations} changes (1000 by default), 0 disables them.
+ * Commands are executed by {@code -Dserver.workers} threads (number of processors, at least 4, by default).
+ * Clients are served by {@code -Dserver.reactors} event loops (1 by default), each with its own socket
+ * bound to the same port, or with datagrams dispatched by client's address if port can't be shared.
+ * Files of {@code import} command are read from {@code -Dimport.dir} (directory of the database by default).
+ * Ids given out to new elements are reserved in the file named as database with {@code .id} suffix.
  *
  * @author ivatolm
  */
@@ -61,28 +84,115 @@ public class Server
             return;
         }
 
-        CSVDatabase<HumanBeing> database = new CSVDatabase<>(databaseFilename);
-        Interpreter interpreter = new Interpreter(database);
-        Runner runner = new Runner(interpreter);
+        CollectionStore collection;
+        try {
+            collection = CollectionStore.create(System.getProperty("collection", "array"));
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return;
+        }
+
+        DataBase<HumanBeing> database;
+        switch (System.getProperty("database.mode", "csv")) {
+            case "csv":
+                database = new CSVDatabase<>(databaseFilename);
+                break;
+            case "wal":
+                try {
+                    int compaction = Integer.parseInt(System.getProperty("database.wal.compaction", "1000"));
+                    database = new WALDatabase<>(databaseFilename, compaction);
+                } catch (NumberFormatException e) {
+                    System.err.println("Cannot parse log compaction threshold: " + e.getMessage());
+                    return;
+                }
+                break;
+            case "binary":
+                database = new BinaryDatabase(databaseFilename);
+                break;
+            default:
+                System.err.println("Unknown database mode: " + System.getProperty("database.mode"));
+                return;
+        }
+
+        Path importDirectory;
+        try {
+            Path databaseDirectory = Paths.get(databaseFilename).toAbsolutePath().getParent();
+            importDirectory = Paths.get(System.getProperty("import.dir", databaseDirectory.toString()));
+        } catch (InvalidPathException e) {
+            System.err.println("Cannot parse import directory: " + e.getMessage());
+            return;
+        }
 
-        Com com;
+        IdGenerator idGenerator = new IdGenerator(Paths.get(databaseFilename + ".id"));
+
+        Interpreter interpreter = new Interpreter(database, collection, importDirectory, idGenerator);
+
+        WorkerPool workerPool;
         try {
-            com = new ServerComUDP(ip, port);
+            // Long commands shouldn't occupy all workers even on a single processor
+            int defaultWorkers = Math.max(4, Runtime.getRuntime().availableProcessors());
+            int workers = Integer.parseInt(System.getProperty("server.workers", "" + defaultWorkers));
+            workerPool = new WorkerPool(Math.max(1, workers));
+        } catch (NumberFormatException e) {
+            System.err.println("Cannot parse number of workers: " + e.getMessage());
+            return;
+        }
+
+        CheckpointScheduler checkpointScheduler;
+        try {
+            long interval = Long.parseLong(System.getProperty("checkpoint.interval", "60"));
+            int mutations = Integer.parseInt(System.getProperty("checkpoint.mutations", "1000"));
+            checkpointScheduler = new CheckpointScheduler(interpreter, interval * 1000, mutations);
+        } catch (NumberFormatException e) {
+            System.err.println("Cannot parse checkpoint settings: " + e.getMessage());
+            return;
+        }
+
+        int reactors;
+        try {
+            reactors = Math.max(1, Integer.parseInt(System.getProperty("server.reactors", "1")));
+        } catch (NumberFormatException e) {
+            System.err.println("Cannot parse number of reactors: " + e.getMessage());
+            return;
+        }
+
+        // Each event loop gets its own socket, or its share of datagrams of a single socket
+        LinkedList<Com> coms = new LinkedList<>();
+        DatagramDispatcher dispatcher = null;
+        try {
+            if (reactors == 1) {
+                coms.add(new ServerComUDP(ip, port));
+            } else if (ServerComUDP.isReusePortSupported()) {
+                for (int i = 0; i < reactors; i++) {
+                    coms.add(new ServerComUDP(ip, port, true));
+                }
+            } else {
+                dispatcher = new DatagramDispatcher(ip, port, reactors);
+                for (int i = 0; i < reactors; i++) {
+                    coms.add(dispatcher.getCom(i));
+                }
+            }
         } catch (IOException e) {
             System.err.println("Cannot create socket: " + e);
             return;
         }
 
-        Pipe input_shell, shell_com, com_shell;
+        for (int i = 0; i < coms.size(); i++) {
+            coms.set(i, new ReliableCom(coms.get(i)));
+        }
+
+        // Input is written by another thread, so it's passed through a pipe
+        Pipe input_shell;
         try {
             input_shell = Pipe.open();
-            shell_com = Pipe.open();
-            com_shell = Pipe.open();
         } catch (IOException e) {
             System.err.println("Cannot open pipe: " + e);
             return;
         }
 
+        EventQueue shell_com = EventQueue.open();
+        EventQueue com_shell = EventQueue.open();
+
         InputHandler inputHandler = new InputHandler(
             input_shell.sink()
         );
@@ -104,39 +214,82 @@ public class Server
             new LinkedList<Pair<ChannelType, SelectableChannel>>() {{
                 add(new ImmutablePair<>(ChannelType.Shell, com_shell.sink()));
             }},
-            runner,
+            new Runner(interpreter),
+            workerPool,
             ChannelType.Shell
         );
 
-        ServerSocketHandler socketHandler;
-        try {
-            socketHandler = new ServerSocketHandler(
-                new LinkedList<Pair<ChannelType, SelectableChannel>>() {{
+        LinkedList<ServerEventHandler> eventHandlers = new LinkedList<>();
+        for (Com com : coms) {
+            ServerSocketHandler socketHandler;
+            try {
+                socketHandler = new ServerSocketHandler(
+                    new LinkedList<Pair<ChannelType, SelectableChannel>>() {{
 
-                }},
-                new LinkedList<Pair<ChannelType, SelectableChannel>>() {{
+                    }},
+                    new LinkedList<Pair<ChannelType, SelectableChannel>>() {{
 
-                }},
-                com
-            );
-        } catch (IOException e) {
-            System.err.println("Cannot create socket handler: " + e);
-            return;
-        }
+                    }},
+                    com
+                );
+            } catch (IOException e) {
+                System.err.println("Cannot create socket handler: " + e);
+                return;
+            }
 
-        ServerEventHandler eventHandler = null;
-        try {
-            eventHandler = new ServerEventHandler(shellHandler, shellComHandler, socketHandler, runner);
-        } catch (IOException e) {
-            System.err.println("Error occured while starting event handler: " + e);
-            return;
+            try {
+                if (eventHandlers.isEmpty()) {
+                    eventHandlers.add(new ServerEventHandler(shellHandler, shellComHandler, socketHandler, interpreter,
+                                                             workerPool, checkpointScheduler));
+                } else {
+                    eventHandlers.add(new ServerEventHandler(socketHandler, interpreter,
+                                                             workerPool.share(), checkpointScheduler));
+                }
+            } catch (IOException e) {
+                System.err.println("Error occured while starting event handler: " + e);
+                return;
+            }
         }
 
         Thread inputHandlerThread = new Thread(inputHandler);
         inputHandlerThread.start();
 
-        eventHandler.run();
+        if (dispatcher != null) {
+            Thread dispatcherThread = new Thread(dispatcher, "dispatcher");
+            dispatcherThread.setDaemon(true);
+            dispatcherThread.start();
+        }
+
+        // Event loop exiting by itself wakes up the others, so they notice that interpreter has stopped
+        LinkedList<Thread> reactorThreads = new LinkedList<>();
+        for (int i = 1; i < eventHandlers.size(); i++) {
+            ServerEventHandler eventHandler = eventHandlers.get(i);
+            Thread reactorThread = new Thread(() -> {
+                eventHandler.run();
+                eventHandlers.forEach(ServerEventHandler::wakeup);
+            }, "reactor-" + i);
+
+            reactorThreads.add(reactorThread);
+            reactorThread.start();
+        }
+
+        eventHandlers.getFirst().run();
+        eventHandlers.forEach(ServerEventHandler::wakeup);
+
+        for (Thread reactorThread : reactorThreads) {
+            try {
+                reactorThread.join();
+            } catch (InterruptedException e) {
+                System.err.println("Reactor thread failed to join.");
+            }
+        }
+
+        if (dispatcher != null) {
+            dispatcher.close();
+        }
 
+        workerPool.close();
+        interpreter.close();
         inputHandler.close();
 
         try {
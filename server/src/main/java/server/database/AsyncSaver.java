@@ -0,0 +1,173 @@
+package server.database;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import core.database.DataBase;
+import core.database.DataBaseObject;
+import core.database.StrSerializable;
+
+/**
+ * Class for writing snapshots of the data to the database in background.
+ * Snapshot is an array taken by the caller, so the data may be changed
+ * while the snapshot is being written. Only one save runs at a time.
+ *
+ * @author ivatolm
+ */
+public class AsyncSaver<T extends StrSerializable & DataBaseObject> {
+
+    /** Logger */
+    private static final Logger logger = LoggerFactory.getLogger("Database");
+
+    /** Database to write to */
+    private DataBase<T> database;
+
+    /** Background writer */
+    private ExecutorService executor;
+
+    /** Is save running? */
+    private volatile boolean inProgress;
+
+    /** Number of objects in the running save */
+    private volatile int total;
+
+    /** Number of objects written by the running save */
+    private volatile int written;
+
+    /** Duration of the last finished save in milliseconds, -1 if there was none */
+    private volatile long lastDuration = -1;
+
+    /** Was the last finished save successful? */
+    private volatile boolean lastSucceeded;
+
+    /**
+     * Constructs new instance writing to {@code database}.
+     *
+     * @param database database to write to
+     */
+    public AsyncSaver(DataBase<T> database) {
+        this.database = database;
+        this.executor = Executors.newSingleThreadExecutor((r) -> new Thread(r, "saver"));
+    }
+
+    /**
+     * Starts writing {@code snapshot} in background.
+     * Must be called from the thread recording changes to the database.
+     * {@code onFinish} is called from the background writer with the
+     * result of the save once it's finished.
+     *
+     * @param snapshot objects to write, must not be modified afterwards
+     * @param onFinish called with true if snapshot was written, else with false
+     * @return true if save was started, false if another save is running
+     */
+    public boolean save(T[] snapshot, Consumer<Boolean> onFinish) {
+        if (this.inProgress) {
+            return false;
+        }
+
+        this.database.beginWrite();
+
+        this.inProgress = true;
+        this.total = snapshot.length;
+        this.written = 0;
+
+        this.executor.execute(() -> {
+            long startTime = System.nanoTime();
+
+            boolean result = false;
+            try {
+                result = this.database.write(() -> new Iterator<T>() {
+                    private int cursor = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return this.cursor < snapshot.length;
+                    }
+
+                    @Override
+                    public T next() {
+                        if (!this.hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+
+                        AsyncSaver.this.written = this.cursor + 1;
+                        return snapshot[this.cursor++];
+                    }
+                });
+            } finally {
+                this.lastDuration = (System.nanoTime() - startTime) / 1000000;
+                this.lastSucceeded = result;
+                onFinish.accept(result);
+                this.inProgress = false;
+            }
+
+            if (result) {
+                logger.info("Saved {} objects in {} ms", snapshot.length, this.lastDuration);
+            } else {
+                logger.warn("Save of {} objects failed", snapshot.length);
+            }
+        });
+
+        return true;
+    }
+
+    /**
+     * @return true if save is running, else false
+     */
+    public boolean isInProgress() {
+        return this.inProgress;
+    }
+
+    /**
+     * @return number of objects written by the running save
+     */
+    public int getWritten() {
+        return this.written;
+    }
+
+    /**
+     * @return number of objects in the running save
+     */
+    public int getTotal() {
+        return this.total;
+    }
+
+    /**
+     * @return duration of the last finished save in milliseconds, -1 if there was none
+     */
+    public long getLastDuration() {
+        return this.lastDuration;
+    }
+
+    /**
+     * @return true if the last finished save was successful, else false
+     */
+    public boolean isLastSucceeded() {
+        return this.lastSucceeded;
+    }
+
+    /**
+     * Waits for the running save to finish and stops background writer.
+     */
+    public void close() {
+        this.executor.shutdown();
+
+        try {
+            if (this.inProgress) {
+                logger.info("Waiting for save to finish...");
+            }
+
+            this.executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            System.err.println("Interrupted while waiting for save to finish.");
+        }
+    }
+
+}
@@ -0,0 +1,559 @@
+package server.database;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedList;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import core.database.DataBase;
+import core.models.car.Car;
+import core.models.coordinates.Coordinates;
+import core.models.humanBeing.HumanBeing;
+import core.models.mood.Mood;
+
+/**
+ * Class for interacting with a binary columnar file (database).
+ * Unlike {@code CSVDatabase} values are stored in their binary form, so
+ * nothing is parsed from strings on load, and the file is memory-mapped
+ * both for reading and writing.
+ *
+ * File starts with header:
+ *  magic, version, list of attributes and number of records.
+ * Columns follow header one after another:
+ *  fixed-size values -- bitmap of null values and array of the values;
+ *  booleans, enums   -- byte per value, 0 stands for null;
+ *  strings           -- array of byte lengths (-1 for null), size and
+ *                       concatenation of UTF-8 encoded values.
+ * Nested objects are stored as presence column followed by columns
+ * of their fields. Rows are written and read in one pass each, every
+ * value is put at its own position in its column.
+ *
+ * @author ivatolm
+ */
+public class BinaryDatabase implements DataBase<HumanBeing> {
+
+    /** Magic number of the file */
+    private static final int MAGIC = 0x48424442;
+
+    /** Version of the format */
+    private static final int VERSION = 1;
+
+    /** Logger */
+    private static final Logger logger = LoggerFactory.getLogger("Database");
+
+    /**
+     * Read note in {@code DataBase} interface for explanation.
+     */
+    private HumanBeing dummyObject = null;
+
+    /** filename field */
+    private String filename;
+
+    /**
+     * Constructs new instance for working with {@code filename}.
+     *
+     * @param filename database filename
+     */
+    public BinaryDatabase(String filename) {
+        this.filename = filename;
+    }
+
+    /**
+     * Implements {@code setDummyObject} for {@code DataBase}.
+     *
+     * @param dummyObject dummy instance of class T
+     */
+    @Override
+    public void setDummyObject(HumanBeing dummyObject) {
+        this.dummyObject = dummyObject;
+    }
+
+    /**
+     * Implements {@code write} for {@code DataBase}.
+     * Computes size of the file, maps it and writes columns to temporary
+     * file, which then replaces the database file. Columns are filled
+     * row by row, so every element is visited once.
+     * Prints error if such occures, but does not throw exception.
+     *
+     * @param data data to write
+     * @return true if data was written, else false
+     */
+    @Override
+    public boolean write(Iterable<HumanBeing> data) {
+        if (this.dummyObject == null) {
+            System.err.println("Dummy object wasn't initialized.");
+            return false;
+        }
+
+        Path target = Paths.get(this.filename);
+        Path temporary = Paths.get(this.filename + CSVDatabase.TEMPORARY_SUFFIX);
+
+        long startTime = System.nanoTime();
+
+        ArrayList<HumanBeing> rows = new ArrayList<>();
+        for (HumanBeing hb : data) {
+            rows.add(hb);
+        }
+        int n = rows.size();
+
+        // Encoding strings beforehand, their size is required for the file size
+        String[] attributes = this.dummyObject.getAttributesList();
+        byte[][] encodedAttributes = new byte[attributes.length][];
+        byte[][] names = new byte[n][];
+        byte[][] soundtrackNames = new byte[n][];
+        byte[][] carNames = new byte[n][];
+        for (int i = 0; i < n; i++) {
+            HumanBeing hb = rows.get(i);
+            names[i] = encode(hb.getName());
+            soundtrackNames[i] = encode(hb.getSoundtrackName());
+            carNames[i] = encode(hb.getCar() == null ? null : hb.getCar().getName());
+        }
+
+        long size = 4 + 4 + 4 + 4;
+        for (int i = 0; i < attributes.length; i++) {
+            encodedAttributes[i] = encode(attributes[i]);
+            size += 4 + encodedAttributes[i].length;
+        }
+        size += 6 * bitmapSize(n) + (long) n * (8 + 4 + 4 + 8 + 8 + 4);
+        size += (long) n * 6;
+        size += stringColumnSize(names) + stringColumnSize(soundtrackNames) + stringColumnSize(carNames);
+
+        try (FileChannel channel = FileChannel.open(temporary,
+                                                    StandardOpenOption.CREATE,
+                                                    StandardOpenOption.READ,
+                                                    StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+
+            // Writing header
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putInt(attributes.length);
+            for (byte[] attribute : encodedAttributes) {
+                putBytes(buffer, attribute);
+            }
+            buffer.putInt(n);
+
+            // Locating columns, string columns are written right away
+            int id = skipFixed(buffer, n, 8);
+            putStrings(buffer, names);
+            int coordinates = skipBytes(buffer, n);
+            int x = skipFixed(buffer, n, 4);
+            int y = skipFixed(buffer, n, 4);
+            int creationDate = skipFixed(buffer, n, 8);
+            int realHero = skipBytes(buffer, n);
+            int hasToothpick = skipBytes(buffer, n);
+            int impactSpeed = skipFixed(buffer, n, 8);
+            putStrings(buffer, soundtrackNames);
+            int minutesOfWaiting = skipFixed(buffer, n, 4);
+            int mood = skipBytes(buffer, n);
+            int car = skipBytes(buffer, n);
+            putStrings(buffer, carNames);
+            int carCool = skipBytes(buffer, n);
+
+            // Every row is visited once and its values are put into their columns
+            for (int i = 0; i < n; i++) {
+                HumanBeing hb = rows.get(i);
+
+                putLong(buffer, id, n, i, hb.getId());
+
+                Coordinates coordinatesValue = hb.getCoordinates();
+                putBoolean(buffer, coordinates + i, coordinatesValue == null ? null : true);
+                putInt(buffer, x, n, i, coordinatesValue == null ? null : coordinatesValue.getX());
+                putFloat(buffer, y, n, i, coordinatesValue == null ? null : coordinatesValue.getY());
+
+                LocalDate creationDateValue = hb.getCreationDate();
+                putLong(buffer, creationDate, n, i, creationDateValue == null ? null : creationDateValue.toEpochDay());
+                putBoolean(buffer, realHero + i, hb.isRealHero());
+                putBoolean(buffer, hasToothpick + i, hb.getHasToothpick());
+                putLong(buffer, impactSpeed, n, i, hb.getImpactSpeed());
+                putInt(buffer, minutesOfWaiting, n, i, hb.getMinutesOfWaiting());
+
+                Mood moodValue = hb.getMood();
+                buffer.put(mood + i, (byte) (moodValue == null ? 0 : moodValue.ordinal() + 1));
+
+                Car carValue = hb.getCar();
+                putBoolean(buffer, car + i, carValue == null ? null : true);
+                putBoolean(buffer, carCool + i, carValue == null ? null : carValue.getCool());
+            }
+
+            buffer.force();
+        } catch (IOException e) {
+            System.err.println("Cannot write file: " + e);
+            return false;
+        }
+
+        try {
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Cannot write file: " + e);
+            return false;
+        }
+
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        logger.info("Wrote {} records in {} s", n, String.format("%.3f", seconds));
+
+        return true;
+    }
+
+    /**
+     * Implements {@code read} for {@code DataBase}.
+     * Maps the file and assembles objects row by row reading every
+     * column at its own position.
+     * Prints error if such occures, but does not throw exception.
+     *
+     * @return list of read objects or null if error occured
+     */
+    @Override
+    public LinkedList<HumanBeing> read() {
+        if (this.dummyObject == null) {
+            System.err.println("Dummy object wasn't initialized.");
+            return null;
+        }
+
+        long startTime = System.nanoTime();
+
+        LinkedList<HumanBeing> result = new LinkedList<>();
+
+        try (FileChannel channel = FileChannel.open(Paths.get(this.filename), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            // Verifying header
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                System.err.println("Unknown file format.");
+                return null;
+            }
+
+            String[] attributes = this.dummyObject.getAttributesList();
+            int attributesNumber = buffer.getInt();
+            if (attributesNumber != attributes.length) {
+                System.err.println("Attributes doesn't match: " +
+                                   attributesNumber + " != " + attributes.length + ".");
+                return null;
+            }
+
+            for (int i = 0; i < attributes.length; i++) {
+                String readAttribute = getString(buffer, buffer.getInt());
+                if (!attributes[i].equals(readAttribute)) {
+                    System.err.println("Attributes doesn't match: " +
+                                       "'" + attributes[i] + "'" +
+                                       " != "
+                                       + "'" + readAttribute + "'" + ".");
+                    return null;
+                }
+            }
+
+            int n = buffer.getInt();
+
+            // Locating columns
+            int id = skipFixed(buffer, n, 8);
+            int name = skipStrings(buffer, n);
+            int coordinates = skipBytes(buffer, n);
+            int x = skipFixed(buffer, n, 4);
+            int y = skipFixed(buffer, n, 4);
+            int creationDate = skipFixed(buffer, n, 8);
+            int realHero = skipBytes(buffer, n);
+            int hasToothpick = skipBytes(buffer, n);
+            int impactSpeed = skipFixed(buffer, n, 8);
+            int soundtrackName = skipStrings(buffer, n);
+            int minutesOfWaiting = skipFixed(buffer, n, 4);
+            int mood = skipBytes(buffer, n);
+            int car = skipBytes(buffer, n);
+            int carName = skipStrings(buffer, n);
+            int carCool = skipBytes(buffer, n);
+
+            // Values of string columns are read sequentially
+            ByteBuffer names = blob(buffer, name, n);
+            ByteBuffer soundtrackNames = blob(buffer, soundtrackName, n);
+            ByteBuffer carNames = blob(buffer, carName, n);
+
+            Mood[] moods = Mood.values();
+
+            for (int i = 0; i < n; i++) {
+                LinkedList<Object> args = new LinkedList<>();
+
+                args.add(isNull(buffer, id, i) ? null : buffer.getLong(id + bitmapSize(n) + 8 * i));
+
+                int nameLength = buffer.getInt(name + 4 * i);
+                args.add(nameLength < 0 ? null : getString(names, nameLength));
+
+                args.add(buffer.get(coordinates + i) == 0 ? null : new Coordinates(
+                    isNull(buffer, x, i) ? null : buffer.getInt(x + bitmapSize(n) + 4 * i),
+                    isNull(buffer, y, i) ? null : buffer.getFloat(y + bitmapSize(n) + 4 * i)
+                ));
+
+                args.add(isNull(buffer, creationDate, i) ? null :
+                         LocalDate.ofEpochDay(buffer.getLong(creationDate + bitmapSize(n) + 8 * i)));
+                args.add(getBoolean(buffer, realHero + i));
+                args.add(getBoolean(buffer, hasToothpick + i));
+                args.add(isNull(buffer, impactSpeed, i) ? null : buffer.getLong(impactSpeed + bitmapSize(n) + 8 * i));
+
+                int soundtrackNameLength = buffer.getInt(soundtrackName + 4 * i);
+                args.add(soundtrackNameLength < 0 ? null : getString(soundtrackNames, soundtrackNameLength));
+
+                args.add(isNull(buffer, minutesOfWaiting, i) ? null :
+                         buffer.getInt(minutesOfWaiting + bitmapSize(n) + 4 * i));
+
+                int moodValue = buffer.get(mood + i);
+                args.add(moodValue == 0 ? null : moods[moodValue - 1]);
+
+                int carNameLength = buffer.getInt(carName + 4 * i);
+                String carNameValue = carNameLength < 0 ? null : getString(carNames, carNameLength);
+                args.add(buffer.get(car + i) == 0 ? null : new Car(carNameValue, getBoolean(buffer, carCool + i)));
+
+                result.add(new HumanBeing(args));
+            }
+        } catch (NoSuchFileException e) {
+            System.err.println("Cannot open file.");
+            return null;
+        } catch (IOException e) {
+            System.err.println("Cannot read file: " + e);
+            return null;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            System.err.println("File is damaged.");
+            return null;
+        }
+
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        logger.info("Read {} records in {} s ({} records/s)",
+                    result.size(),
+                    String.format("%.3f", seconds),
+                    seconds > 0 ? (long) (result.size() / seconds) : result.size());
+
+        return result;
+    }
+
+    /**
+     * @param value string to encode or null
+     * @return UTF-8 bytes of the string or null
+     */
+    private static byte[] encode(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param n number of records
+     * @return size of bitmap for {@code n} records in bytes
+     */
+    private static int bitmapSize(int n) {
+        return (n + 7) / 8;
+    }
+
+    /**
+     * @param values encoded strings
+     * @return size of string column in bytes
+     */
+    private static long stringColumnSize(byte[][] values) {
+        long size = 4L * values.length + 4;
+        for (byte[] value : values) {
+            size += value == null ? 0 : value.length;
+        }
+
+        return size;
+    }
+
+    /**
+     * Writes length-prefixed {@code value}.
+     *
+     * @param buffer buffer to write to
+     * @param value bytes to write
+     */
+    private static void putBytes(ByteBuffer buffer, byte[] value) {
+        buffer.putInt(value.length);
+        buffer.put(value);
+    }
+
+    /**
+     * Marks value of the record as null or not null in bitmap of the column.
+     *
+     * @param buffer buffer to write to
+     * @param column position of the column
+     * @param i index of the record
+     * @param isNull is value null?
+     */
+    private static void setNull(ByteBuffer buffer, int column, int i, boolean isNull) {
+        int position = column + i / 8;
+        int bit = 1 << (i % 8);
+
+        int bits = buffer.get(position) & ~bit;
+        buffer.put(position, (byte) (isNull ? bits | bit : bits));
+    }
+
+    /**
+     * Writes {@code Long} value of the record into its column.
+     *
+     * @param buffer buffer to write to
+     * @param column position of the column
+     * @param n number of records
+     * @param i index of the record
+     * @param value value or null
+     */
+    private static void putLong(ByteBuffer buffer, int column, int n, int i, Long value) {
+        setNull(buffer, column, i, value == null);
+        buffer.putLong(column + bitmapSize(n) + 8 * i, value == null ? 0 : value);
+    }
+
+    /**
+     * Writes {@code Integer} value of the record into its column.
+     *
+     * @param buffer buffer to write to
+     * @param column position of the column
+     * @param n number of records
+     * @param i index of the record
+     * @param value value or null
+     */
+    private static void putInt(ByteBuffer buffer, int column, int n, int i, Integer value) {
+        setNull(buffer, column, i, value == null);
+        buffer.putInt(column + bitmapSize(n) + 4 * i, value == null ? 0 : value);
+    }
+
+    /**
+     * Writes {@code Float} value of the record into its column.
+     *
+     * @param buffer buffer to write to
+     * @param column position of the column
+     * @param n number of records
+     * @param i index of the record
+     * @param value value or null
+     */
+    private static void putFloat(ByteBuffer buffer, int column, int n, int i, Float value) {
+        setNull(buffer, column, i, value == null);
+        buffer.putFloat(column + bitmapSize(n) + 4 * i, value == null ? 0 : value);
+    }
+
+    /**
+     * @param buffer buffer to write to
+     * @param position position of the value
+     * @param value boolean value or null
+     */
+    private static void putBoolean(ByteBuffer buffer, int position, Boolean value) {
+        buffer.put(position, (byte) (value == null ? 0 : value ? 2 : 1));
+    }
+
+    /**
+     * Writes column of encoded strings.
+     *
+     * @param buffer buffer to write to
+     * @param column encoded values of the column
+     */
+    private static void putStrings(ByteBuffer buffer, byte[][] column) {
+        int size = 0;
+        for (byte[] value : column) {
+            buffer.putInt(value == null ? -1 : value.length);
+            size += value == null ? 0 : value.length;
+        }
+
+        buffer.putInt(size);
+        for (byte[] value : column) {
+            if (value != null) {
+                buffer.put(value);
+            }
+        }
+    }
+
+    /**
+     * Skips column of fixed-size values.
+     *
+     * @param buffer buffer to read from
+     * @param n number of records
+     * @param width size of a value in bytes
+     * @return position of the column
+     */
+    private static int skipFixed(ByteBuffer buffer, int n, int width) {
+        int position = buffer.position();
+        buffer.position(position + bitmapSize(n) + width * n);
+
+        return position;
+    }
+
+    /**
+     * Skips column of byte values.
+     *
+     * @param buffer buffer to read from
+     * @param n number of records
+     * @return position of the column
+     */
+    private static int skipBytes(ByteBuffer buffer, int n) {
+        int position = buffer.position();
+        buffer.position(position + n);
+
+        return position;
+    }
+
+    /**
+     * Skips column of strings.
+     *
+     * @param buffer buffer to read from
+     * @param n number of records
+     * @return position of the column
+     */
+    private static int skipStrings(ByteBuffer buffer, int n) {
+        int position = buffer.position();
+        buffer.position(position + 4 * n);
+        buffer.position(buffer.position() + 4 + buffer.getInt(buffer.position()));
+
+        return position;
+    }
+
+    /**
+     * @param buffer buffer to read from
+     * @param column position of string column
+     * @param n number of records
+     * @return view of the buffer positioned at the first value of the column
+     */
+    private static ByteBuffer blob(ByteBuffer buffer, int column, int n) {
+        ByteBuffer result = buffer.duplicate();
+        result.position(column + 4 * n + 4);
+
+        return result;
+    }
+
+    /**
+     * @param buffer buffer to read from
+     * @param column position of the column
+     * @param i index of the record
+     * @return true if value of the record is null, else false
+     */
+    private static boolean isNull(ByteBuffer buffer, int column, int i) {
+        return (buffer.get(column + i / 8) & (1 << (i % 8))) != 0;
+    }
+
+    /**
+     * @param buffer buffer to read from
+     * @param position position of the value
+     * @return boolean value or null
+     */
+    private static Boolean getBoolean(ByteBuffer buffer, int position) {
+        byte value = buffer.get(position);
+        return value == 0 ? null : value == 2;
+    }
+
+    /**
+     * Reads string of {@code length} bytes at current position.
+     *
+     * @param buffer buffer to read from
+     * @param length length of the string in bytes
+     * @return read string
+     */
+    private static String getString(ByteBuffer buffer, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}
@@ -1,5 +1,6 @@
 package server.database;
 
+import java.io.BufferedReader;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
@@ -8,11 +9,21 @@ import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.LinkedList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
 
 import com.opencsv.CSVReader;
 import com.opencsv.CSVWriter;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import core.database.DataBase;
 import core.database.DataBaseObject;
 import core.database.StrSerializable;
@@ -30,6 +41,21 @@ public class CSVDatabase<T extends StrSerializable & DataBaseObject> implements
      */
     private T dummyObject = null;
 
+    /** Size of the read buffer in chars */
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+
+    /** Number of records submitted for deserialization at once */
+    private static final int READ_BATCH_SIZE = 1 << 14;
+
+    /** Number of records deserialized without splitting the task */
+    private static final int DESERIALIZE_THRESHOLD = 1 << 10;
+
+    /** Suffix of the temporary file used while writing */
+    static final String TEMPORARY_SUFFIX = ".tmp";
+
+    /** Logger */
+    private static final Logger logger = LoggerFactory.getLogger("Database");
+
     /** filename field */
     private String filename;
 
@@ -54,22 +80,28 @@ public class CSVDatabase<T extends StrSerializable & DataBaseObject> implements
 
     /**
      * Implements {@code write} for {@code DataBase}.
-     * Serializes data via {@code StrSerializable} interface and writes it to file.
+     * Serializes data via {@code StrSerializable} interface and writes it to
+     * temporary file, which is synced to the disk and then replaces the
+     * database file, so the file is never left partially written.
      * Prints error if such occures, but does not throw exception.
      *
      * TODO: throw exception if failure occures.
      *
      * @param data data to write
+     * @return true if data was written, else false
      */
     @Override
-    public void write(LinkedList<T> data) {
+    public boolean write(Iterable<T> data) {
         if (this.dummyObject == null) {
             System.err.println("Dummy object wasn't initialized.");
-            return;
+            return false;
         }
 
+        Path target = Paths.get(this.filename);
+        Path temporary = Paths.get(this.filename + TEMPORARY_SUFFIX);
+
         try {
-            FileOutputStream fstream = new FileOutputStream(this.filename);
+            FileOutputStream fstream = new FileOutputStream(temporary.toFile());
             OutputStreamWriter istream = new OutputStreamWriter(fstream);
             CSVWriter writer = new CSVWriter(istream);
 
@@ -83,18 +115,29 @@ public class CSVDatabase<T extends StrSerializable & DataBaseObject> implements
                 writer.writeNext(serializedItem, false);
             }
 
+            // Data must reach the disk before the rename, otherwise the rename may survive a crash without it
+            writer.flush();
+            fstream.getFD().sync();
             writer.close();
+
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
         } catch (FileNotFoundException e) {
             System.err.println("Cannot open file.");
         } catch (IOException e) {
-            System.err.println("Cannot read file.");
+            System.err.println("Cannot write file: " + e);
         }
+
+        return false;
     }
 
     /**
      * Implements {@code read} for {@code DataBase}.
      * Uses reflection to create instances of class T via {@code dummyObject}.
      * Deserializes read data into them via {@code StrSerializable} interface.
+     * Records are read through a buffer in batches, every batch is deserialized
+     * in the fork-join pool while the next one is being read. Batches are
+     * joined in order, so order of the records is kept.
      * Prints error if such occures, but does not throw exception.
      *
      * TODO: throw exception if failure occures.
@@ -108,14 +151,23 @@ public class CSVDatabase<T extends StrSerializable & DataBaseObject> implements
             return null;
         }
 
+        long startTime = System.nanoTime();
+
         try {
             FileInputStream fstream = new FileInputStream(filename);
             InputStreamReader istream = new InputStreamReader(fstream);
-            CSVReader reader = new CSVReader(istream);
+            BufferedReader bstream = new BufferedReader(istream, READ_BUFFER_SIZE);
+            CSVReader reader = new CSVReader(bstream);
 
             // Verifying attributes
             String[] attributes = this.dummyObject.getAttributesList();
             String[] readAttributes = reader.readNext();
+            if (readAttributes == null) {
+                System.err.println("Attributes are missing.");
+                reader.close();
+                return null;
+            }
+
             for (int i = 0; i < Math.min(attributes.length, readAttributes.length); i++) {
                 if (!attributes[i].equals(readAttributes[i])) {
                     System.err.println("Attributes doesn't match: " +
@@ -143,32 +195,55 @@ public class CSVDatabase<T extends StrSerializable & DataBaseObject> implements
                 return null;
             }
 
-            LinkedList<T> result = new LinkedList<>();
+            // Reading records and submitting them for deserialization
+            AtomicReference<String> error = new AtomicReference<>();
+            LinkedList<DeserializeTask> tasks = new LinkedList<>();
 
-            // Reading records
-            try {
-                String[] record;
-                while ((record = reader.readNext()) != null) {
-                    // Using reflection to create new instace of database object
-                    @SuppressWarnings("unchecked")
-                    T t = (T) constructor.newInstance();
-                    t.deserialize(record);
+            String[][] batch = new String[READ_BATCH_SIZE][];
+            int batchSize = 0;
 
-                    result.add(t);
+            String[] record;
+            while ((record = reader.readNext()) != null) {
+                batch[batchSize++] = record;
+
+                if (batchSize == READ_BATCH_SIZE) {
+                    tasks.add(this.submit(constructor, batch, batchSize, error));
+                    batch = new String[READ_BATCH_SIZE][];
+                    batchSize = 0;
                 }
-            } catch (InstantiationException | IllegalAccessException |
-                     IllegalArgumentException | InvocationTargetException e) {
-                System.err.println("Cannot create an instance of database object.");
-                reader.close();
-                return null;
-            } catch (SimpleParseException e) {
-                System.err.println("Cannot parse record.");
-                reader.close();
-                return null;
+            }
+
+            if (batchSize > 0) {
+                tasks.add(this.submit(constructor, batch, batchSize, error));
             }
 
             reader.close();
 
+            for (DeserializeTask task : tasks) {
+                task.join();
+            }
+
+            if (error.get() != null) {
+                System.err.println(error.get());
+                return null;
+            }
+
+            // Collecting records in order
+            LinkedList<T> result = new LinkedList<>();
+            for (DeserializeTask task : tasks) {
+                for (Object item : task.result) {
+                    @SuppressWarnings("unchecked")
+                    T t = (T) item;
+                    result.add(t);
+                }
+            }
+
+            double seconds = (System.nanoTime() - startTime) / 1e9;
+            logger.info("Read {} records in {} s ({} records/s)",
+                        result.size(),
+                        String.format("%.3f", seconds),
+                        seconds > 0 ? (long) (result.size() / seconds) : result.size());
+
             return result;
         } catch (FileNotFoundException e) {
             System.err.println("Cannot open file.");
@@ -179,4 +254,104 @@ public class CSVDatabase<T extends StrSerializable & DataBaseObject> implements
         return null;
     }
 
+    /**
+     * Submits deserialization of {@code size} first records of {@code batch}
+     * to the fork-join pool. Deserializes them right away if the pool
+     * has a single worker.
+     *
+     * @param constructor constructor of database object
+     * @param records records to deserialize
+     * @param size number of records
+     * @param error holder for the first error
+     * @return submitted task
+     */
+    private DeserializeTask submit(Constructor<?> constructor, String[][] records, int size,
+                                   AtomicReference<String> error) {
+        DeserializeTask task = new DeserializeTask(constructor, records, new Object[size], 0, size, error);
+
+        // Without spare cores worker would only compete with the reader
+        if (ForkJoinPool.getCommonPoolParallelism() > 1) {
+            ForkJoinPool.commonPool().execute(task);
+        } else {
+            task.invoke();
+        }
+
+        return task;
+    }
+
+    /**
+     * Task deserializing range of records, splits itself while range is large.
+     */
+    private static class DeserializeTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        /** Constructor of database object */
+        private final Constructor<?> constructor;
+
+        /** Records to deserialize */
+        private final String[][] records;
+
+        /** Deserialized objects, filled at the same positions as records */
+        private final Object[] result;
+
+        /** First record of the range */
+        private final int from;
+
+        /** Record after the last one of the range */
+        private final int to;
+
+        /** Holder for the first error */
+        private final AtomicReference<String> error;
+
+        /**
+         * Constructs new task for records in range [{@code from}, {@code to}).
+         *
+         * @param constructor constructor of database object
+         * @param records records to deserialize
+         * @param result array for deserialized objects
+         * @param from first record of the range
+         * @param to record after the last one of the range
+         * @param error holder for the first error
+         */
+        DeserializeTask(Constructor<?> constructor, String[][] records, Object[] result,
+                        int from, int to, AtomicReference<String> error) {
+            this.constructor = constructor;
+            this.records = records;
+            this.result = result;
+            this.from = from;
+            this.to = to;
+            this.error = error;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from > DESERIALIZE_THRESHOLD) {
+                int middle = (this.from + this.to) >>> 1;
+                invokeAll(
+                    new DeserializeTask(this.constructor, this.records, this.result, this.from, middle, this.error),
+                    new DeserializeTask(this.constructor, this.records, this.result, middle, this.to, this.error)
+                );
+                return;
+            }
+
+            for (int i = this.from; i < this.to && this.error.get() == null; i++) {
+                try {
+                    // Using reflection to create new instace of database object
+                    StrSerializable item = (StrSerializable) this.constructor.newInstance();
+                    item.deserialize(this.records[i]);
+
+                    this.result[i] = item;
+                    this.records[i] = null;
+                } catch (InstantiationException | IllegalAccessException |
+                         IllegalArgumentException | InvocationTargetException e) {
+                    this.error.compareAndSet(null, "Cannot create an instance of database object.");
+                } catch (SimpleParseException | RuntimeException e) {
+                    this.error.compareAndSet(null, "Cannot parse record.");
+                }
+            }
+        }
+
+    }
+
 }
@@ -0,0 +1,440 @@
+package server.database;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+
+import com.opencsv.CSVReader;
+import com.opencsv.CSVWriter;
+
+import core.database.DataBase;
+import core.database.DataBaseObject;
+import core.database.StrSerializable;
+import core.utils.SimpleParseException;
+
+/**
+ * Class for interacting with a CSV file (database) with write-ahead log.
+ * Every change is appended to the log file as a small record, while the
+ * CSV file holds a snapshot of the data. Reading replays the log over
+ * the snapshot, writing replaces the snapshot and drops the log.
+ *
+ * When snapshot for writing is taken, current log is renamed aside and
+ * new changes go to a fresh log. Moved log is removed once the snapshot
+ * is written, until then it's replayed before the current one. If the
+ * previous write failed and its log is still aside, current log is
+ * renamed to the pending log instead, which the writer thread appends
+ * to the old one if this write fails too. So taking the snapshot only
+ * renames files and never copies the log.
+ *
+ * Records of the log are CSV lines, first value is the operation:
+ *  A -- object was added, followed by the serialized object;
+ *  U -- object was updated, followed by the serialized object;
+ *  R -- object was removed, followed by its key;
+ *  C -- all objects were removed.
+ * Objects are identified by the first serialized value.
+ *
+ * @author ivatolm
+ */
+public class WALDatabase<T extends StrSerializable & DataBaseObject> implements DataBase<T> {
+
+    /** Suffix of the log filename */
+    private static final String LOG_SUFFIX = ".wal";
+
+    /** Suffix of the log moved aside while snapshot is written */
+    private static final String OLD_LOG_SUFFIX = ".wal.old";
+
+    /** Suffix of the log moved aside while the old one is still there */
+    private static final String PENDING_LOG_SUFFIX = ".wal.pending";
+
+    /**
+     * Read note in {@code DataBase} interface for explanation.
+     */
+    private T dummyObject = null;
+
+    /** Snapshot of the data */
+    private CSVDatabase<T> snapshot;
+
+    /** Log filename */
+    private String logFilename;
+
+    /** Filename of the log moved aside */
+    private String oldLogFilename;
+
+    /** Filename of the log moved aside after the old one */
+    private String pendingLogFilename;
+
+    /** Number of log records after which compaction is required */
+    private int compactionThreshold;
+
+    /** Number of records in the log */
+    private int records;
+
+    /** Writer of the log, opened on first append */
+    private CSVWriter writer;
+
+    /**
+     * Constructs new instance for working with {@code filename}.
+     *
+     * @param filename database filename
+     * @param compactionThreshold number of log records after which compaction is required
+     */
+    public WALDatabase(String filename, int compactionThreshold) {
+        this.snapshot = new CSVDatabase<>(filename);
+        this.logFilename = filename + LOG_SUFFIX;
+        this.oldLogFilename = filename + OLD_LOG_SUFFIX;
+        this.pendingLogFilename = filename + PENDING_LOG_SUFFIX;
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    /**
+     * Implements {@code setDummyObject} for {@code DataBase}.
+     *
+     * @param dummyObject dummy instance of class T
+     */
+    @Override
+    public void setDummyObject(T dummyObject) {
+        this.dummyObject = dummyObject;
+        this.snapshot.setDummyObject(dummyObject);
+    }
+
+    /**
+     * Implements {@code write} for {@code DataBase}.
+     * Writes snapshot of the {@code data} and removes the logs moved aside
+     * by {@code beginWrite}. Replaying the logs over the new snapshot gives
+     * the same data, so failure between these steps does not lose changes.
+     * If snapshot cannot be written, pending log is appended to the old
+     * one, so the next {@code beginWrite} can move the current log aside.
+     *
+     * @param data data to write
+     * @return true if data was written, else false
+     */
+    @Override
+    public boolean write(Iterable<T> data) {
+        if (this.dummyObject == null) {
+            System.err.println("Dummy object wasn't initialized.");
+            return false;
+        }
+
+        Path oldLog = Paths.get(this.oldLogFilename);
+        Path pendingLog = Paths.get(this.pendingLogFilename);
+
+        if (!this.snapshot.write(data)) {
+            try {
+                if (Files.exists(pendingLog)) {
+                    append(pendingLog, oldLog);
+                    Files.delete(pendingLog);
+                }
+            } catch (IOException e) {
+                System.err.println("Cannot merge logs: " + e);
+            }
+
+            return false;
+        }
+
+        try {
+            Files.deleteIfExists(pendingLog);
+            Files.deleteIfExists(oldLog);
+        } catch (IOException e) {
+            System.err.println("Cannot remove log: " + e);
+        }
+
+        return true;
+    }
+
+    /**
+     * Implements {@code beginWrite} for {@code DataBase}.
+     * Renames current log aside, to the old log or, if previous write
+     * failed and it's still there, to the pending one. If both are there,
+     * log stays in place, replaying it over the new snapshot is harmless.
+     */
+    @Override
+    public void beginWrite() {
+        try {
+            if (this.writer != null) {
+                this.writer.close();
+                this.writer = null;
+            }
+
+            Path log = Paths.get(this.logFilename);
+            Path oldLog = Paths.get(this.oldLogFilename);
+            Path pendingLog = Paths.get(this.pendingLogFilename);
+            if (Files.exists(log)) {
+                if (!Files.exists(oldLog)) {
+                    Files.move(log, oldLog, StandardCopyOption.ATOMIC_MOVE);
+                } else if (!Files.exists(pendingLog)) {
+                    Files.move(log, pendingLog, StandardCopyOption.ATOMIC_MOVE);
+                } else {
+                    return;
+                }
+            }
+
+            this.records = 0;
+        } catch (IOException e) {
+            System.err.println("Cannot move log aside: " + e);
+        }
+    }
+
+    /**
+     * Implements {@code read} for {@code DataBase}.
+     * Reads snapshot and replays logs over it. Replay of a log stops at
+     * the first damaged record, which may be left by interrupted append.
+     *
+     * @return list of read objects of class T or null if error occured
+     */
+    @Override
+    public LinkedList<T> read() {
+        if (this.dummyObject == null) {
+            System.err.println("Dummy object wasn't initialized.");
+            return null;
+        }
+
+        File log = new File(this.logFilename);
+        File oldLog = new File(this.oldLogFilename);
+        File pendingLog = new File(this.pendingLogFilename);
+
+        LinkedList<T> data = this.snapshot.read();
+        if (data == null) {
+            if (!log.exists() && !oldLog.exists() && !pendingLog.exists()) {
+                return null;
+            }
+
+            System.err.println("Snapshot is missing, replaying log only.");
+            data = new LinkedList<>();
+        }
+
+        LinkedHashMap<String, T> objects = new LinkedHashMap<>();
+        for (T item : data) {
+            objects.put(item.serialize()[0], item);
+        }
+
+        if (oldLog.exists()) {
+            this.records += this.replay(this.oldLogFilename, objects);
+        }
+
+        if (pendingLog.exists()) {
+            this.records += this.replay(this.pendingLogFilename, objects);
+        }
+
+        if (log.exists()) {
+            this.records += this.replay(this.logFilename, objects);
+        }
+
+        return new LinkedList<>(objects.values());
+    }
+
+    @Override
+    public void logAdd(T item) {
+        this.append("A", item.serialize());
+    }
+
+    /**
+     * Implements {@code logAddAll} for {@code DataBase}.
+     * Appends records of all items and flushes the log once.
+     *
+     * @param items added objects
+     */
+    @Override
+    public void logAddAll(Iterable<T> items) {
+        try {
+            for (T item : items) {
+                this.write("A", item.serialize());
+            }
+
+            if (this.writer != null) {
+                this.writer.flush();
+            }
+        } catch (IOException e) {
+            System.err.println("Cannot append to log: " + e);
+        }
+    }
+
+    @Override
+    public void logUpdate(T item) {
+        this.append("U", item.serialize());
+    }
+
+    @Override
+    public void logRemove(T item) {
+        this.append("R", new String[] { item.serialize()[0] });
+    }
+
+    @Override
+    public void logClear() {
+        this.append("C", new String[] {});
+    }
+
+    @Override
+    public boolean needsCompaction() {
+        return this.records >= this.compactionThreshold;
+    }
+
+    /**
+     * Appends contents of {@code from} to {@code to} and flushes it to the disk.
+     *
+     * @param from file to copy
+     * @param to file to append to, created if it doesn't exist
+     * @throws IOException if files cannot be read or written
+     */
+    private static void append(Path from, Path to) throws IOException {
+        try (FileChannel source = FileChannel.open(from, StandardOpenOption.READ);
+             FileChannel target = FileChannel.open(to, StandardOpenOption.CREATE,
+                                                   StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            long position = 0;
+            long size = source.size();
+            while (position < size) {
+                position += source.transferTo(position, size - position, target);
+            }
+
+            target.force(true);
+        }
+    }
+
+    /**
+     * Applies records of the log to {@code objects}.
+     *
+     * @param filename filename of the log
+     * @param objects objects by their keys
+     * @return number of applied records
+     */
+    private int replay(String filename, LinkedHashMap<String, T> objects) {
+        int count = 0;
+
+        try {
+            CSVReader reader = new CSVReader(new InputStreamReader(new FileInputStream(filename)));
+
+            String[] record;
+            while ((record = reader.readNext()) != null) {
+                if (!this.apply(objects, record)) {
+                    System.err.println("Record " + (count + 1) + " of " + filename + " is damaged, replay stopped.");
+                    break;
+                }
+
+                count++;
+            }
+
+            reader.close();
+        } catch (FileNotFoundException e) {
+            System.err.println("Cannot open log.");
+        } catch (IOException e) {
+            System.err.println("Cannot read log: " + e);
+        }
+
+        return count;
+    }
+
+    /**
+     * Applies {@code record} of the log to {@code objects}.
+     *
+     * @param objects objects by their keys
+     * @param record record of the log
+     * @return true if record was applied, false if it's damaged
+     */
+    private boolean apply(LinkedHashMap<String, T> objects, String[] record) {
+        String[] value = new String[record.length - 1];
+        System.arraycopy(record, 1, value, 0, value.length);
+
+        switch (record[0]) {
+            case "A":
+            case "U":
+                T item = this.create(value);
+                if (item == null) {
+                    return false;
+                }
+
+                objects.put(value[0], item);
+                return true;
+
+            case "R":
+                if (value.length != 1) {
+                    return false;
+                }
+
+                objects.remove(value[0]);
+                return true;
+
+            case "C":
+                objects.clear();
+                return true;
+
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Creates new instance of class T from {@code value}.
+     *
+     * @param value serialized object
+     * @return created object or null if value cannot be parsed
+     */
+    private T create(String[] value) {
+        if (value.length != this.dummyObject.getAttributesList().length) {
+            return null;
+        }
+
+        try {
+            @SuppressWarnings("unchecked")
+            T t = (T) this.dummyObject.getClass().getConstructor().newInstance();
+            t.deserialize(value);
+
+            return t;
+        } catch (InstantiationException | IllegalAccessException | IllegalArgumentException |
+                 InvocationTargetException | NoSuchMethodException | SecurityException e) {
+            System.err.println("Cannot create an instance of database object.");
+        } catch (SimpleParseException | RuntimeException e) {
+            System.err.println("Cannot parse record.");
+        }
+
+        return null;
+    }
+
+    /**
+     * Appends record with {@code operation} and {@code value} to the log.
+     *
+     * @param operation operation of the record
+     * @param value values of the record
+     */
+    private void append(String operation, String[] value) {
+        try {
+            this.write(operation, value);
+            this.writer.flush();
+        } catch (IOException e) {
+            System.err.println("Cannot append to log: " + e);
+        }
+    }
+
+    /**
+     * Writes record with {@code operation} and {@code value} to the log
+     * without flushing it.
+     *
+     * @param operation operation of the record
+     * @param value values of the record
+     * @throws IOException if log cannot be opened
+     */
+    private void write(String operation, String[] value) throws IOException {
+        String[] record = new String[value.length + 1];
+        record[0] = operation;
+        System.arraycopy(value, 0, record, 1, value.length);
+
+        if (this.writer == null) {
+            this.writer = new CSVWriter(new OutputStreamWriter(new FileOutputStream(this.logFilename, true)));
+        }
+
+        this.writer.writeNext(record, false);
+        this.records++;
+    }
+
+}
@@ -2,8 +2,6 @@ package server.handler;
 
 import java.io.IOException;
 import java.nio.channels.SelectableChannel;
-import java.nio.channels.Pipe.SinkChannel;
-import java.nio.channels.Pipe.SourceChannel;
 import java.util.LinkedList;
 import java.util.Optional;
 
@@ -11,16 +9,17 @@ import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import server.interpreter.Interpreter;
+import server.runner.ProgramOutput;
 import server.runner.RecursionFoundException;
 import server.runner.Runner;
+import server.runner.WorkerPool;
 import core.command.Command;
 import core.command.arguments.Argument;
 import core.event.Event;
+import core.event.EventQueue;
 import core.event.EventType;
 import core.handler.ChannelType;
 import core.handler.ComHandler;
-import core.utils.NBChannelController;
 
 enum ServerComHandlerState {
     Waiting,
@@ -30,7 +29,12 @@ enum ServerComHandlerState {
     NCStart,
     ExistingRequest,
     IVProcessing,
+    IVExecuting,
+    IVFinish,
     NCProcessing,
+    NCExecuting,
+    NCFinish,
+    NCOutputStreaming,
     FinishRequest,
     Error,
     Close
@@ -55,27 +59,62 @@ public class ServerComHandler extends ComHandler<ServerComHandlerState> {
     // Program runner
     private Runner runner;
 
+    // Pool executing programs
+    private WorkerPool workerPool;
+
+    // Error occured while executing program
+    private String executionError;
+
+    // Result of the id validation executed by the pool
+    private boolean idValidationResult;
+
     // Communication channel type
     private ChannelType channelType;
 
+    // Output of the request that is being sent
+    private ProgramOutput output;
+
     /**
      * Constructs new {@code ServerComHandler} with provided arguments.
      *
      * @param inputChannels input channels of the handler
      * @param outputChannels output channels of the handler
-     * @param runner program runner
+     * @param runner program runner of this handler
+     * @param workerPool pool executing programs
      * @param type communication channel type
      */
     public ServerComHandler(LinkedList<Pair<ChannelType, SelectableChannel>> inputChannels,
                             LinkedList<Pair<ChannelType, SelectableChannel>> outputChannels,
                             Runner runner,
+                            WorkerPool workerPool,
                             ChannelType type) {
         super(inputChannels, outputChannels, ServerComHandlerState.Waiting);
 
         this.runner = runner;
+        this.workerPool = workerPool;
         this.channelType = type;
     }
 
+    /**
+     * Continues handling of the request after its program or id validation
+     * was executed. Called by the event loop thread.
+     */
+    public void resume() {
+        switch (this.getState()) {
+            case NCExecuting:
+                this.nextState(ServerComHandlerState.NCFinish);
+                break;
+            case IVExecuting:
+                this.nextState(ServerComHandlerState.IVFinish);
+                break;
+            default:
+                logger.warn("Unexpected completion of the program.");
+                return;
+        }
+
+        this.handleEvents();
+    }
+
     @Override
     public void process(ChannelType type, SelectableChannel channel) {
         logger.trace("New event from " + type);
@@ -117,9 +156,22 @@ public class ServerComHandler extends ComHandler<ServerComHandlerState> {
                 case IVProcessing:
                     this.handleIVProcessing();
                     break;
+                case IVExecuting:
+                    break;
+                case IVFinish:
+                    this.handleIVFinish();
+                    break;
                 case NCProcessing:
                     this.handleNCProcessing();
                     break;
+                case NCExecuting:
+                    break;
+                case NCFinish:
+                    this.handleNCFinish();
+                    break;
+                case NCOutputStreaming:
+                    this.handleNCOutputStreaming();
+                    break;
                 case FinishRequest:
                     this.handleFinishRequest();
                     break;
@@ -132,7 +184,9 @@ public class ServerComHandler extends ComHandler<ServerComHandlerState> {
             }
 
             logger.trace("State: " + stState + " -> " + this.getState());
-        } while (this.getState() != ServerComHandlerState.Waiting);
+        } while (this.getState() != ServerComHandlerState.Waiting &&
+                 this.getState() != ServerComHandlerState.NCExecuting &&
+                 this.getState() != ServerComHandlerState.IVExecuting);
     }
 
     private void handleWaitingState() {
@@ -168,9 +222,9 @@ public class ServerComHandler extends ComHandler<ServerComHandlerState> {
             return;
         }
 
-        SourceChannel channel = (SourceChannel) ic.get();
+        EventQueue.Source channel = (EventQueue.Source) ic.get();
         try {
-            this.event = (Event) NBChannelController.read(channel);
+            this.event = (Event) channel.read();
         } catch (IOException e) {
             System.err.println("Cannot read from the channel.");
             this.nextState(ServerComHandlerState.Error);
@@ -219,10 +273,10 @@ public class ServerComHandler extends ComHandler<ServerComHandlerState> {
             return;
         }
 
-        SourceChannel channel = (SourceChannel) ic.get();
+        EventQueue.Source channel = (EventQueue.Source) ic.get();
         Event response = null;
         try {
-            response = (Event) NBChannelController.read(channel);
+            response = (Event) channel.read();
         } catch (IOException e) {
             System.err.println("Cannot read from the channel.");
             this.nextState(ServerComHandlerState.Error);
@@ -240,6 +294,12 @@ public class ServerComHandler extends ComHandler<ServerComHandlerState> {
                 // logger.info("" + response.getData());
                 this.nextState(ServerComHandlerState.NCProcessing);
                 break;
+            case OutputChunk:
+                this.nextState(ServerComHandlerState.NCOutputStreaming);
+                break;
+            case Close:
+                this.nextState(ServerComHandlerState.Close);
+                break;
             default:
                 this.nextState(ServerComHandlerState.Error);
                 break;
@@ -249,7 +309,24 @@ public class ServerComHandler extends ComHandler<ServerComHandlerState> {
     private void handleIVProcessing() {
         Argument id = (Argument) this.stateData;
 
-        boolean result = Interpreter.HasItemWithId(id);
+        // Collection may be locked by a running command, so it's checked by the pool
+        this.subscriptions = new LinkedList<>();
+        this.nextState(ServerComHandlerState.IVExecuting);
+
+        this.workerPool.submit(() -> {
+            this.idValidationResult = this.runner.getInterpreter().hasItemWithId(id);
+        }, this::resume);
+    }
+
+    private void handleIVFinish() {
+        try {
+            this.filterSubscriptions(this.channelType);
+        } catch (IOException e) {
+            this.nextState(ServerComHandlerState.Error);
+            return;
+        }
+
+        boolean result = this.idValidationResult;
         logger.debug("Id validation result: " + result);
 
         Event respIV = new Event(EventType.IdValidation, result);
@@ -261,14 +338,8 @@ public class ServerComHandler extends ComHandler<ServerComHandlerState> {
             return;
         }
 
-        SinkChannel channel = (SinkChannel) oc.get();
-        try {
-            NBChannelController.write(channel, respIV);
-        } catch (IOException e) {
-            System.err.println("Cannot write to the channel.");
-            this.nextState(ServerComHandlerState.Error);
-            return;
-        }
+        EventQueue.Sink channel = (EventQueue.Sink) oc.get();
+        channel.write(respIV);
 
         this.nextState(ServerComHandlerState.FinishRequest);
     }
@@ -281,69 +352,66 @@ public class ServerComHandler extends ComHandler<ServerComHandlerState> {
 
         if (commands == null) {
             logger.info("File wasn't found on client. Sending output...");
-            LinkedList<String> programOutput = this.runner.getProgramOutput();
-            if (programOutput == null) {
-                programOutput = new LinkedList<>();
+            this.output = this.runner.getProgramOutput();
+            if (this.output == null) {
+                this.output = new ProgramOutput();
             }
 
-            Event respNC = new Event(EventType.OutputResponse, programOutput);
+            this.nextState(ServerComHandlerState.NCOutputStreaming);
+            return;
+        }
 
-            Optional<SelectableChannel> oc = this.getFirstOutputChannel(this.channelType);
-            if (!oc.isPresent()) {
-                logger.warn("Output channel " + this.channelType + " was not found.");
-                this.nextState(ServerComHandlerState.Error);
-                return;
-            }
+        // Not reading requests until the program is executed
+        this.subscriptions = new LinkedList<>();
+        this.executionError = null;
+        this.nextState(ServerComHandlerState.NCExecuting);
 
-            SinkChannel channel = (SinkChannel) oc.get();
+        this.workerPool.submit(() -> {
             try {
-                NBChannelController.write(channel, respNC);
-            } catch (IOException e) {
-                System.err.println("Cannot write to the channel.");
-                this.nextState(ServerComHandlerState.Error);
-                return;
+                this.runner.addSubroutine(commands);
+                this.runner.run();
+            } catch (RecursionFoundException e) {
+                logger.info(e.getMessage());
+                this.executionError = e.getMessage();
             }
-            this.nextState(ServerComHandlerState.FinishRequest);
-            return;
-        }
+        }, this::resume);
+    }
 
-        boolean errorOccured = false;
-        String errorMessage = null;
+    private void handleNCFinish() {
         try {
-            this.runner.addSubroutine(commands);
-            this.runner.run();
-        } catch (RecursionFoundException e) {
-            logger.info(e.getMessage());
-            errorOccured = true;
-            errorMessage = e.getMessage();
+            this.filterSubscriptions(this.channelType);
+        } catch (IOException e) {
+            this.nextState(ServerComHandlerState.Error);
+            return;
         }
 
-        Event respNC = null;
-        if (errorOccured) {
-            LinkedList<String> programOutput = this.runner.getProgramOutput();
-            if (programOutput == null) {
-                programOutput = new LinkedList<>();
+        if (this.executionError != null) {
+            String errorMessage = this.executionError;
+            this.executionError = null;
+
+            this.output = this.runner.getProgramOutput();
+            if (this.output == null) {
+                this.output = new ProgramOutput();
             }
 
-            programOutput.push(errorMessage);
-            respNC = new Event(EventType.OutputResponse, programOutput);
-            this.nextState(ServerComHandlerState.FinishRequest);
-        } else {
-            LinkedList<String> programResult = this.runner.getProgramResult();
-            if (programResult != null) {
-                respNC = new Event(EventType.ScriptRequest, programResult);
-                this.nextState(ServerComHandlerState.Waiting);
-            } else {
-                LinkedList<String> programOutput = this.runner.getProgramOutput();
-                if (programOutput == null) {
-                    programOutput = new LinkedList<>();
-                }
-
-                respNC = new Event(EventType.OutputResponse, programOutput);
-                this.nextState(ServerComHandlerState.FinishRequest);
+            this.output.addFirst(errorMessage);
+            this.nextState(ServerComHandlerState.NCOutputStreaming);
+            return;
+        }
+
+        LinkedList<String> programResult = this.runner.getProgramResult();
+        if (programResult == null) {
+            this.output = this.runner.getProgramOutput();
+            if (this.output == null) {
+                this.output = new ProgramOutput();
             }
+
+            this.nextState(ServerComHandlerState.NCOutputStreaming);
+            return;
         }
 
+        Event respNC = new Event(EventType.ScriptRequest, programResult);
+
         Optional<SelectableChannel> oc = this.getFirstOutputChannel(this.channelType);
         if (!oc.isPresent()) {
             logger.warn("Output channel " + this.channelType + " was not found.");
@@ -351,19 +419,49 @@ public class ServerComHandler extends ComHandler<ServerComHandlerState> {
             return;
         }
 
-        SinkChannel channel = (SinkChannel) oc.get();
-        try {
-            NBChannelController.write(channel, respNC);
-        } catch (IOException e) {
-            System.err.println("Cannot write to the channel.");
+        EventQueue.Sink channel = (EventQueue.Sink) oc.get();
+        channel.write(respNC);
+
+        this.nextState(ServerComHandlerState.Waiting);
+    }
+
+    private void handleNCOutputStreaming() {
+        if (this.output == null) {
+            logger.warn("There is no output to send.");
             this.nextState(ServerComHandlerState.Error);
             return;
         }
+
+        // Sending one page at a time, next one is sent when requested by the peer
+        LinkedList<String> page = this.output.nextPage();
+
+        Event respNC;
+        ServerComHandlerState next;
+        if (this.output.hasNext()) {
+            respNC = new Event(EventType.OutputChunk, page);
+            next = ServerComHandlerState.Waiting;
+        } else {
+            respNC = new Event(EventType.OutputResponse, page);
+            next = ServerComHandlerState.FinishRequest;
+        }
+
+        Optional<SelectableChannel> oc = this.getFirstOutputChannel(this.channelType);
+        if (!oc.isPresent()) {
+            logger.warn("Output channel " + this.channelType + " was not found.");
+            this.nextState(ServerComHandlerState.Error);
+            return;
+        }
+
+        EventQueue.Sink channel = (EventQueue.Sink) oc.get();
+        channel.write(respNC);
+
+        this.nextState(next);
     }
 
     private void handleFinishRequest() {
         this.event = null;
         this.stateData = null;
+        this.output = null;
 
         this.filterSubscriptions();
 
@@ -1,9 +1,9 @@
 package server.handler;
 
 import java.io.IOException;
-import java.nio.channels.Pipe;
 import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.Set;
@@ -14,13 +14,21 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import core.event.EventHandler;
+import core.event.EventQueue;
 import core.event.SelectorKeyNotFoundException;
 import core.handler.ChannelType;
 import core.handler.Handler;
+import server.interpreter.CheckpointScheduler;
+import server.interpreter.Interpreter;
+import server.net.Session;
+import server.net.SessionManager;
 import server.runner.Runner;
+import server.runner.WorkerPool;
 
 /**
  * Class for handling application events via other handlers.
+ * Server may run several event handlers, each serving its own socket
+ * and clients, only one of them serves the shell.
  *
  * @author ivatolm
  */
@@ -29,10 +37,13 @@ public class ServerEventHandler extends EventHandler<ChannelType> {
     // Logger
     private static final Logger logger = LoggerFactory.getLogger("EventHandler");
 
-    // Shell handler
+    // Interval of logging rate of handled events in milliseconds
+    private static final long STATISTICS_INTERVAL = 10000;
+
+    // Shell handler, null if shell is served by another event handler
     private ServerShellHandler shellHandler;
 
-    // Communication handler for shell
+    // Communication handler for shell, null if shell is served by another event handler
     private ServerComHandler shellComHandler;
 
     // Socket handler
@@ -41,37 +52,63 @@ public class ServerEventHandler extends EventHandler<ChannelType> {
     // Client handlers
     private LinkedList<ServerComHandler> comHandlers;
 
-    // Program runner
-    private Runner runner;
+    // Sessions of the client handlers
+    private HashMap<ServerComHandler, Session> sessions;
+
+    // Command interpreter shared by runners of the clients
+    private Interpreter interpreter;
+
+    // Pool executing programs
+    private WorkerPool workerPool;
+
+    // Checkpoint scheduler
+    private CheckpointScheduler checkpointScheduler;
+
+    // Number of events handled since the last statistics
+    private long eventsCount;
+
+    // Time of the last statistics
+    private long statisticsSince = System.currentTimeMillis();
 
     /**
      * Constructs new {@code EventHandler} with provided arguments.
      *
      * @param shellHandler handler of shell
+     * @param interpreter command interpreter shared by runners of the clients
+     * @param workerPool pool executing programs, woken up completions are run by the loop
+     * @param checkpointScheduler scheduler of checkpoints polled by the loop
      * @throws IOException if cannot setup {@code Selector}
      */
     public ServerEventHandler(ServerShellHandler shellHandler,
                         ServerComHandler shellComHandler,
                         ServerSocketHandler socketHandler,
-                        Runner runner) throws IOException {
+                        Interpreter interpreter,
+                        WorkerPool workerPool,
+                        CheckpointScheduler checkpointScheduler) throws IOException {
         super();
 
         this.shellHandler = shellHandler;
         this.shellComHandler = shellComHandler;
         this.socketHandler = socketHandler;
-        this.runner = runner;
+        this.interpreter = interpreter;
+        this.workerPool = workerPool;
+        this.workerPool.setSelector(this.selector);
+        this.checkpointScheduler = checkpointScheduler;
 
         this.comHandlers = new LinkedList<>();
+        this.sessions = new HashMap<>();
 
-        this.subscribeChannelsRead(
-            this.shellHandler.getInputChannels(),
-            this.shellHandler
-        );
+        if (this.shellHandler != null) {
+            this.subscribeChannelsRead(
+                this.shellHandler.getInputChannels(),
+                this.shellHandler
+            );
 
-        this.subscribeChannelsRead(
-            this.shellComHandler.getInputChannels(),
-            this.shellComHandler
-        );
+            this.subscribeChannelsRead(
+                this.shellComHandler.getInputChannels(),
+                this.shellComHandler
+            );
+        }
 
         this.subscribeChannelsRead(
             this.socketHandler.getInputChannels(),
@@ -79,16 +116,34 @@ public class ServerEventHandler extends EventHandler<ChannelType> {
         );
     }
 
+    /**
+     * Constructs new {@code EventHandler} serving only clients of {@code socketHandler}.
+     *
+     * @param socketHandler socket handler of the clients
+     * @param interpreter command interpreter shared by runners of the clients
+     * @param workerPool pool executing programs, woken up completions are run by the loop
+     * @param checkpointScheduler scheduler of checkpoints polled by the loop
+     * @throws IOException if cannot setup {@code Selector}
+     */
+    public ServerEventHandler(ServerSocketHandler socketHandler,
+                              Interpreter interpreter,
+                              WorkerPool workerPool,
+                              CheckpointScheduler checkpointScheduler) throws IOException {
+        this(null, null, socketHandler, interpreter, workerPool, checkpointScheduler);
+    }
+
     public void updateSubscriptions() throws SelectorKeyNotFoundException {
-        this.updateChannelsSubscriptionRead(
-            this.shellHandler.getInputChannels(),
-            this.shellHandler.getSubscriptions()
-        );
+        if (this.shellHandler != null) {
+            this.updateChannelsSubscriptionRead(
+                this.shellHandler.getInputChannels(),
+                this.shellHandler.getSubscriptions()
+            );
 
-        this.updateChannelsSubscriptionRead(
-            this.shellComHandler.getInputChannels(),
-            this.shellComHandler.getSubscriptions()
-        );
+            this.updateChannelsSubscriptionRead(
+                this.shellComHandler.getInputChannels(),
+                this.shellComHandler.getSubscriptions()
+            );
+        }
 
         this.updateChannelsSubscriptionRead(
             this.socketHandler.getInputChannels(),
@@ -109,68 +164,175 @@ public class ServerEventHandler extends EventHandler<ChannelType> {
     public void run() {
         while (true) {
             try {
+                // Waking up for the closest of checkpoint and retransmission
+                long timeout = this.checkpointScheduler.getTimeout();
+                long comTimeout = this.socketHandler.tick();
+                if (comTimeout > 0 && (timeout == 0 || comTimeout < timeout)) {
+                    timeout = comTimeout;
+                }
+
                 logger.trace("Selecting channels...");
-                this.selector.select();
+                this.select(timeout);
+                this.checkpointScheduler.tick();
+
+                // Finishing requests whose programs were executed
+                this.workerPool.runCompletions();
+                if (!this.interpreter.isRunning()) {
+                    logger.info("Exiting...");
+                    return;
+                }
+
                 Set<SelectionKey> selectedKeys = this.selector.selectedKeys();
                 logger.debug("Selected channels count: " + selectedKeys.size());
 
+                // Handling all ready channels, subscriptions are updated once afterwards
                 Iterator<SelectionKey> iter = selectedKeys.iterator();
                 while (iter.hasNext()) {
                     SelectionKey key = iter.next();
+                    iter.remove();
 
-                    Object[] attachments = (Object[]) key.attachment();
-
-                    @SuppressWarnings("unchecked")
-                    Handler<ChannelType, ?> handler = (Handler<ChannelType,?>) attachments[0];
-                    ChannelType channelType = (ChannelType) attachments[1];
-
-                    logger.trace("Event on " + channelType + " for " + handler);
-
-                    if (key.isReadable()) {
-                        handler.process(channelType, key.channel());
+                    if (!this.handleKey(key)) {
+                        return;
                     }
+                }
 
-                    if (!handler.isRunning()) {
-                        logger.debug("Shutting down handler...");
-                        this.removeHandler(handler);
-                        logger.debug("Handler was shut down");
-                    } else if (this.socketHandler.hasNewClient()) {
-                        logger.debug("Adding new client...");
-                        this.addClient();
-                        logger.debug("Adding new client done");
-                    }
+                // Handling ready queues the same way
+                LinkedList<SelectionKey> readyQueues = this.takeReadyQueues();
+                logger.debug("Ready queues count: " + readyQueues.size());
 
-                    if (!this.runner.isRunning()) {
-                        logger.info("Exiting...");
-                        return;
+                boolean running = true;
+                for (SelectionKey key : readyQueues) {
+                    if (running) {
+                        running = this.handleKey(key);
                     }
 
-                    logger.debug("Updating subscriptions...");
-                    try {
-                        this.updateSubscriptions();
-                    } catch (SelectorKeyNotFoundException e) {
-                        logger.warn("Cannot update subscriptions. Exiting...");
-                        return;
-                    }
-                    logger.debug("Updating subscriptions done");
+                    this.queueHandled(key);
+                }
 
-                    logger.debug("Connected clients count: " + this.comHandlers.size());
+                if (!running) {
+                    return;
+                }
 
-                    break;
+                logger.debug("Updating subscriptions...");
+                try {
+                    this.updateSubscriptions();
+                } catch (SelectorKeyNotFoundException e) {
+                    logger.warn("Cannot update subscriptions. Exiting...");
+                    return;
                 }
+                logger.debug("Updating subscriptions done");
 
-                selectedKeys.clear();
+                logger.debug("Connected clients count: " + this.comHandlers.size());
 
+                this.logStatistics();
             } catch (IOException e) {
                 e.printStackTrace();
             }
         }
     }
 
+    /**
+     * Wakes up the loop, so it notices that interpreter has stopped.
+     * May be called by any thread.
+     */
+    public void wakeup() {
+        this.selector.wakeup();
+    }
+
+    /**
+     * Passes event on the channel of {@code key} to its handler.
+     *
+     * @param key key of the ready channel
+     * @return false if server has to exit, else true
+     * @throws IOException if cannot add new client
+     */
+    private boolean handleKey(SelectionKey key) throws IOException {
+        // Channel might have been unsubscribed by the previous events
+        if (!key.isValid()) {
+            return true;
+        }
+
+        Object[] attachments = (Object[]) key.attachment();
+
+        @SuppressWarnings("unchecked")
+        Handler<ChannelType, ?> handler = (Handler<ChannelType,?>) attachments[0];
+        ChannelType channelType = (ChannelType) attachments[1];
+
+        // Handler might have changed its subscriptions while handling previous events
+        if (!isSubscribed(handler, key.channel())) {
+            return true;
+        }
+
+        logger.trace("Event on " + channelType + " for " + handler);
+
+        if (key.isReadable()) {
+            handler.process(channelType, key.channel());
+            this.eventsCount++;
+        }
+
+        if (!handler.isRunning()) {
+            logger.debug("Shutting down handler...");
+            this.removeHandler(handler);
+            logger.debug("Handler was shut down");
+        } else {
+            while (this.socketHandler.hasNewSession()) {
+                logger.debug("Adding new client...");
+                this.addClient();
+                logger.debug("Adding new client done");
+            }
+        }
+
+        if (!this.interpreter.isRunning()) {
+            logger.info("Exiting...");
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Checks if {@code handler} is subscribed to {@code channel}.
+     *
+     * @param handler handler of the channel
+     * @param channel channel to check
+     * @return true if subscribed, else false
+     */
+    private static boolean isSubscribed(Handler<ChannelType, ?> handler, SelectableChannel channel) {
+        for (Pair<ChannelType, SelectableChannel> subscription : handler.getSubscriptions()) {
+            if (subscription.getValue() == channel) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Logs rate of handled events once in {@code STATISTICS_INTERVAL}.
+     */
+    private void logStatistics() {
+        long now = System.currentTimeMillis();
+        long elapsed = now - this.statisticsSince;
+        if (elapsed < STATISTICS_INTERVAL) {
+            return;
+        }
+
+        SessionManager sessions = this.socketHandler.getSessions();
+        if (this.eventsCount > 0) {
+            logger.debug("Handled " + this.eventsCount + " events in " + elapsed + " ms (" +
+                         this.eventsCount * 1000 / elapsed + " events/s, " +
+                         sessions.getLiveCount() + " live sessions, " +
+                         sessions.getTotalCount() + " total sessions)");
+        }
+
+        this.eventsCount = 0;
+        this.statisticsSince = now;
+    }
+
     private void addClient() throws IOException {
-        Pair<Pipe, Pipe> clientPipes = this.socketHandler.getNewClientPipe();
-        Pipe network_com = clientPipes.getLeft();
-        Pipe com_network = clientPipes.getRight();
+        Session session = this.socketHandler.pollNewSession();
+        EventQueue network_com = session.getNetworkQueue();
+        EventQueue com_network = session.getComQueue();
 
         ServerComHandler comHandler = new ServerComHandler(
             new LinkedList<Pair<ChannelType, SelectableChannel>>() {{
@@ -179,7 +341,8 @@ public class ServerEventHandler extends EventHandler<ChannelType> {
             new LinkedList<Pair<ChannelType, SelectableChannel>>() {{
                 add(new ImmutablePair<>(ChannelType.Network, com_network.sink()));
             }},
-            this.runner,
+            new Runner(this.interpreter),
+            this.workerPool,
             ChannelType.Network
         );
 
@@ -188,6 +351,7 @@ public class ServerEventHandler extends EventHandler<ChannelType> {
             comHandler
         );
         this.comHandlers.push(comHandler);
+        this.sessions.put(comHandler, session);
 
         this.subscribeChannelsRead(
             new LinkedList<Pair<ChannelType, SelectableChannel>>() {{
@@ -204,8 +368,9 @@ public class ServerEventHandler extends EventHandler<ChannelType> {
         this.unsubscribeChannels(handler.getInputChannels());
 
         // TODO: Handle situation of main handler failure
-        if (this.comHandlers.contains(handler)) {
-            this.comHandlers.remove(handler);
+        if (this.comHandlers.remove(handler)) {
+            Session session = this.sessions.remove(handler);
+            this.socketHandler.closeSession(session);
         }
     }
 
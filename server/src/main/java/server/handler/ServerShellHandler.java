@@ -2,7 +2,6 @@ package server.handler;
 
 import java.io.IOException;
 import java.nio.channels.SelectableChannel;
-import java.nio.channels.Pipe.SinkChannel;
 import java.nio.channels.Pipe.SourceChannel;
 import java.util.Arrays;
 import java.util.LinkedList;
@@ -15,6 +14,7 @@ import org.slf4j.LoggerFactory;
 import core.command.Command;
 import core.command.arguments.Argument;
 import core.event.Event;
+import core.event.EventQueue;
 import core.event.EventType;
 import core.handler.ChannelType;
 import core.handler.ShellHandler;
@@ -161,6 +161,12 @@ public class ServerShellHandler extends ShellHandler<ServerShellHandlerState> {
             return;
         }
 
+        // Rest of the object will be read when it arrives
+        if (this.input == null) {
+            this.nextState(ServerShellHandlerState.Waiting);
+            return;
+        }
+
         this.nextState(ServerShellHandlerState.InputParsingProcessing);
     }
 
@@ -189,17 +195,11 @@ public class ServerShellHandler extends ShellHandler<ServerShellHandlerState> {
                 return;
             }
 
-            SinkChannel channel = (SinkChannel) oc.get();
+            EventQueue.Sink channel = (EventQueue.Sink) oc.get();
             LinkedList<Command> commands = this.getParsingResult();
             Event event = new Event(EventType.NewCommands, commands);
 
-            try {
-                NBChannelController.write(channel, event);
-            } catch (IOException e) {
-                System.err.println("Cannot write to the channel.");
-                this.nextState(ServerShellHandlerState.Waiting);
-                return;
-            }
+            channel.write(event);
         }
 
         this.nextState(ServerShellHandlerState.Waiting);
@@ -214,16 +214,10 @@ public class ServerShellHandler extends ShellHandler<ServerShellHandlerState> {
                 return;
             }
 
-            SinkChannel channel = (SinkChannel) oc.get();
+            EventQueue.Sink channel = (EventQueue.Sink) oc.get();
             Event event = new Event(EventType.IdValidation, this.idArgForValidation);
 
-            try {
-                NBChannelController.write(channel, event);
-            } catch (IOException e) {
-                System.err.println("Cannot write to the channel.");
-                this.nextState(ServerShellHandlerState.Waiting);
-                return;
-            }
+            channel.write(event);
 
             try {
                 this.filterSubscriptions(ChannelType.Com);
@@ -255,11 +249,11 @@ public class ServerShellHandler extends ShellHandler<ServerShellHandlerState> {
             return;
         }
 
-        SourceChannel channel = (SourceChannel) ic.get();
+        EventQueue.Source channel = (EventQueue.Source) ic.get();
 
         Event event;
         try {
-            event = (Event) NBChannelController.read(channel);
+            event = (Event) channel.read();
         } catch (IOException e) {
             System.err.println("Cannot read from the channel.");
             this.nextState(ServerShellHandlerState.Waiting);
@@ -286,10 +280,10 @@ public class ServerShellHandler extends ShellHandler<ServerShellHandlerState> {
             return;
         }
 
-        SourceChannel channel = (SourceChannel) ic.get();
+        EventQueue.Source channel = (EventQueue.Source) ic.get();
         Event event;
         try {
-            event = (Event) NBChannelController.read(channel);
+            event = (Event) channel.read();
         } catch (IOException e) {
             // System.err.println("Cannot read from the channel.");
             this.nextState(ServerShellHandlerState.Waiting);
@@ -306,6 +300,25 @@ public class ServerShellHandler extends ShellHandler<ServerShellHandlerState> {
 
             this.showInputGreeting();
 
+            this.nextState(ServerShellHandlerState.Waiting);
+        } else if (event.getType() == EventType.OutputChunk) {
+            @SuppressWarnings("unchecked")
+            LinkedList<String> result = (LinkedList<String>) event.getData();
+
+            for (String line : result) {
+                System.out.println(line);
+            }
+
+            // Requesting next chunk of the output
+            Optional<SelectableChannel> oc = this.getFirstOutputChannel(type);
+            if (!oc.isPresent()) {
+                logger.warn("Output channel " + type + " was not found.");
+                this.nextState(ServerShellHandlerState.Waiting);
+                return;
+            }
+
+            ((EventQueue.Sink) oc.get()).write(new Event(EventType.OutputChunk, null));
+
             this.nextState(ServerShellHandlerState.Waiting);
         } else if (event.getType() == EventType.ScriptRequest) {
             System.out.println("Script are not currently supported by the server.");
@@ -3,19 +3,9 @@ package server.handler;
 import java.io.IOException;
 import java.net.SocketAddress;
 import java.nio.channels.DatagramChannel;
-import java.nio.channels.Pipe;
 import java.nio.channels.SelectableChannel;
-import java.nio.channels.Pipe.SinkChannel;
-import java.nio.channels.Pipe.SourceChannel;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.LinkedList;
-import java.util.Timer;
-import java.util.TimerTask;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 
-import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,13 +16,12 @@ import core.handler.ChannelType;
 import core.handler.SocketHandler;
 import core.net.Com;
 import core.net.packet.Packet;
-import core.utils.NBChannelController;
-import server.net.DisconnectionTask;
+import server.net.Session;
+import server.net.SessionManager;
 
 enum ServerSocketHandlerState {
     Waiting,
     NewEvent,
-    ConnectionTimeout,
     NewNetworkEvent,
     NewNetworkPacket,
     CompletedMessage,
@@ -42,7 +31,10 @@ enum ServerSocketHandlerState {
 
 public class ServerSocketHandler extends SocketHandler<DatagramChannel, ServerSocketHandlerState> {
 
-    private static final int DISCONNECTION_DELAY = 1000;
+    private static final int DISCONNECTION_DELAY = 10000;
+
+    // Interval between pings of idle client, several of them may be lost before disconnection
+    private static final long PING_DELAY = DISCONNECTION_DELAY / 4;
 
     // Logger
     private static final Logger logger = LoggerFactory.getLogger("SocketHandler");
@@ -52,21 +44,13 @@ public class ServerSocketHandler extends SocketHandler<DatagramChannel, ServerSo
     private SelectableChannel channel;
 
     // Sessions
-    private HashSet<SocketAddress> knownClients = new HashSet<>();
-    private HashMap<SocketAddress, SelectableChannel> clientAC = new HashMap<>();
-    private HashMap<SelectableChannel, SocketAddress> clientCA = new HashMap<>();
-    private HashMap<SocketAddress, Pair<Integer, LinkedList<Packet>>> messages = new HashMap<>();
-    private HashMap<SocketAddress, Pair<Timer, TimerTask>> timers = new HashMap<>();
+    private SessionManager sessions;
 
     // State data
     private Object stateData;
 
-    // Communicaton Handler
-    private Pair<Pipe, Pipe> newClientPipe;
-
-    // Disconnection task
-    private Lock disconnectionLock;
-    private Pipe disconnectionPipe;
+    // Sessions of new clients, several clients might connect while handling received packets
+    private LinkedList<Session> newSessions;
 
     /**
      * Constructs new {@code ServerComHandler} with provided arguments.
@@ -74,7 +58,7 @@ public class ServerSocketHandler extends SocketHandler<DatagramChannel, ServerSo
      * @param inputChannels input channels of the handler
      * @param outputChannels output channels of the handler
      * @param networkCom network communicator
-     * @throws IOException if cannot open a pipe
+     * @throws IOException if cannot setup the handler
      */
     public ServerSocketHandler(LinkedList<Pair<ChannelType, SelectableChannel>> inputChannels,
                                LinkedList<Pair<ChannelType, SelectableChannel>> outputChannels,
@@ -82,11 +66,32 @@ public class ServerSocketHandler extends SocketHandler<DatagramChannel, ServerSo
         super(inputChannels, outputChannels, ServerSocketHandlerState.Waiting, networkCom);
 
         this.stateData = null;
-        this.newClientPipe = null;
+        this.newSessions = new LinkedList<>();
+
+        this.sessions = new SessionManager(DISCONNECTION_DELAY, this.networkCom);
+    }
+
+    /**
+     * Disconnects clients that exceeded timeout and performs timed work
+     * of the network communicator.
+     *
+     * @return time in milliseconds until the next call is due, 0 if there is no such time
+     */
+    @Override
+    public long tick() {
+        long now = System.currentTimeMillis();
+        for (Session session : this.sessions.expire(now)) {
+            logger.debug("Client " + session.getAddress() + " timed out");
+            session.getNetworkQueue().sink().write(new Event(EventType.Close, null));
+        }
 
-        this.disconnectionLock = new ReentrantLock();
-        this.disconnectionPipe = Pipe.open();
-        this.inputChannels.add(new ImmutablePair<>(ChannelType.Internal, disconnectionPipe.source()));
+        long timeout = this.sessions.getTimeout(now);
+        long comTimeout = super.tick();
+        if (comTimeout > 0 && (timeout == 0 || comTimeout < timeout)) {
+            timeout = comTimeout;
+        }
+
+        return timeout;
     }
 
     @Override
@@ -94,7 +99,6 @@ public class ServerSocketHandler extends SocketHandler<DatagramChannel, ServerSo
         logger.trace("New event from " + type);
 
         switch (type) {
-            case Internal:
             case Com:
             case Network:
                 this.readyChannels = new LinkedList<ChannelType>() {{ add(type); }};
@@ -123,9 +127,6 @@ public class ServerSocketHandler extends SocketHandler<DatagramChannel, ServerSo
                 case NewEvent:
                     this.handleNewEvent();
                     break;
-                case ConnectionTimeout:
-                    this.handleConnectionTimeout();
-                    break;
                 case NewNetworkEvent:
                     this.handleNewNetworkEvent();
                     break;
@@ -152,8 +153,7 @@ public class ServerSocketHandler extends SocketHandler<DatagramChannel, ServerSo
             return;
         }
 
-        if (this.readyChannels.contains(ChannelType.Internal) ||
-            this.readyChannels.contains(ChannelType.Network) ||
+        if (this.readyChannels.contains(ChannelType.Network) ||
             this.readyChannels.contains(ChannelType.Com)) {
 
             ChannelType[] channels = this.readyChannels.toArray(new ChannelType[0]);
@@ -165,9 +165,6 @@ public class ServerSocketHandler extends SocketHandler<DatagramChannel, ServerSo
 
     private void handleNewEvent() {
         switch (this.channelType) {
-            case Internal:
-                this.nextState(ServerSocketHandlerState.ConnectionTimeout);
-                break;
             case Network:
                 this.nextState(ServerSocketHandlerState.NewNetworkEvent);
                 break;
@@ -180,70 +177,23 @@ public class ServerSocketHandler extends SocketHandler<DatagramChannel, ServerSo
         }
     }
 
-    private void handleConnectionTimeout() {
-        SourceChannel inputChannel = (SourceChannel) this.channel;
-
-        Event reqDC;
-        try {
-            reqDC = (Event) NBChannelController.read(inputChannel);
-        } catch (IOException e) {
-            System.err.println("Cannot read from the channel.");
-            this.nextState(ServerSocketHandlerState.Error);
+    private void handleNewNetworkEvent() {
+        Pair<SocketAddress, Packet> data = this.networkCom.receive();
+        if (data == null) {
+            this.nextState(ServerSocketHandlerState.Waiting);
             return;
         }
 
-        SocketAddress address = (SocketAddress) reqDC.getData();
-        SelectableChannel clientChannel = this.clientAC.get(address);
-
-        Event reqCL = new Event(EventType.Close, null);
-
-        SinkChannel clientChannelOutput = (SinkChannel) clientChannel;
-        try {
-            NBChannelController.write(clientChannelOutput, reqCL);
-        } catch (IOException | NullPointerException e) {
-            System.err.println("Cannot write to the channel.");
-            this.nextState(ServerSocketHandlerState.Error);
-        }
-
-        this.knownClients.remove(address);
-        this.clientAC.remove(address);
-        this.clientCA.remove(channel);
-        this.messages.remove(address);
-        this.timers.remove(address);
-
-        this.nextState(ServerSocketHandlerState.Waiting);
-    }
-
-    private void handleNewNetworkEvent() {
-        Pair<SocketAddress, Packet> data = this.networkCom.receive();
         this.stateData = data;
 
         SocketAddress address = data.getKey();
-        if (this.knownClients.contains(address)) {
-            this.nextState(ServerSocketHandlerState.NewNetworkPacket);
-        } else {
-            Pipe client_socket, socket_client;
-            try {
-                client_socket = Pipe.open();
-                socket_client = Pipe.open();
-            } catch (IOException e) {
-                System.err.println("Cannot write to the channel.");
-                this.nextState(ServerSocketHandlerState.Error);
-                return;
-            }
-
-            this.knownClients.add(address);
-            this.clientAC.put(address, socket_client.sink());
-            this.clientCA.put(client_socket.source(), address);
-            this.messages.put(address, new ImmutablePair<>(1, new LinkedList<>()));
-
-            Timer timer = new Timer();
-            this.timers.put(address, new ImmutablePair<>(timer, null));
-
-            this.newClientPipe = new ImmutablePair<>(socket_client, client_socket);
-
-            this.nextState(ServerSocketHandlerState.NewNetworkPacket);
+        if (this.sessions.get(address) == null) {
+            Session session = this.sessions.open(address, System.currentTimeMillis());
+            this.newSessions.add(session);
+            logger.debug("Client " + address + " connected");
         }
+
+        this.nextState(ServerSocketHandlerState.NewNetworkPacket);
     }
 
     private void handleNewNetworkPacket() {
@@ -252,85 +202,64 @@ public class ServerSocketHandler extends SocketHandler<DatagramChannel, ServerSo
 
         SocketAddress client = data.getKey();
 
-        Pair<Timer, TimerTask> item = this.timers.get(client);
-        Timer timer = item.getLeft();
-        TimerTask task = item.getRight();
-
-        if (task != null) {
-            task.cancel();
-        }
-
-        TimerTask newTask = new DisconnectionTask(
-            this.disconnectionLock,
-            this.disconnectionPipe.sink(),
-            client
-        );
-        timer.schedule(newTask, DISCONNECTION_DELAY);
-        this.timers.put(client, new ImmutablePair<>(timer, newTask));
+        this.sessions.touch(client, System.currentTimeMillis());
 
+        // Reading the rest of received packets
         Packet packet = data.getValue();
-        if (packet.getType() == EventType.Ping) {
-            this.nextState(ServerSocketHandlerState.Waiting);
+        if (!(packet.getData() instanceof Event)) {
+            logger.warn("Packet " + packet.getType() + " from " + client + " carries no event, ignoring.");
+            this.nextState(ServerSocketHandlerState.NewNetworkEvent);
             return;
         }
 
-        if (this.messages.get(client) == null) {
-            this.messages.put(client, new ImmutablePair<>(1, new LinkedList<>()));
-        }
-
-        Pair<Integer, LinkedList<Packet>> message = this.messages.get(client);
-        Integer requiredLength = message.getLeft();
-        LinkedList<Packet> receivedPackets = message.getRight();
-
-        receivedPackets.push(packet);
-
-        if (requiredLength == receivedPackets.size()) {
-            this.stateData = client;
+        if (packet.getType() == EventType.Ping) {
+            // Client pinging with another interval is told the right one
+            Object delay = ((Event) packet.getData()).getData();
+            if (!(delay instanceof Long) || (Long) delay != PING_DELAY) {
+                Event respPG = new Event(EventType.Ping, PING_DELAY);
+                this.networkCom.send(new Packet(EventType.Ping, respPG), client);
+            }
 
-            this.nextState(ServerSocketHandlerState.CompletedMessage);
-        } else {
-            this.nextState(ServerSocketHandlerState.Waiting);
+            this.nextState(ServerSocketHandlerState.NewNetworkEvent);
+            return;
         }
+
+        this.nextState(ServerSocketHandlerState.CompletedMessage);
     }
 
     private void handleCompletedMessage() {
-        SocketAddress address = (SocketAddress) this.stateData;
-
-        Pair<Integer, LinkedList<Packet>> message = this.messages.get(address);
-        this.messages.remove(address);
+        @SuppressWarnings("unchecked")
+        Pair<SocketAddress, Packet> data = (Pair<SocketAddress, Packet>) this.stateData;
+        this.stateData = null;
 
-        Event event = (Event) message.getValue().getLast().getData();
-        // logger.info("Event type: " + event.getType());
+        SocketAddress address = data.getKey();
+        Event event = (Event) data.getValue().getData();
 
-        SelectableChannel outputChannel = this.clientAC.get(address);
-        SinkChannel channel = (SinkChannel) outputChannel;
-        try {
-            NBChannelController.write(channel, event);
-        } catch (IOException e) {
-            System.err.println("Cannot write to the channel.");
-            this.nextState(ServerSocketHandlerState.Error);
-            return;
-        }
+        Session session = this.sessions.get(address);
+        session.getNetworkQueue().sink().write(event);
 
-        this.nextState(ServerSocketHandlerState.Waiting);
+        // Reading the rest of received packets
+        this.nextState(ServerSocketHandlerState.NewNetworkEvent);
     }
 
     private void handleNewComEvent() {
-        SourceChannel inputChannel = (SourceChannel) this.channel;
+        Session session = this.sessions.get(this.channel);
+        if (session == null) {
+            this.nextState(ServerSocketHandlerState.Waiting);
+            return;
+        }
 
         Event reqNC;
         try {
-            reqNC = (Event) NBChannelController.read(inputChannel);
+            reqNC = (Event) session.getComQueue().source().read();
         } catch (IOException e) {
             System.err.println("Cannot read from the channel.");
             this.nextState(ServerSocketHandlerState.Waiting);
             return;
         }
 
-        SocketAddress address = this.clientCA.get(this.channel);
-
         Packet packet = new Packet(reqNC.getType(), reqNC);
-        this.networkCom.send(packet, address);
+        this.networkCom.send(packet, session.getAddress());
 
         this.nextState(ServerSocketHandlerState.Waiting);
     }
@@ -341,14 +270,33 @@ public class ServerSocketHandler extends SocketHandler<DatagramChannel, ServerSo
         logger.warn("Error occured while processing the last state. Resetting...");
     }
 
-    public boolean hasNewClient() {
-        return this.newClientPipe != null;
+    public boolean hasNewSession() {
+        return !this.newSessions.isEmpty();
     }
 
-    public Pair<Pipe, Pipe> getNewClientPipe() {
-        Pair<Pipe, Pipe> result = this.newClientPipe;
-        this.newClientPipe = null;
-        return result;
+    public Session pollNewSession() {
+        return this.newSessions.poll();
+    }
+
+    /**
+     * Closes {@code session} after its handler was shut down.
+     * Queue from the handler stops being an input channel.
+     *
+     * @param session session to close
+     */
+    public void closeSession(Session session) {
+        this.removeInputChannel(session.getComQueue().source());
+        this.removeOutputChannel(session.getNetworkQueue().sink());
+
+        this.sessions.close(session);
+        logger.debug("Client " + session.getAddress() + " disconnected");
+    }
+
+    /**
+     * @return sessions of the clients
+     */
+    public SessionManager getSessions() {
+        return this.sessions;
     }
 
 }
@@ -0,0 +1,102 @@
+package server.interpreter;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+
+import core.models.humanBeing.HumanBeing;
+
+/**
+ * Base class for collection stores keeping attached secondary
+ * indexes in sync with the elements.
+ *
+ * @author ivatolm
+ */
+public abstract class AbstractCollectionStore implements CollectionStore {
+
+    /** Attached secondary indexes */
+    private LinkedList<CollectionIndex> indexes = new LinkedList<>();
+
+    /** Elements added while notifications of indexes are suspended, null if not suspended */
+    private ArrayList<HumanBeing> pendingIndexAdds;
+
+    @Override
+    public void addIndex(CollectionIndex index) {
+        for (HumanBeing hb : this) {
+            index.add(hb);
+        }
+
+        this.indexes.add(index);
+    }
+
+    @Override
+    public int addAll(HumanBeing[] elements) {
+        ArrayList<HumanBeing> added = new ArrayList<>();
+
+        this.pendingIndexAdds = added;
+        try {
+            for (HumanBeing hb : elements) {
+                this.add(hb);
+            }
+        } finally {
+            this.pendingIndexAdds = null;
+
+            if (!added.isEmpty()) {
+                HumanBeing[] addedArray = added.toArray(new HumanBeing[0]);
+                for (CollectionIndex index : this.indexes) {
+                    index.addAll(addedArray);
+                }
+            }
+        }
+
+        return added.size();
+    }
+
+    /**
+     * Notifies indexes about added element.
+     *
+     * @param hb added element
+     */
+    protected void indexAdd(HumanBeing hb) {
+        if (this.pendingIndexAdds != null) {
+            this.pendingIndexAdds.add(hb);
+            return;
+        }
+
+        for (CollectionIndex index : this.indexes) {
+            index.add(hb);
+        }
+    }
+
+    /**
+     * Notifies indexes about removed element.
+     *
+     * @param hb removed element
+     */
+    protected void indexRemove(HumanBeing hb) {
+        for (CollectionIndex index : this.indexes) {
+            index.remove(hb);
+        }
+    }
+
+    /**
+     * Notifies indexes about replaced element.
+     *
+     * @param prev previous version of the element
+     * @param hb new version of the element
+     */
+    protected void indexReplace(HumanBeing prev, HumanBeing hb) {
+        for (CollectionIndex index : this.indexes) {
+            index.replace(prev, hb);
+        }
+    }
+
+    /**
+     * Notifies indexes about removal of all elements.
+     */
+    protected void indexClear() {
+        for (CollectionIndex index : this.indexes) {
+            index.clear();
+        }
+    }
+
+}
@@ -0,0 +1,238 @@
+package server.interpreter;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import core.models.humanBeing.HumanBeing;
+
+/**
+ * Collection store backed by an array with an id index.
+ * Elements are kept contiguously in insertion order. Removed elements
+ * leave empty slots which are compacted once they outnumber live
+ * elements, so removals by id and from the head stay constant-time
+ * (amortized) and iteration walks a flat array.
+ *
+ * @author ivatolm
+ */
+public class ArrayCollectionStore extends AbstractCollectionStore {
+
+    /** Initial capacity of the array */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** Slots of the elements, null for removed ones */
+    private HumanBeing[] elements;
+
+    /** Index of the first slot that may be occupied */
+    private int head;
+
+    /** Index of the first never used slot */
+    private int tail;
+
+    /** Number of live elements */
+    private int size;
+
+    /** Index of slots by element id */
+    private HashMap<Long, Integer> slots;
+
+    /** Number of structural modifications, used by iterators */
+    private int modCount;
+
+    /**
+     * Constructs new empty store.
+     */
+    public ArrayCollectionStore() {
+        this.elements = new HumanBeing[INITIAL_CAPACITY];
+        this.slots = new HashMap<>();
+    }
+
+    @Override
+    public boolean add(HumanBeing hb) {
+        if (this.slots.containsKey(hb.getId())) {
+            return false;
+        }
+
+        if (this.tail == this.elements.length) {
+            this.makeRoom();
+        }
+
+        this.elements[this.tail] = hb;
+        this.slots.put(hb.getId(), this.tail);
+        this.tail++;
+        this.size++;
+        this.modCount++;
+
+        this.indexAdd(hb);
+        return true;
+    }
+
+    @Override
+    public boolean replace(HumanBeing hb) {
+        Integer slot = this.slots.get(hb.getId());
+        if (slot == null) {
+            return false;
+        }
+
+        HumanBeing prev = this.elements[slot];
+        this.elements[slot] = hb;
+
+        this.indexReplace(prev, hb);
+        return true;
+    }
+
+    @Override
+    public HumanBeing get(Long id) {
+        Integer slot = this.slots.get(id);
+        return slot == null ? null : this.elements[slot];
+    }
+
+    @Override
+    public boolean contains(Long id) {
+        return this.slots.containsKey(id);
+    }
+
+    @Override
+    public HumanBeing remove(Long id) {
+        Integer slot = this.slots.remove(id);
+        if (slot == null) {
+            return null;
+        }
+
+        HumanBeing result = this.elements[slot];
+        this.elements[slot] = null;
+        this.size--;
+        this.modCount++;
+
+        if (this.size == 0) {
+            this.head = 0;
+            this.tail = 0;
+        } else {
+            while (this.elements[this.head] == null) {
+                this.head++;
+            }
+
+            if (this.tail - this.head > 2 * this.size + INITIAL_CAPACITY) {
+                this.compact();
+            }
+        }
+
+        this.indexRemove(result);
+        return result;
+    }
+
+    @Override
+    public HumanBeing getFirst() {
+        return this.size == 0 ? null : this.elements[this.head];
+    }
+
+    @Override
+    public HumanBeing removeFirst() {
+        if (this.size == 0) {
+            return null;
+        }
+
+        return this.remove(this.elements[this.head].getId());
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(this.elements, 0, this.tail, null);
+        this.slots.clear();
+        this.head = 0;
+        this.tail = 0;
+        this.size = 0;
+        this.modCount++;
+
+        this.indexClear();
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public HumanBeing[] toArray() {
+        HumanBeing[] result = new HumanBeing[this.size];
+
+        int j = 0;
+        for (int i = this.head; i < this.tail; i++) {
+            if (this.elements[i] != null) {
+                result[j++] = this.elements[i];
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public Iterator<HumanBeing> iterator() {
+        return new Iterator<HumanBeing>() {
+            private int cursor = ArrayCollectionStore.this.head;
+            private final int expectedModCount = ArrayCollectionStore.this.modCount;
+
+            @Override
+            public boolean hasNext() {
+                HumanBeing[] elements = ArrayCollectionStore.this.elements;
+                int tail = ArrayCollectionStore.this.tail;
+
+                while (this.cursor < tail && elements[this.cursor] == null) {
+                    this.cursor++;
+                }
+
+                return this.cursor < tail;
+            }
+
+            @Override
+            public HumanBeing next() {
+                if (this.expectedModCount != ArrayCollectionStore.this.modCount) {
+                    throw new ConcurrentModificationException();
+                }
+
+                if (!this.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                return ArrayCollectionStore.this.elements[this.cursor++];
+            }
+        };
+    }
+
+    /**
+     * Frees space at the end of the array either by compacting
+     * removed slots or by growing the array.
+     */
+    private void makeRoom() {
+        if (this.tail - this.size > this.size) {
+            this.compact();
+        }
+
+        if (this.tail == this.elements.length) {
+            this.elements = Arrays.copyOf(this.elements, this.elements.length * 2);
+        }
+    }
+
+    /**
+     * Moves live elements to the beginning of the array and
+     * updates their slots in the index.
+     */
+    private void compact() {
+        int j = 0;
+        for (int i = this.head; i < this.tail; i++) {
+            HumanBeing hb = this.elements[i];
+            if (hb != null) {
+                this.elements[j] = hb;
+                this.slots.put(hb.getId(), j);
+                j++;
+            }
+        }
+
+        Arrays.fill(this.elements, j, this.tail, null);
+        this.head = 0;
+        this.tail = j;
+        this.modCount++;
+    }
+
+}
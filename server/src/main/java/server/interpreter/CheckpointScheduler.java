@@ -0,0 +1,87 @@
+package server.interpreter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Class for saving collection periodically without explicit {@code save}.
+ * Checkpoint is started when interval since the previous one has passed
+ * or when number of unsaved changes reached the limit. Scheduler has no
+ * thread of its own, it's polled by the event loops, and checkpoints are
+ * written in background by the interpreter. Several event loops may
+ * poll the same scheduler.
+ *
+ * @author ivatolm
+ */
+public class CheckpointScheduler {
+
+    /** Delay before retrying checkpoint if save is running */
+    private static final long RETRY_DELAY = 100;
+
+    /** Logger */
+    private static final Logger logger = LoggerFactory.getLogger("Checkpoint");
+
+    /** Interpreter to checkpoint */
+    private Interpreter interpreter;
+
+    /** Interval between checkpoints in milliseconds, 0 if disabled */
+    private long interval;
+
+    /** Number of changes triggering checkpoint, 0 if disabled */
+    private int mutations;
+
+    /** Time when the next checkpoint is due by interval */
+    private long deadline;
+
+    /**
+     * Constructs new instance with provided arguments.
+     *
+     * @param interpreter interpreter to checkpoint
+     * @param interval interval between checkpoints in milliseconds, 0 to disable
+     * @param mutations number of changes triggering checkpoint, 0 to disable
+     */
+    public CheckpointScheduler(Interpreter interpreter, long interval, int mutations) {
+        this.interpreter = interpreter;
+        this.interval = interval;
+        this.mutations = mutations;
+        this.deadline = System.currentTimeMillis() + interval;
+    }
+
+    /**
+     * Returns time the event loop may wait for events before calling {@code tick}.
+     *
+     * @return timeout in milliseconds, 0 if there is no need to wake up
+     */
+    public synchronized long getTimeout() {
+        if (this.interval <= 0) {
+            return 0;
+        }
+
+        return Math.max(1, this.deadline - System.currentTimeMillis());
+    }
+
+    /**
+     * Starts checkpoint if it's due.
+     */
+    public synchronized void tick() {
+        long now = System.currentTimeMillis();
+
+        boolean byInterval = this.interval > 0 && now >= this.deadline;
+        boolean byMutations = this.mutations > 0 && this.interpreter.getDirty() >= this.mutations;
+        if (!byInterval && !byMutations) {
+            return;
+        }
+
+        int dirty = this.interpreter.getDirty();
+        if (this.interpreter.checkpoint()) {
+            if (dirty > 0) {
+                logger.info("Checkpoint of {} changes started", dirty);
+            }
+
+            this.deadline = now + this.interval;
+        } else if (byInterval) {
+            this.deadline = now + RETRY_DELAY;
+        }
+    }
+
+}
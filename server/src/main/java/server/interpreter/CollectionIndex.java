@@ -0,0 +1,55 @@
+package server.interpreter;
+
+import core.models.humanBeing.HumanBeing;
+
+/**
+ * Interface for secondary indexes over {@code CollectionStore}.
+ * Store notifies attached indexes about every change of its elements.
+ *
+ * @author ivatolm
+ */
+public interface CollectionIndex {
+
+    /**
+     * Called when {@code hb} was added to the store.
+     *
+     * @param hb added element
+     */
+    void add(HumanBeing hb);
+
+    /**
+     * Called when {@code hb} was removed from the store.
+     *
+     * @param hb removed element
+     */
+    void remove(HumanBeing hb);
+
+    /**
+     * Called when {@code prev} was replaced by {@code hb} at the same
+     * position of the store.
+     *
+     * @param prev previous version of the element
+     * @param hb new version of the element
+     */
+    default void replace(HumanBeing prev, HumanBeing hb) {
+        this.remove(prev);
+        this.add(hb);
+    }
+
+    /**
+     * Called when all elements were removed from the store.
+     */
+    void clear();
+
+    /**
+     * Called once after elements were added to the store in bulk.
+     *
+     * @param elements added elements
+     */
+    default void addAll(HumanBeing[] elements) {
+        for (HumanBeing hb : elements) {
+            this.add(hb);
+        }
+    }
+
+}
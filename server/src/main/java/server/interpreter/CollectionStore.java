@@ -0,0 +1,133 @@
+package server.interpreter;
+
+import core.models.humanBeing.HumanBeing;
+
+/**
+ * Interface for storing collection of {@code HumanBeing}.
+ * Implementations must keep elements in insertion order and must not
+ * contain two elements with the same id.
+ *
+ * @author ivatolm
+ */
+public interface CollectionStore extends Iterable<HumanBeing> {
+
+    /**
+     * Adds {@code hb} to the end of the collection.
+     *
+     * @param hb element to add
+     * @return true if added, false if element with the same id exists
+     */
+    boolean add(HumanBeing hb);
+
+    /**
+     * Adds {@code elements} to the end of the collection skipping ones
+     * with existing ids. Secondary indexes are updated once at the end.
+     *
+     * @param elements elements to add
+     * @return number of added elements
+     */
+    int addAll(HumanBeing[] elements);
+
+    /**
+     * Replaces element with the same id as {@code hb} keeping its position.
+     *
+     * @param hb new version of the element
+     * @return true if replaced, false if there is no element with such id
+     */
+    boolean replace(HumanBeing hb);
+
+    /**
+     * Returns element with {@code id}.
+     *
+     * @param id id of the element
+     * @return element or null if there is no such element
+     */
+    HumanBeing get(Long id);
+
+    /**
+     * Checks if there is element with {@code id}.
+     *
+     * @param id id of the element
+     * @return true if exists, else false
+     */
+    boolean contains(Long id);
+
+    /**
+     * Removes element with {@code id}.
+     *
+     * @param id id of the element
+     * @return removed element or null if there is no such element
+     */
+    HumanBeing remove(Long id);
+
+    /**
+     * Returns first element of the collection.
+     *
+     * @return first element or null if collection is empty
+     */
+    HumanBeing getFirst();
+
+    /**
+     * Removes first element of the collection.
+     *
+     * @return removed element or null if collection is empty
+     */
+    HumanBeing removeFirst();
+
+    /**
+     * Removes all elements of the collection.
+     */
+    void clear();
+
+    /**
+     * @return number of elements in the collection
+     */
+    int size();
+
+    /**
+     * @return true if collection is empty, else false
+     */
+    default boolean isEmpty() {
+        return this.size() == 0;
+    }
+
+    /**
+     * Returns elements of the collection in insertion order.
+     * Returned array is not backed by the store.
+     *
+     * @return array of the elements
+     */
+    HumanBeing[] toArray();
+
+    /**
+     * Attaches secondary {@code index} to the store. Index is filled
+     * with current elements and kept in sync with further changes.
+     *
+     * @param index index to attach
+     */
+    void addIndex(CollectionIndex index);
+
+    /**
+     * Creates new store by its {@code type}:
+     *  array   -- {@code ArrayCollectionStore};
+     *  indexed -- {@code IndexedCollectionStore};
+     *  linked  -- {@code LinkedCollectionStore}.
+     *
+     * @param type type of the store
+     * @return new empty store
+     * @throws IllegalArgumentException if type is unknown
+     */
+    static CollectionStore create(String type) {
+        switch (type) {
+            case "array":
+                return new ArrayCollectionStore();
+            case "indexed":
+                return new IndexedCollectionStore();
+            case "linked":
+                return new LinkedCollectionStore();
+            default:
+                throw new IllegalArgumentException("Unknown collection store: " + type);
+        }
+    }
+
+}
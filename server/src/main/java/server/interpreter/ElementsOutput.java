@@ -0,0 +1,51 @@
+package server.interpreter;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import core.models.humanBeing.HumanBeing;
+
+/**
+ * Iterator lazily rendering elements of the collection for output.
+ * Works over a snapshot of the elements, so the collection may be
+ * modified while output is being sent.
+ *
+ * @author ivatolm
+ */
+public class ElementsOutput implements Iterator<String> {
+
+    /** Elements to render */
+    private HumanBeing[] elements;
+
+    /** Index of the next element */
+    private int cursor;
+
+    /**
+     * Constructs new {@code ElementsOutput} with provided arguments.
+     *
+     * @param elements snapshot of the elements
+     */
+    public ElementsOutput(HumanBeing[] elements) {
+        this.elements = elements;
+        this.cursor = 0;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return this.cursor < this.elements.length;
+    }
+
+    @Override
+    public String next() {
+        if (!this.hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        HumanBeing hb = this.elements[this.cursor];
+        this.elements[this.cursor] = null;
+        this.cursor++;
+
+        return hb.toString() + '\n';
+    }
+
+}
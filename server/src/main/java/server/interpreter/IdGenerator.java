@@ -0,0 +1,126 @@
+package server.interpreter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Generator of unique ids for new elements.
+ * Ids are taken from a counter that is always greater than any id seen
+ * in the collection, so they don't collide with each other and with ids
+ * read from the database after restart.
+ *
+ * If generator is backed by a file, ids are reserved in the file in
+ * blocks before they are given out. After restart counter starts from
+ * the end of the last reservation, so ids of removed elements are not
+ * given out again even if they were the greatest ones.
+ *
+ * @author ivatolm
+ */
+public class IdGenerator {
+
+    /** Number of ids reserved in the file at once */
+    private static final long RESERVATION_SIZE = 1000;
+
+    /** Next id to give out */
+    private long next;
+
+    /** First id that is not reserved in the file */
+    private long reserved;
+
+    /** File with the end of the reservation, null if ids are not persisted */
+    private Path file;
+
+    /**
+     * Constructs new instance giving out ids starting from {@code first}.
+     * Ids are not persisted.
+     *
+     * @param first first id
+     */
+    public IdGenerator(long first) {
+        this.next = Math.max(1, first);
+        this.reserved = Long.MAX_VALUE;
+        this.file = null;
+    }
+
+    /**
+     * Constructs new instance continuing the reservation kept in {@code file}.
+     * If file doesn't exist, ids start from 1.
+     *
+     * @param file file with the end of the reservation
+     */
+    public IdGenerator(Path file) {
+        this.file = file;
+        this.next = 1;
+
+        try {
+            String value = new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim();
+            this.next = Math.max(1, Long.parseLong(value));
+        } catch (NoSuchFileException e) {
+            // Nothing was given out yet
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("Cannot read id reservation, continuing from the greatest id: " + e);
+        }
+
+        this.reserved = this.next;
+    }
+
+    /**
+     * @return new unique id
+     */
+    public synchronized long nextId() {
+        if (this.next >= this.reserved) {
+            this.reserve(this.next + RESERVATION_SIZE);
+        }
+
+        return this.next++;
+    }
+
+    /**
+     * Makes sure {@code id} of the existing element won't be given out.
+     *
+     * @param id id of the existing element
+     */
+    public synchronized void observe(long id) {
+        this.next = Math.max(this.next, id + 1);
+    }
+
+    /**
+     * Writes end of the reservation to the file. Ids are given out even
+     * if it can't be written, they just may be given out again after restart.
+     * Failed reservation still covers the block in memory, so the file is
+     * tried again only when the block is used up.
+     *
+     * @param end first id that is not reserved
+     */
+    private void reserve(long end) {
+        this.reserved = end;
+
+        Path temporary = Paths.get(this.file + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temporary,
+                                                    StandardOpenOption.CREATE,
+                                                    StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.wrap((end + "\n").getBytes(StandardCharsets.UTF_8)));
+            channel.force(true);
+        } catch (IOException e) {
+            System.err.println("Cannot reserve ids: " + e);
+            return;
+        }
+
+        try {
+            Files.move(temporary, this.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Cannot reserve ids: " + e);
+        }
+    }
+
+}
@@ -0,0 +1,114 @@
+package server.interpreter;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import core.models.humanBeing.HumanBeing;
+
+/**
+ * Collection store backed by {@code LinkedHashMap} keyed by id.
+ * Lookups, updates and removals by id take constant time, while
+ * iteration still follows the order in which elements were added.
+ *
+ * @author ivatolm
+ */
+public class IndexedCollectionStore extends AbstractCollectionStore {
+
+    /** Elements of the collection indexed by id */
+    private LinkedHashMap<Long, HumanBeing> elements;
+
+    /**
+     * Constructs new empty store.
+     */
+    public IndexedCollectionStore() {
+        this.elements = new LinkedHashMap<>();
+    }
+
+    @Override
+    public boolean add(HumanBeing hb) {
+        if (this.elements.containsKey(hb.getId())) {
+            return false;
+        }
+
+        this.elements.put(hb.getId(), hb);
+
+        this.indexAdd(hb);
+        return true;
+    }
+
+    @Override
+    public boolean replace(HumanBeing hb) {
+        HumanBeing prev = this.elements.get(hb.getId());
+        if (prev == null) {
+            return false;
+        }
+
+        this.elements.put(hb.getId(), hb);
+
+        this.indexReplace(prev, hb);
+        return true;
+    }
+
+    @Override
+    public HumanBeing get(Long id) {
+        return this.elements.get(id);
+    }
+
+    @Override
+    public boolean contains(Long id) {
+        return this.elements.containsKey(id);
+    }
+
+    @Override
+    public HumanBeing remove(Long id) {
+        HumanBeing result = this.elements.remove(id);
+        if (result != null) {
+            this.indexRemove(result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public HumanBeing getFirst() {
+        Iterator<HumanBeing> iter = this.elements.values().iterator();
+        return iter.hasNext() ? iter.next() : null;
+    }
+
+    @Override
+    public HumanBeing removeFirst() {
+        Iterator<HumanBeing> iter = this.elements.values().iterator();
+        if (!iter.hasNext()) {
+            return null;
+        }
+
+        HumanBeing result = iter.next();
+        iter.remove();
+
+        this.indexRemove(result);
+        return result;
+    }
+
+    @Override
+    public void clear() {
+        this.elements.clear();
+
+        this.indexClear();
+    }
+
+    @Override
+    public int size() {
+        return this.elements.size();
+    }
+
+    @Override
+    public HumanBeing[] toArray() {
+        return this.elements.values().toArray(new HumanBeing[0]);
+    }
+
+    @Override
+    public Iterator<HumanBeing> iterator() {
+        return this.elements.values().iterator();
+    }
+
+}
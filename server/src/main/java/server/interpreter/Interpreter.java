@@ -1,9 +1,17 @@
 package server.interpreter;
 
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Collectors;
 
 import core.command.Command;
@@ -16,19 +24,79 @@ import core.models.Validatable;
 import core.models.car.Car;
 import core.models.coordinates.Coordinates;
 import core.models.humanBeing.HumanBeing;
+import server.database.AsyncSaver;
+import server.database.BinaryDatabase;
+import server.database.CSVDatabase;
 
 /**
  * Standalone class for interpreting commands.
+ * Commands may be executed by several threads at once: read-only ones
+ * are executed concurrently, others exclusively.
  *
  * @author ivatolm
  */
 public class Interpreter {
 
+    /** Commands that don't change the collection */
+    private static final EnumSet<CommandType> READ_ONLY_COMMANDS = EnumSet.of(
+        CommandType.NOOP,
+        CommandType.HELP,
+        CommandType.INFO,
+        CommandType.SHOW,
+        CommandType.EXECUTE_SCRIPT,
+        CommandType.HEAD,
+        CommandType.HISTORY,
+        CommandType.COUNT_GREATER_THAN_MINUTES_OF_WAITING,
+        CommandType.FILTER_STARTS_WITH_NAME,
+        CommandType.PRINT_FIELD_DESCENDING_MINUTES_OF_WAITING
+    );
+
+    /** Commands that take the lock by themselves */
+    private static final EnumSet<CommandType> SELF_LOCKING_COMMANDS = EnumSet.of(
+        CommandType.IMPORT
+    );
+
     /** Link to database */
     private DataBase<HumanBeing> database;
 
     /** Collection of objects (described in the task) */
-    static private LinkedList<HumanBeing> collection;
+    private CollectionStore collection;
+
+    /** Index of the collection by minutesOfWaiting */
+    private MinutesOfWaitingIndex minutesOfWaitingIndex;
+
+    /** Index of the collection by name */
+    private NameIndex nameIndex;
+
+    /** Generator of ids for new elements */
+    private IdGenerator idGenerator;
+
+    /** Directory of the files of IMPORT command */
+    private Path importDirectory;
+
+    /** Background writer of the collection to the database */
+    private AsyncSaver<HumanBeing> saver;
+
+    /** Number of changes made since the last started save */
+    private int dirty;
+
+    /** Time of the first change made since the last started save */
+    private long dirtySince;
+
+    /** Number of changes covered by the running save, they are unsaved until it succeeds */
+    private int saving;
+
+    /** Time of the first change covered by the running save */
+    private long savingSince;
+
+    /** Lock of the counters of changes, they are updated by commands and by background writer */
+    private final Object dirtyLock = new Object();
+
+    /** Number of checkpoints started */
+    private int checkpoints;
+
+    /** Age of the oldest change saved by the last checkpoint in milliseconds */
+    private long lastCheckpointLag = -1;
 
     /** Was database read or it was created? */
     private final boolean wasRead;
@@ -36,40 +104,84 @@ public class Interpreter {
     /** History of interpreted commands */
     private LinkedList<Command> history;
 
-    /** Output produces by the command */
-    private String commandOutput;
+    /** Output produces by the command, separate for each thread */
+    private final ThreadLocal<String> commandOutput = new ThreadLocal<>();
 
-    /** Result of the command */
-    private String commandResult;
+    /** Output produced by the command lazily, entry by entry, separate for each thread */
+    private final ThreadLocal<Iterator<String>> commandOutputChunks = new ThreadLocal<>();
+
+    /** Result of the command, separate for each thread */
+    private final ThreadLocal<String> commandResult = new ThreadLocal<>();
+
+    /** Lock of the collection, read-only commands are executed concurrently */
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
 
     /** Running flag */
-    private Boolean isRunning = true;
+    private volatile boolean isRunning = true;
 
     /** Id validator */
     private IdValidator idValidator;
 
     /**
-     * Constructs instance of the class.
+     * Constructs instance of the class with default collection store.
      *
      * @param database link to database
      */
     public Interpreter(DataBase<HumanBeing> database) {
+        this(database, new ArrayCollectionStore());
+    }
+
+    /**
+     * Constructs instance of the class.
+     *
+     * @param database link to database
+     * @param collection empty store for the collection
+     */
+    public Interpreter(DataBase<HumanBeing> database, CollectionStore collection) {
+        this(database, collection, Paths.get(""), new IdGenerator(1));
+    }
+
+    /**
+     * Constructs instance of the class.
+     *
+     * @param database link to database
+     * @param collection empty store for the collection
+     * @param importDirectory directory of the files of IMPORT command
+     * @param idGenerator generator of ids for new elements
+     */
+    public Interpreter(DataBase<HumanBeing> database, CollectionStore collection,
+                       Path importDirectory, IdGenerator idGenerator) {
+        this.importDirectory = importDirectory.toAbsolutePath().normalize();
         this.database = database;
         this.database.setDummyObject(new HumanBeing());
+        this.collection = collection;
+        this.idGenerator = idGenerator;
 
         LinkedList<HumanBeing> data = this.database.read();
         if (data != null) {
-            Interpreter.collection = data;
+            for (HumanBeing hb : data) {
+                if (!this.collection.add(hb)) {
+                    System.err.println("Duplicate id was skipped: " + hb.getId());
+                }
+                this.idGenerator.observe(hb.getId());
+            }
             this.wasRead = true;
         } else {
-            Interpreter.collection = new LinkedList<>();
             this.wasRead = false;
         }
 
+        this.minutesOfWaitingIndex = new MinutesOfWaitingIndex();
+        this.collection.addIndex(this.minutesOfWaitingIndex);
+
+        this.nameIndex = new NameIndex();
+        this.collection.addIndex(this.nameIndex);
+
+        this.saver = new AsyncSaver<>(this.database);
+
         this.history = new LinkedList<>();
 
         this.idValidator = (Argument arg) -> {
-            return Interpreter.HasItemWithId(arg);
+            return this.hasItemWithId(arg);
         };
     }
 
@@ -83,13 +195,41 @@ public class Interpreter {
      * @return list of commands for later interpretation or null
      */
     public String[] exec(Command cmd) {
-        LinkedList<Argument> args = cmd.getArgsValues();
+        synchronized (this.history) {
+            if (this.history.size() > 12) {
+                this.history.removeFirst();
+            }
+
+            this.history.add(cmd);
+        }
+
+        Lock lock = null;
+        if (READ_ONLY_COMMANDS.contains(cmd.getType())) {
+            lock = this.lock.readLock();
+        } else if (!SELF_LOCKING_COMMANDS.contains(cmd.getType())) {
+            lock = this.lock.writeLock();
+        }
 
-        if (this.history.size() > 12) {
-            this.history.removeFirst();
+        if (lock == null) {
+            return this.dispatch(cmd);
         }
 
-        this.history.add(cmd);
+        lock.lock();
+        try {
+            return this.dispatch(cmd);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Executes {@code cmd} holding the required lock.
+     *
+     * @param cmd command for interpretation
+     * @return list of commands for later interpretation or null
+     */
+    private String[] dispatch(Command cmd) {
+        LinkedList<Argument> args = cmd.getArgsValues();
 
         switch (cmd.getType()) {
             case NOOP:
@@ -143,6 +283,9 @@ public class Interpreter {
             case PRINT_FIELD_DESCENDING_MINUTES_OF_WAITING:
                 return this.printFieldDescendingMinutesOfWaiting(args);
 
+            case IMPORT:
+                return this.importFile(args);
+
             default:
                 System.err.println("Unknown command.");
         }
@@ -194,7 +337,7 @@ public class Interpreter {
             result += "\n";
         }
 
-        this.commandOutput = result;
+        this.commandOutput.set(result);
 
         return null;
     }
@@ -207,11 +350,37 @@ public class Interpreter {
      */
     private String[] info(LinkedList<Argument> args) {
         String result = "";
-        result += "Type: " + Interpreter.collection.getClass() + "\n";
+        result += "Type: " + this.collection.getClass() + "\n";
         result += "Creation date: " + (this.wasRead ? "unknown" : "recently") + "\n";
-        result += "Size: " + Interpreter.collection.size() + "\n";
+        result += "Size: " + this.collection.size() + "\n";
+        if (this.saver.isInProgress()) {
+            result += "Save: in progress (" + this.saver.getWritten() + "/" + this.saver.getTotal() + ")\n";
+        } else {
+            result += "Save: idle\n";
+        }
+        if (this.saver.getLastDuration() < 0) {
+            result += "Last save: none\n";
+        } else {
+            result += "Last save: " + (this.saver.isLastSucceeded() ? "done" : "failed") +
+                      " in " + this.saver.getLastDuration() + " ms\n";
+        }
+        synchronized (this.dirtyLock) {
+            int unsaved = this.dirty + this.saving;
+            long unsavedSince = this.saving > 0 ? this.savingSince : this.dirtySince;
+
+            result += "Unsaved changes: " + unsaved;
+            if (unsaved > 0) {
+                result += " (oldest " + (System.currentTimeMillis() - unsavedSince) + " ms ago)";
+            }
+            result += "\n";
+        }
+        result += "Checkpoints: " + this.checkpoints;
+        if (this.lastCheckpointLag >= 0) {
+            result += " (last lag " + this.lastCheckpointLag + " ms)";
+        }
+        result += "\n";
 
-        this.commandOutput = result;
+        this.commandOutput.set(result);
 
         return null;
     }
@@ -223,17 +392,7 @@ public class Interpreter {
      * @return list of commands for later interpretation or null
      */
     private String[] show(LinkedList<Argument> args) {
-        String result = "";
-
-        result = Interpreter.collection.stream()
-            .map(hb -> hb.toString() + '\n' + '\n')
-            .collect(Collectors.joining());
-
-        // for (HumanBeing hb : Interpreter.collection) {
-        //     result += hb.toString() + '\n' + '\n';
-        // }
-
-        this.commandOutput = result;
+        this.commandOutputChunks.set(new ElementsOutput(this.collection.toArray()));
 
         return null;
     }
@@ -247,7 +406,7 @@ public class Interpreter {
     private String[] add(LinkedList<Argument> args) {
         LinkedList<Object> res = new LinkedList<>();
 
-        res.add(System.currentTimeMillis());                // id
+        res.add(this.idGenerator.nextId());                 // id
         res.add(args.get(0).getValue());                    // name
         res.add(new Coordinates(args.get(1).getValue(),
                                 args.get(2).getValue()));   // coordinates
@@ -262,12 +421,19 @@ public class Interpreter {
                         args.get(10).getValue()));          // car
 
         HumanBeing instance = new HumanBeing(res);
-        Interpreter.collection.add(instance);
-        if (!Validatable.validate(instance, this.idValidator)) {
-            Interpreter.collection.remove(instance);
+        if (!Validatable.validateFields(instance)) {
             System.err.println("Instance validation failed.");
+            return null;
+        }
+
+        if (!this.collection.add(instance)) {
+            System.err.println("Element with given id already exists: " + instance.getId());
+            return null;
         }
 
+        this.database.logAdd(instance);
+        this.changed();
+
         return null;
     }
 
@@ -280,22 +446,14 @@ public class Interpreter {
     public String[] update(LinkedList<Argument> args) {
         // Checking if object with given id exists
         Long id = (Long) args.get(0).getValue();
-        int index = -1;
-        for (int i = 0; i < Interpreter.collection.size(); i++) {
-            if (id.equals(Interpreter.collection.get(i).getId())) {
-                index = i;
-                break;
-            }
-        }
-
-        if (index == -1) {
+        HumanBeing prevInstance = this.collection.get(id);
+        if (prevInstance == null) {
             System.err.println("There is no element with given id: " + id);
             return null;
         }
 
         LinkedList<Object> res = new LinkedList<>();
 
-        HumanBeing prevInstance = Interpreter.collection.get(index);
         res.add(prevInstance.getId());                      // id
         res.add(args.get(1).getValue());                    // name
         res.add(new Coordinates(args.get(2).getValue(),
@@ -312,7 +470,10 @@ public class Interpreter {
 
         HumanBeing instance = new HumanBeing(res);
         if (Validatable.validate(instance, this.idValidator)) {
-            Interpreter.collection.set(index, instance);
+            this.collection.replace(instance);
+
+            this.database.logUpdate(instance);
+            this.changed();
         } else {
             System.err.println("Instance validation failed.");
         }
@@ -329,20 +490,14 @@ public class Interpreter {
     private String[] removeById(LinkedList<Argument> args) {
         // Checking if object with given id exists
         Long id = (Long) args.get(0).getValue();
-        int index = -1;
-        for (int i = 0; i < Interpreter.collection.size(); i++) {
-            if (id.equals(Interpreter.collection.get(i).getId())) {
-                index = i;
-                break;
-            }
-        }
-
-        if (index == -1) {
+        HumanBeing removed = this.collection.remove(id);
+        if (removed == null) {
             System.err.println("There is no element with given id: " + id);
             return null;
         }
 
-        Interpreter.collection.remove(index);
+        this.database.logRemove(removed);
+        this.changed();
 
         return null;
     }
@@ -354,7 +509,10 @@ public class Interpreter {
      * @return list of commands for later interpretation or null
      */
     private String[] clear(LinkedList<Argument> args) {
-        Interpreter.collection.clear();
+        this.collection.clear();
+
+        this.database.logClear();
+        this.changed();
 
         return null;
     }
@@ -366,7 +524,9 @@ public class Interpreter {
      * @return list of commands for later interpretation or null
      */
     private String[] save(LinkedList<Argument> args) {
-        this.database.write(Interpreter.collection);
+        if (!this.startSave()) {
+            System.err.println("Save is already in progress.");
+        }
 
         return null;
     }
@@ -380,7 +540,7 @@ public class Interpreter {
     private String[] executeScript(LinkedList<Argument> args) {
         String filename = (String) args.get(0).getValue();
 
-        this.commandResult = filename;
+        this.commandResult.set(filename);
 
         return new String[] { filename };
     }
@@ -404,12 +564,16 @@ public class Interpreter {
      * @return list of commands for later interpretation or null
      */
     private String[] removeFirst(LinkedList<Argument> args) {
-        if (Interpreter.collection.isEmpty()) {
+        if (this.collection.isEmpty()) {
             System.err.println("Cannot remove first element, collection is empty.");
             return null;
         }
 
-        Interpreter.collection.removeFirst();
+        HumanBeing removed = this.collection.removeFirst();
+
+        this.database.logRemove(removed);
+        this.changed();
+
         return null;
     }
 
@@ -422,13 +586,13 @@ public class Interpreter {
     private String[] head(LinkedList<Argument> args) {
         String result = "";
 
-        if (Interpreter.collection.isEmpty()) {
+        if (this.collection.isEmpty()) {
             System.err.println("Cannot show first element, collection is empty.");
             return null;
         }
 
-        result += Interpreter.collection.getFirst().toString() + '\n';
-        this.commandOutput = result;
+        result += this.collection.getFirst().toString() + '\n';
+        this.commandOutput.set(result);
 
         return null;
     }
@@ -448,11 +612,13 @@ public class Interpreter {
         //     result += cmd.getType().name() + '\n';
         // }
 
-        result = this.history.stream()
-            .map(h -> h.getType().name() + '\n')
-            .collect(Collectors.joining());
+        synchronized (this.history) {
+            result = this.history.stream()
+                .map(h -> h.getType().name() + '\n')
+                .collect(Collectors.joining());
+        }
 
-        this.commandOutput = result;
+        this.commandOutput.set(result);
 
         return null;
     }
@@ -469,19 +635,11 @@ public class Interpreter {
         Integer minutesOfWaiting = (Integer) args.get(0).getValue();
         minutesOfWaiting = minutesOfWaiting == null ? 0 : minutesOfWaiting;
 
-        int counter = 0;
-        for (HumanBeing hb : Interpreter.collection) {
-            Integer MOF = hb.getMinutesOfWaiting();
-            MOF = MOF == null ? 0 : MOF;
-
-            if (MOF > minutesOfWaiting) {
-                counter++;
-            }
-        }
+        int counter = this.minutesOfWaitingIndex.countGreaterThan(minutesOfWaiting);
 
-        result += counter + '\n';
+        result += counter + "\n";
 
-        this.commandOutput = result;
+        this.commandOutput.set(result);
 
         return null;
     }
@@ -493,16 +651,14 @@ public class Interpreter {
      * @return list of commands for later interpretation or null
      */
     private String[] filterStartsWithName(LinkedList<Argument> args) {
-        String result = "";
-
         String substring = (String) args.get(0).getValue();
-        for (HumanBeing hb : Interpreter.collection) {
-            if (hb.getName().indexOf(substring) >= 0) {
-                result += hb.toString() + '\n' + '\n';
-            }
-        }
 
-        this.commandOutput = result;
+        // Every name contains empty substring
+        if (substring.isEmpty()) {
+            this.commandOutputChunks.set(new ElementsOutput(this.collection.toArray()));
+        } else {
+            this.commandOutputChunks.set(new ElementsOutput(this.nameIndex.search(substring)));
+        }
 
         return null;
     }
@@ -514,67 +670,260 @@ public class Interpreter {
      * @return list of commands for later interpretation or null
      */
     private String[] printFieldDescendingMinutesOfWaiting(LinkedList<Argument> args) {
-        String result = "";
+        this.commandOutputChunks.set(new ElementsOutput(this.minutesOfWaitingIndex.toDescendingArray()));
 
-        class SortByMinutesOfWaiting implements Comparator<HumanBeing> {
-            public int compare(HumanBeing a, HumanBeing b)
-            {
-                Integer aMOF = a.getMinutesOfWaiting();
-                Integer bMOF = b.getMinutesOfWaiting();
+        return null;
+    }
 
-                return (bMOF == null ? 0 : bMOF) -
-                       (aMOF == null ? 0 : aMOF);
-            }
+    /**
+     * IMPORT command, description is provided in {@code Command}.
+     * Elements are validated in parallel and added to the collection at
+     * once, so secondary indexes are rebuilt only one time. Imported
+     * elements are logged in one batch and snapshot of the collection is
+     * started, which drops them from the log once it's written.
+     * Files are read only from the import directory.
+     *
+     * @param args arguments for the command
+     * @return list of commands for later interpretation or null
+     */
+    private String[] importFile(LinkedList<Argument> args) {
+        String filename = (String) args.get(0).getValue();
+
+        long startTime = System.nanoTime();
+
+        Path path = this.resolveImportPath(filename);
+        if (path == null) {
+            System.err.println("File is outside of the import directory: " + filename);
+            this.commandOutput.set("Cannot import file outside of the import directory: " + filename + "\n");
+            return null;
         }
 
-        HumanBeing[] hbs = Interpreter.collection.toArray(new HumanBeing[0]);
-        Arrays.sort(hbs, new SortByMinutesOfWaiting());
+        DataBase<HumanBeing> source;
+        if (filename.endsWith(".bin")) {
+            source = new BinaryDatabase(path.toString());
+        } else {
+            source = new CSVDatabase<>(path.toString());
+        }
+        source.setDummyObject(new HumanBeing());
 
-        for (HumanBeing hb : hbs) {
-            result += hb.toString() + '\n' + '\n';
+        LinkedList<HumanBeing> data = source.read();
+        if (data == null) {
+            System.err.println("Cannot read elements from the file: " + filename);
+            this.commandOutput.set("Cannot read elements from the file: " + filename + "\n");
+            return null;
         }
 
-        this.commandOutput = result;
+        HumanBeing[] read = data.toArray(new HumanBeing[0]);
+        HumanBeing[] valid = Arrays.stream(read)
+            .parallel()
+            .filter(Validatable::validateFields)
+            .toArray(HumanBeing[]::new);
+
+        this.lock.writeLock().lock();
+        try {
+            this.addImported(read.length, valid, startTime);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
 
         return null;
     }
 
     /**
-     * Checks if there is element with {@code id} in collection.
-     * Deprecated in favor of static method {@code HasItemWithId}.
+     * Resolves {@code filename} of the IMPORT command against the import
+     * directory. Absolute paths, paths with {@code ..} and links leading
+     * outside of the directory are rejected.
      *
-     * @param arg id of the element to check
-     * @return true if exists, else false
+     * @param filename filename provided by the client
+     * @return resolved path or null if file is outside of the import directory
      */
-    @Deprecated
-    public boolean hasItemWithId(Argument arg) {
-        Long id = (Long) arg.getValue();
+    private Path resolveImportPath(String filename) {
+        Path path;
+        try {
+            path = Paths.get(filename);
+        } catch (InvalidPathException e) {
+            return null;
+        }
+
+        if (path.isAbsolute() || path.getRoot() != null) {
+            return null;
+        }
+
+        for (Path part : path) {
+            if (part.toString().equals("..")) {
+                return null;
+            }
+        }
 
-        for (HumanBeing hb : Interpreter.collection) {
-            if (id.equals(hb.getId())) {
-                return true;
+        Path result = this.importDirectory.resolve(path);
+        try {
+            if (!result.toRealPath().startsWith(this.importDirectory.toRealPath())) {
+                return null;
             }
+        } catch (IOException e) {
+            // Missing file is reported when it's read
         }
 
-        return false;
+        return result;
     }
 
     /**
-     * Statically checks if there is an element with {@code id} in the collection.
+     * Adds validated elements of the IMPORT command to the collection.
+     *
+     * @param total number of read elements
+     * @param valid valid elements
+     * @param startTime time when the command was started in nanoseconds
+     */
+    private void addImported(int total, HumanBeing[] valid, long startTime) {
+        int added = this.collection.addAll(valid);
+        for (HumanBeing hb : valid) {
+            this.idGenerator.observe(hb.getId());
+        }
+        if (added > 0) {
+            this.changed(added);
+
+            // Logging elements before the snapshot, it may fail to be written
+            ArrayList<HumanBeing> addedElements = new ArrayList<>(added);
+            for (HumanBeing hb : valid) {
+                if (this.collection.get(hb.getId()) == hb) {
+                    addedElements.add(hb);
+                }
+            }
+            this.database.logAddAll(addedElements);
+
+            this.startSave();
+        }
+
+        long duration = (System.nanoTime() - startTime) / 1000000;
+
+        this.commandOutput.set("Imported " + added + " elements, skipped " + (total - added) +
+                               " (invalid " + (total - valid.length) +
+                               ", duplicate id " + (valid.length - added) + ") in " + duration + " ms\n");
+    }
+
+    /**
+     * Counts change of the collection. Starts saving collection to the
+     * database if its log of changes grew too long.
+     */
+    private void changed() {
+        this.changed(1);
+
+        if (this.database.needsCompaction() && !this.saver.isInProgress()) {
+            this.startSave();
+        }
+    }
+
+    /**
+     * Counts {@code count} changes of the collection.
+     *
+     * @param count number of changes
+     */
+    private void changed(int count) {
+        synchronized (this.dirtyLock) {
+            if (this.dirty == 0) {
+                this.dirtySince = System.currentTimeMillis();
+            }
+            this.dirty += count;
+        }
+    }
+
+    /**
+     * Starts saving snapshot of the collection to the database.
+     * Changes made before the snapshot are counted as saving until the
+     * save is finished. If it fails, they are counted as unsaved again,
+     * so the next checkpoint retries them.
+     *
+     * @return true if save was started, false if another save is running
+     */
+    private boolean startSave() {
+        synchronized (this.dirtyLock) {
+            // Not copying the collection for a save that would be rejected
+            if (this.saver.isInProgress() || !this.saver.save(this.collection.toArray(), this::saveFinished)) {
+                return false;
+            }
+
+            this.saving = this.dirty;
+            this.savingSince = this.dirtySince;
+            this.dirty = 0;
+            return true;
+        }
+    }
+
+    /**
+     * Called by background writer once the save is finished.
+     *
+     * @param succeeded was snapshot written?
+     */
+    private void saveFinished(boolean succeeded) {
+        synchronized (this.dirtyLock) {
+            if (!succeeded && this.saving > 0) {
+                if (this.dirty == 0 || this.savingSince < this.dirtySince) {
+                    this.dirtySince = this.savingSince;
+                }
+                this.dirty += this.saving;
+            }
+
+            this.saving = 0;
+        }
+    }
+
+    /**
+     * Starts saving collection to the database if it has unsaved changes.
+     *
+     * @return true if save was started or there is nothing to save, false if another save or command is running
+     */
+    public boolean checkpoint() {
+        if (this.getDirty() == 0) {
+            return true;
+        }
+
+        // Not waiting for the running command, checkpoint will be retried
+        if (!this.lock.writeLock().tryLock()) {
+            return false;
+        }
+
+        try {
+            long lag;
+            synchronized (this.dirtyLock) {
+                lag = System.currentTimeMillis() - this.dirtySince;
+            }
+
+            if (!this.startSave()) {
+                return false;
+            }
+
+            this.checkpoints++;
+            this.lastCheckpointLag = lag;
+            return true;
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return number of changes made since the last started save, including ones of the failed save
+     */
+    public int getDirty() {
+        synchronized (this.dirtyLock) {
+            return this.dirty;
+        }
+    }
+
+    /**
+     * Checks if there is element with {@code id} in collection.
      *
      * @param arg id of the element to check
      * @return true if exists, else false
      */
-    public static boolean HasItemWithId(Argument arg) {
+    public boolean hasItemWithId(Argument arg) {
         Long id = (Long) arg.getValue();
 
-        for (HumanBeing hb : Interpreter.collection) {
-            if (id.equals(hb.getId())) {
-                return true;
-            }
+        this.lock.readLock().lock();
+        try {
+            return this.collection.contains(id);
+        } finally {
+            this.lock.readLock().unlock();
         }
-
-        return false;
     }
 
     /**
@@ -583,8 +932,20 @@ public class Interpreter {
      * @return output of the last command
      */
     public String getCommandOutput() {
-        String result = this.commandOutput;
-        this.commandOutput = null;
+        String result = this.commandOutput.get();
+        this.commandOutput.remove();
+        return result;
+    }
+
+    /**
+     * Returns output produced by the last command lazily, if the command
+     * produces its output this way.
+     *
+     * @return output entries of the last command or null
+     */
+    public Iterator<String> getCommandOutputChunks() {
+        Iterator<String> result = this.commandOutputChunks.get();
+        this.commandOutputChunks.remove();
         return result;
     }
 
@@ -595,11 +956,18 @@ public class Interpreter {
      * @return result of the last command
      */
     public String getCommandResult() {
-        String result = this.commandResult;
-        this.commandResult = null;
+        String result = this.commandResult.get();
+        this.commandResult.remove();
         return result;
     }
 
+    /**
+     * Waits for the running save to finish and releases resources.
+     */
+    public void close() {
+        this.saver.close();
+    }
+
     /**
      * Returns {@code isRunning} flag, that shows whether {@code Interpreter}
      * is still running or halted by an {@code exit} command.
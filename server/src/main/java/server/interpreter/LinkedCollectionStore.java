@@ -0,0 +1,123 @@
+package server.interpreter;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.ListIterator;
+
+import core.models.humanBeing.HumanBeing;
+
+/**
+ * Collection store backed by {@code LinkedList}.
+ * Every operation by id is a linear scan. Kept as a baseline for
+ * comparison with other stores.
+ *
+ * @author ivatolm
+ */
+public class LinkedCollectionStore extends AbstractCollectionStore {
+
+    /** Elements of the collection */
+    private LinkedList<HumanBeing> elements;
+
+    /**
+     * Constructs new empty store.
+     */
+    public LinkedCollectionStore() {
+        this.elements = new LinkedList<>();
+    }
+
+    @Override
+    public boolean add(HumanBeing hb) {
+        if (this.contains(hb.getId())) {
+            return false;
+        }
+
+        this.elements.add(hb);
+
+        this.indexAdd(hb);
+        return true;
+    }
+
+    @Override
+    public boolean replace(HumanBeing hb) {
+        for (ListIterator<HumanBeing> iter = this.elements.listIterator(); iter.hasNext();) {
+            HumanBeing prev = iter.next();
+            if (hb.getId().equals(prev.getId())) {
+                iter.set(hb);
+
+                this.indexReplace(prev, hb);
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public HumanBeing get(Long id) {
+        for (HumanBeing hb : this.elements) {
+            if (id.equals(hb.getId())) {
+                return hb;
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public boolean contains(Long id) {
+        return this.get(id) != null;
+    }
+
+    @Override
+    public HumanBeing remove(Long id) {
+        for (Iterator<HumanBeing> iter = this.elements.iterator(); iter.hasNext();) {
+            HumanBeing hb = iter.next();
+            if (id.equals(hb.getId())) {
+                iter.remove();
+
+                this.indexRemove(hb);
+                return hb;
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public HumanBeing getFirst() {
+        return this.elements.peekFirst();
+    }
+
+    @Override
+    public HumanBeing removeFirst() {
+        HumanBeing result = this.elements.pollFirst();
+        if (result != null) {
+            this.indexRemove(result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public void clear() {
+        this.elements.clear();
+
+        this.indexClear();
+    }
+
+    @Override
+    public int size() {
+        return this.elements.size();
+    }
+
+    @Override
+    public HumanBeing[] toArray() {
+        return this.elements.toArray(new HumanBeing[0]);
+    }
+
+    @Override
+    public Iterator<HumanBeing> iterator() {
+        return this.elements.iterator();
+    }
+
+}
@@ -0,0 +1,380 @@
+package server.interpreter;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Random;
+
+import core.models.humanBeing.HumanBeing;
+
+/**
+ * Secondary index ordering elements by {@code minutesOfWaiting}.
+ * Elements are kept in a treap with subtree sizes, so counting elements
+ * greater than a value takes logarithmic time and elements can be
+ * listed in descending order without sorting. Missing values are
+ * treated as zero, elements with equal values keep order of the
+ * collection, as stable sort of the collection would.
+ *
+ * @author ivatolm
+ */
+public class MinutesOfWaitingIndex implements CollectionIndex {
+
+    /**
+     * Node of the treap.
+     */
+    private static class Node {
+
+        /** Indexed element */
+        private HumanBeing value;
+
+        /** Key of the element */
+        private int key;
+
+        /** Position of the element in the collection */
+        private long seq;
+
+        /** Random priority of the node */
+        private int priority;
+
+        /** Number of nodes in the subtree */
+        private int size = 1;
+
+        /** Left subtree */
+        private Node left;
+
+        /** Right subtree */
+        private Node right;
+
+    }
+
+    /** Root of the treap */
+    private Node root;
+
+    /** Nodes by id of their elements */
+    private HashMap<Long, Node> nodes = new HashMap<>();
+
+    /** Position of the next added element */
+    private long nextSeq;
+
+    /** Source of the priorities */
+    private Random random = new Random();
+
+    @Override
+    public void add(HumanBeing hb) {
+        this.insert(this.createNode(hb, this.nextSeq++));
+    }
+
+    @Override
+    public void remove(HumanBeing hb) {
+        Node node = this.nodes.remove(hb.getId());
+        if (node != null) {
+            this.root = this.remove(this.root, node.key, node.seq);
+        }
+    }
+
+    /**
+     * Replaces node of {@code prev} keeping its position among equal values.
+     *
+     * @param prev previous version of the element
+     * @param hb new version of the element
+     */
+    @Override
+    public void replace(HumanBeing prev, HumanBeing hb) {
+        Node node = this.nodes.remove(prev.getId());
+        if (node == null) {
+            this.add(hb);
+            return;
+        }
+
+        this.root = this.remove(this.root, node.key, node.seq);
+        this.insert(this.createNode(hb, node.seq));
+    }
+
+    @Override
+    public void clear() {
+        this.root = null;
+        this.nodes.clear();
+        this.nextSeq = 0;
+    }
+
+    /**
+     * Rebuilds the treap from sorted nodes in linear time instead of
+     * inserting elements one by one.
+     *
+     * @param elements added elements
+     */
+    @Override
+    public void addAll(HumanBeing[] elements) {
+        Node[] added = new Node[elements.length];
+        for (int i = 0; i < elements.length; i++) {
+            added[i] = this.createNode(elements[i], this.nextSeq++);
+        }
+        Arrays.sort(added, (a, b) -> compare(a.key, a.seq, b));
+
+        // Merging added nodes with existing ones taken in order
+        Node[] existing = this.toNodeArray();
+        Node[] nodes = new Node[existing.length + added.length];
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < nodes.length; k++) {
+            if (j == added.length || (i < existing.length && compare(existing[i].key, existing[i].seq, added[j]) < 0)) {
+                nodes[k] = existing[i++];
+            } else {
+                nodes[k] = added[j++];
+            }
+        }
+
+        // Keeping right spine of the treap on the stack
+        ArrayDeque<Node> stack = new ArrayDeque<>();
+        for (Node node : nodes) {
+            node.right = null;
+
+            Node last = null;
+            while (!stack.isEmpty() && stack.peek().priority < node.priority) {
+                last = stack.pop();
+                update(last);
+            }
+
+            node.left = last;
+            if (!stack.isEmpty()) {
+                stack.peek().right = node;
+            }
+            stack.push(node);
+        }
+
+        Node root = null;
+        while (!stack.isEmpty()) {
+            root = stack.pop();
+            update(root);
+        }
+
+        this.root = root;
+    }
+
+    /**
+     * Counts elements with {@code minutesOfWaiting} greater than {@code value}.
+     *
+     * @param value value to compare with
+     * @return number of such elements
+     */
+    public int countGreaterThan(int value) {
+        int result = 0;
+
+        Node node = this.root;
+        while (node != null) {
+            if (node.key > value) {
+                result += 1 + size(node.right);
+                node = node.left;
+            } else {
+                node = node.right;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns elements ordered by {@code minutesOfWaiting} descending.
+     *
+     * @return array of the elements
+     */
+    public HumanBeing[] toDescendingArray() {
+        HumanBeing[] result = new HumanBeing[size(this.root)];
+
+        ArrayDeque<Node> stack = new ArrayDeque<>();
+        Node node = this.root;
+        int i = 0;
+        while (node != null || !stack.isEmpty()) {
+            while (node != null) {
+                stack.push(node);
+                node = node.right;
+            }
+
+            node = stack.pop();
+            result[i++] = node.value;
+            node = node.left;
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns nodes of the treap in ascending order.
+     *
+     * @return array of the nodes
+     */
+    private Node[] toNodeArray() {
+        Node[] result = new Node[size(this.root)];
+
+        ArrayDeque<Node> stack = new ArrayDeque<>();
+        Node node = this.root;
+        int i = 0;
+        while (node != null || !stack.isEmpty()) {
+            while (node != null) {
+                stack.push(node);
+                node = node.left;
+            }
+
+            node = stack.pop();
+            result[i++] = node;
+            node = node.right;
+        }
+
+        return result;
+    }
+
+    /**
+     * Creates node for {@code hb} with random priority.
+     *
+     * @param hb element
+     * @param seq position of the element in the collection
+     * @return created node
+     */
+    private Node createNode(HumanBeing hb, long seq) {
+        Node node = new Node();
+        node.value = hb;
+        node.key = key(hb);
+        node.seq = seq;
+        node.priority = this.random.nextInt();
+
+        this.nodes.put(hb.getId(), node);
+        return node;
+    }
+
+    /**
+     * Inserts {@code node} into the treap.
+     *
+     * @param node node to insert
+     */
+    private void insert(Node node) {
+        Node[] parts = this.split(this.root, node.key, node.seq);
+        this.root = this.merge(this.merge(parts[0], node), parts[1]);
+    }
+
+    /**
+     * Compares position ({@code key}, {@code seq}) with {@code node}.
+     * Equal keys are ordered by position descending, so walking the
+     * treap from the right gives them in order of the collection.
+     *
+     * @param key key of the position
+     * @param seq position of the element in the collection
+     * @param node node to compare with
+     * @return negative, zero or positive as position is before, at or after node
+     */
+    private static int compare(int key, long seq, Node node) {
+        if (key != node.key) {
+            return Integer.compare(key, node.key);
+        }
+
+        return Long.compare(node.seq, seq);
+    }
+
+    /**
+     * Splits {@code node} into nodes before and after position
+     * ({@code key}, {@code seq}).
+     *
+     * @param node root of the subtree
+     * @param key key of the position
+     * @param seq position of the element in the collection
+     * @return pair of roots
+     */
+    private Node[] split(Node node, int key, long seq) {
+        if (node == null) {
+            return new Node[] { null, null };
+        }
+
+        if (compare(key, seq, node) > 0) {
+            Node[] parts = this.split(node.right, key, seq);
+            node.right = parts[0];
+            update(node);
+            return new Node[] { node, parts[1] };
+        } else {
+            Node[] parts = this.split(node.left, key, seq);
+            node.left = parts[1];
+            update(node);
+            return new Node[] { parts[0], node };
+        }
+    }
+
+    /**
+     * Merges two subtrees, all nodes of {@code a} must be before nodes of {@code b}.
+     *
+     * @param a left subtree
+     * @param b right subtree
+     * @return root of the merged subtree
+     */
+    private Node merge(Node a, Node b) {
+        if (a == null) {
+            return b;
+        }
+
+        if (b == null) {
+            return a;
+        }
+
+        if (a.priority > b.priority) {
+            a.right = this.merge(a.right, b);
+            update(a);
+            return a;
+        } else {
+            b.left = this.merge(a, b.left);
+            update(b);
+            return b;
+        }
+    }
+
+    /**
+     * Removes node at position ({@code key}, {@code seq}) from the subtree.
+     *
+     * @param node root of the subtree
+     * @param key key of the node
+     * @param seq position of the node
+     * @return new root of the subtree
+     */
+    private Node remove(Node node, int key, long seq) {
+        if (node == null) {
+            return null;
+        }
+
+        int cmp = compare(key, seq, node);
+        if (cmp == 0) {
+            return this.merge(node.left, node.right);
+        }
+
+        if (cmp < 0) {
+            node.left = this.remove(node.left, key, seq);
+        } else {
+            node.right = this.remove(node.right, key, seq);
+        }
+        update(node);
+
+        return node;
+    }
+
+    /**
+     * Recalculates size of the subtree.
+     *
+     * @param node root of the subtree
+     */
+    private static void update(Node node) {
+        node.size = 1 + size(node.left) + size(node.right);
+    }
+
+    /**
+     * @param node root of the subtree
+     * @return number of nodes in the subtree
+     */
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    /**
+     * @param hb element
+     * @return key of the element
+     */
+    private static int key(HumanBeing hb) {
+        Integer value = hb.getMinutesOfWaiting();
+        return value == null ? 0 : value;
+    }
+
+}
@@ -0,0 +1,243 @@
+package server.interpreter;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import core.models.humanBeing.HumanBeing;
+
+/**
+ * Secondary index for substring search over {@code name}.
+ * Elements are numbered by their position in the collection, every
+ * substring of a name up to {@code GRAM_LENGTH} characters long is
+ * mapped to a sorted array of numbers of elements containing it.
+ * Short queries are answered from one posting, longer ones take
+ * candidates from the rarest of their grams, so search time depends
+ * on the number of candidates instead of the collection size.
+ * Removed elements and old names are left in postings until they
+ * outnumber live elements and the index is rebuilt, candidates are
+ * always checked against the current name.
+ *
+ * @author ivatolm
+ */
+public class NameIndex implements CollectionIndex {
+
+    /** Maximal length of indexed substrings */
+    private static final int GRAM_LENGTH = 3;
+
+    /** Number of stale entries tolerated regardless of the size */
+    private static final int MIN_STALE = 1024;
+
+    /**
+     * Sorted array of numbers of the elements.
+     */
+    private static class Posting {
+
+        /** Numbers of the elements */
+        private int[] slots = new int[2];
+
+        /** Number of used cells of {@code slots} */
+        private int size;
+
+        /**
+         * Inserts {@code slot} keeping the array sorted, does nothing
+         * if it's already there.
+         *
+         * @param slot number of the element
+         */
+        private void add(int slot) {
+            int index = this.size;
+            if (this.size > 0 && this.slots[this.size - 1] >= slot) {
+                index = Arrays.binarySearch(this.slots, 0, this.size, slot);
+                if (index >= 0) {
+                    return;
+                }
+                index = -index - 1;
+            }
+
+            if (this.size == this.slots.length) {
+                this.slots = Arrays.copyOf(this.slots, this.size * 2);
+            }
+
+            System.arraycopy(this.slots, index, this.slots, index + 1, this.size - index);
+            this.slots[index] = slot;
+            this.size++;
+        }
+
+    }
+
+    /** Elements by their numbers, null for removed ones */
+    private HumanBeing[] elements;
+
+    /** First never used number */
+    private int tail;
+
+    /** Number of live elements */
+    private int size;
+
+    /** Number of stale entries of removed elements and old names */
+    private int stale;
+
+    /** Numbers of the elements by their ids */
+    private HashMap<Long, Integer> slots;
+
+    /** Numbers of the elements by substrings of their names */
+    private HashMap<String, Posting> postings;
+
+    /**
+     * Constructs new empty index.
+     */
+    public NameIndex() {
+        this.elements = new HumanBeing[16];
+        this.slots = new HashMap<>();
+        this.postings = new HashMap<>();
+    }
+
+    @Override
+    public void add(HumanBeing hb) {
+        if (this.tail == this.elements.length) {
+            this.elements = Arrays.copyOf(this.elements, this.tail * 2);
+        }
+
+        int slot = this.tail++;
+        this.elements[slot] = hb;
+        this.slots.put(hb.getId(), slot);
+        this.size++;
+
+        this.addGrams(hb.getName(), slot);
+    }
+
+    @Override
+    public void remove(HumanBeing hb) {
+        Integer slot = this.slots.remove(hb.getId());
+        if (slot == null) {
+            return;
+        }
+
+        this.elements[slot] = null;
+        this.size--;
+        this.stale++;
+
+        this.rebuildIfStale();
+    }
+
+    /**
+     * Replaces element keeping its number, so its position in search
+     * results stays the same.
+     *
+     * @param prev previous version of the element
+     * @param hb new version of the element
+     */
+    @Override
+    public void replace(HumanBeing prev, HumanBeing hb) {
+        Integer slot = this.slots.get(prev.getId());
+        if (slot == null) {
+            this.add(hb);
+            return;
+        }
+
+        this.elements[slot] = hb;
+
+        String name = hb.getName();
+        if (name != null && !name.equals(prev.getName())) {
+            this.addGrams(name, slot);
+            this.stale++;
+
+            this.rebuildIfStale();
+        }
+    }
+
+    @Override
+    public void clear() {
+        this.elements = new HumanBeing[16];
+        this.tail = 0;
+        this.size = 0;
+        this.stale = 0;
+        this.slots.clear();
+        this.postings.clear();
+    }
+
+    /**
+     * Finds elements which name contains {@code substring}.
+     * Elements are ordered as in the collection.
+     *
+     * @param substring non-empty substring to search for
+     * @return array of found elements
+     */
+    public HumanBeing[] search(String substring) {
+        Posting candidates = null;
+        if (substring.length() <= GRAM_LENGTH) {
+            candidates = this.postings.get(substring);
+        } else {
+            // Taking the rarest gram of the substring as candidates
+            for (int i = 0; i + GRAM_LENGTH <= substring.length(); i++) {
+                Posting posting = this.postings.get(substring.substring(i, i + GRAM_LENGTH));
+                if (posting == null) {
+                    return new HumanBeing[0];
+                }
+
+                if (candidates == null || posting.size < candidates.size) {
+                    candidates = posting;
+                }
+            }
+        }
+
+        if (candidates == null) {
+            return new HumanBeing[0];
+        }
+
+        HumanBeing[] result = new HumanBeing[candidates.size];
+        int count = 0;
+        for (int i = 0; i < candidates.size; i++) {
+            HumanBeing hb = this.elements[candidates.slots[i]];
+            if (hb != null && hb.getName() != null && hb.getName().indexOf(substring) >= 0) {
+                result[count++] = hb;
+            }
+        }
+
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Adds {@code slot} to postings of all grams of {@code name}.
+     *
+     * @param name name of the element, may be null
+     * @param slot number of the element
+     */
+    private void addGrams(String name, int slot) {
+        if (name == null) {
+            return;
+        }
+
+        for (int i = 0; i < name.length(); i++) {
+            for (int j = i + 1; j <= Math.min(i + GRAM_LENGTH, name.length()); j++) {
+                this.postings
+                    .computeIfAbsent(name.substring(i, j), (k) -> new Posting())
+                    .add(slot);
+            }
+        }
+    }
+
+    /**
+     * Renumbers live elements and rebuilds postings once stale
+     * entries outnumber live elements.
+     */
+    private void rebuildIfStale() {
+        if (this.stale <= this.size + MIN_STALE) {
+            return;
+        }
+
+        HumanBeing[] live = new HumanBeing[this.size];
+        int count = 0;
+        for (int i = 0; i < this.tail; i++) {
+            if (this.elements[i] != null) {
+                live[count++] = this.elements[i];
+            }
+        }
+
+        this.clear();
+        for (HumanBeing hb : live) {
+            this.add(hb);
+        }
+    }
+
+}
@@ -0,0 +1,71 @@
+package server.net;
+
+import java.io.Serializable;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+
+import core.net.packet.PacketFragmenter;
+
+/**
+ * Reusable buffer of a datagram passed from dispatcher to communicator.
+ * Every communicator has a limited number of them, dispatcher copies
+ * received datagram into a free one and communicator returns it to the
+ * free ones after the datagram was assembled. Datagram is passed
+ * through {@code EventQueue} by reference and is never serialized.
+ *
+ * @author ivatolm
+ */
+final class Datagram implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    // Sender of the datagram
+    private transient SocketAddress address;
+
+    // Contents of the datagram
+    private final transient ByteBuffer buffer;
+
+    // Free datagrams of the communicator
+    private final transient ArrayBlockingQueue<Datagram> free;
+
+    /**
+     * Constructs new {@code Datagram} belonging to {@code free}.
+     *
+     * @param free free datagrams of the communicator
+     */
+    Datagram(ArrayBlockingQueue<Datagram> free) {
+        this.buffer = ByteBuffer.allocateDirect(PacketFragmenter.DATAGRAM_SIZE);
+        this.free = free;
+    }
+
+    /**
+     * @return sender of the datagram
+     */
+    SocketAddress getAddress() {
+        return this.address;
+    }
+
+    /**
+     * @param address sender of the datagram
+     */
+    void setAddress(SocketAddress address) {
+        this.address = address;
+    }
+
+    /**
+     * @return buffer with contents of the datagram
+     */
+    ByteBuffer getBuffer() {
+        return this.buffer;
+    }
+
+    /**
+     * Returns datagram to the free ones. Datagram mustn't be used afterwards.
+     */
+    void release() {
+        this.address = null;
+        this.free.offer(this);
+    }
+
+}
@@ -0,0 +1,148 @@
+package server.net;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+
+import core.event.EventQueue;
+import core.net.packet.PacketFragmenter;
+
+/**
+ * Distributes datagrams of one socket between several communicators
+ * when the port can't be shared between sockets. Client is chosen by
+ * hash of its address, so all datagrams of the client are received by
+ * the same communicator. Dispatcher receives datagrams in its own thread,
+ * communicators send their packets through the same socket.
+ *
+ * Datagrams are received into reusable buffers, every communicator has
+ * at most {@code QUEUE_CAPACITY} of them. When all of them are waiting
+ * in the queue of a slow communicator, its datagrams are dropped as
+ * they would be by a full socket buffer, and lost packets are
+ * retransmitted by the peer.
+ *
+ * @author ivatolm
+ */
+public class DatagramDispatcher implements Runnable {
+
+    private static final int SOCKET_BUFFER_SIZE = 1024 * 1024;
+
+    // Maximum number of datagrams waiting for each communicator
+    private static final int QUEUE_CAPACITY = 256;
+
+    // Channel
+    private DatagramChannel channel;
+
+    // Queues of datagrams of the communicators
+    private EventQueue[] queues;
+
+    // Free datagrams of the communicators
+    private ArrayBlockingQueue<Datagram>[] free;
+
+    // Number of datagrams created for each communicator
+    private int[] allocated;
+
+    /**
+     * Constructs new {@code DatagramDispatcher} with provided arguments.
+     *
+     * @param ip server ip
+     * @param port server port
+     * @param count number of communicators
+     * @throws IOException if cannot open datagram channel
+     */
+    @SuppressWarnings("unchecked")
+    public DatagramDispatcher(String ip, Integer port, int count) throws IOException {
+        InetSocketAddress address = new InetSocketAddress(ip, port);
+        this.channel = DatagramChannel.open();
+        this.channel.bind(address);
+        this.channel.setOption(StandardSocketOptions.SO_SNDBUF, SOCKET_BUFFER_SIZE);
+        this.channel.setOption(StandardSocketOptions.SO_RCVBUF, SOCKET_BUFFER_SIZE);
+
+        this.queues = new EventQueue[count];
+        this.free = (ArrayBlockingQueue<Datagram>[]) new ArrayBlockingQueue<?>[count];
+        this.allocated = new int[count];
+        for (int i = 0; i < count; i++) {
+            this.queues[i] = EventQueue.open();
+            this.free[i] = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        }
+    }
+
+    /**
+     * Returns communicator receiving datagrams of its share of clients.
+     *
+     * @param index index of the communicator
+     * @return new communicator
+     */
+    public ServerComUDP getCom(int index) {
+        return new ServerComUDP(this.channel, this.queues[index]);
+    }
+
+    /**
+     * Receives datagrams until the channel is closed.
+     */
+    @Override
+    public void run() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(PacketFragmenter.DATAGRAM_SIZE);
+
+        while (true) {
+            buffer.clear();
+
+            SocketAddress address;
+            try {
+                address = this.channel.receive(buffer);
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                System.err.println("Cannot receive datagram: " + e);
+                continue;
+            }
+
+            int index = (address.hashCode() & Integer.MAX_VALUE) % this.queues.length;
+            Datagram datagram = this.acquire(index);
+            if (datagram == null) {
+                // Communicator doesn't keep up, datagram is dropped
+                continue;
+            }
+
+            buffer.flip();
+            datagram.getBuffer().clear();
+            datagram.getBuffer().put(buffer).flip();
+            datagram.setAddress(address);
+
+            this.queues[index].sink().write(datagram);
+        }
+    }
+
+    /**
+     * Takes free datagram of the communicator, creating it if the
+     * communicator has less than {@code QUEUE_CAPACITY} of them.
+     *
+     * @param index index of the communicator
+     * @return free datagram, or null if all of them are queued
+     */
+    private Datagram acquire(int index) {
+        Datagram datagram = this.free[index].poll();
+        if (datagram == null && this.allocated[index] < QUEUE_CAPACITY) {
+            datagram = new Datagram(this.free[index]);
+            this.allocated[index]++;
+        }
+
+        return datagram;
+    }
+
+    /**
+     * Closes the channel, which stops receiving.
+     */
+    public void close() {
+        try {
+            this.channel.close();
+        } catch (IOException e) {
+            System.err.println("Cannot close channel: " + e);
+        }
+    }
+
+}
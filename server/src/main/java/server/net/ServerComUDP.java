@@ -3,22 +3,50 @@ package server.net;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.nio.channels.DatagramChannel;
 import java.nio.channels.SelectableChannel;
 
-import org.apache.commons.lang3.SerializationUtils;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 
+import core.event.EventQueue;
+import core.net.BufferPool;
 import core.net.Com;
 import core.net.packet.Packet;
+import core.net.packet.PacketAssembler;
+import core.net.packet.PacketFormatException;
+import core.net.packet.PacketFragmenter;
 
 public class ServerComUDP implements Com {
 
+    // Option sharing the port between sockets, null if not available in this Java version
+    private static final SocketOption<Boolean> SO_REUSEPORT = findReusePort();
+
+    private static final int SOCKET_BUFFER_SIZE = 1024 * 1024;
+
+    private static final int POOL_MAX_CAPACITY = 1024 * 1024;
+
+    private static final int POOL_MAX_FREE = 4;
+
     // Channel
     private DatagramChannel channel;
 
+    // Datagrams passed by dispatcher, null if received from the channel
+    private EventQueue datagrams;
+
+    // Splitter of outgoing packets
+    private PacketFragmenter fragmenter;
+
+    // Reassembler of incoming packets
+    private PacketAssembler assembler;
+
+    // Buffers of incoming datagrams and messages
+    private BufferPool pool;
+
     /**
      * Constructs new {@code ClientComUDP} with provided arguments.
      *
@@ -27,9 +55,82 @@ public class ServerComUDP implements Com {
      * @throws IOException if cannot open datagram channel
      */
     public ServerComUDP(String ip, Integer port) throws IOException {
+        this(ip, port, false);
+    }
+
+    /**
+     * Constructs new {@code ServerComUDP} with provided arguments.
+     * Several communicators with {@code reusePort} can be bound to the
+     * same port, kernel distributes clients between them by address.
+     *
+     * @param ip server ip
+     * @param port server port
+     * @param reusePort should port be shared with other sockets
+     * @throws IOException if cannot open datagram channel
+     */
+    public ServerComUDP(String ip, Integer port, boolean reusePort) throws IOException {
         InetSocketAddress address = new InetSocketAddress(ip, port);
         this.channel = DatagramChannel.open();
+        if (reusePort) {
+            if (!isReusePortSupported()) {
+                throw new IOException("Sharing the port is not supported.");
+            }
+
+            this.channel.setOption(SO_REUSEPORT, true);
+        }
         this.channel.bind(address);
+        this.channel.setOption(StandardSocketOptions.SO_SNDBUF, SOCKET_BUFFER_SIZE);
+        this.channel.setOption(StandardSocketOptions.SO_RCVBUF, SOCKET_BUFFER_SIZE);
+
+        this.fragmenter = new PacketFragmenter();
+        this.pool = new BufferPool(POOL_MAX_CAPACITY, POOL_MAX_FREE);
+        this.assembler = new PacketAssembler(this.pool);
+    }
+
+    /**
+     * Constructs new {@code ServerComUDP} receiving datagrams from dispatcher.
+     *
+     * @param channel channel of the dispatcher, used for sending
+     * @param datagrams queue of datagrams of this communicator
+     */
+    ServerComUDP(DatagramChannel channel, EventQueue datagrams) {
+        this.channel = channel;
+        this.datagrams = datagrams;
+
+        this.fragmenter = new PacketFragmenter();
+        this.pool = new BufferPool(POOL_MAX_CAPACITY, POOL_MAX_FREE);
+        this.assembler = new PacketAssembler(this.pool);
+    }
+
+    /**
+     * Checks if several sockets can be bound to the same port.
+     *
+     * @return true if sharing the port is supported, else false
+     */
+    public static boolean isReusePortSupported() {
+        if (SO_REUSEPORT == null) {
+            return false;
+        }
+
+        try (DatagramChannel channel = DatagramChannel.open()) {
+            return channel.supportedOptions().contains(SO_REUSEPORT);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Looks up {@code SO_REUSEPORT} option, that appeared in Java 9.
+     *
+     * @return option, or null if not available
+     */
+    @SuppressWarnings("unchecked")
+    private static SocketOption<Boolean> findReusePort() {
+        try {
+            return (SocketOption<Boolean>) StandardSocketOptions.class.getField("SO_REUSEPORT").get(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
     }
 
     /**
@@ -45,11 +146,21 @@ public class ServerComUDP implements Com {
      */
     @Override
     public void send(Packet packet, SocketAddress address) {
-        byte[] data = SerializationUtils.serialize(packet);
-        ByteBuffer buffer = ByteBuffer.wrap(data);
+        int count;
+        try {
+            count = this.fragmenter.encode(packet);
+        } catch (BufferOverflowException e) {
+            System.err.println("Cannot send packet: packet is too large.");
+            return;
+        }
 
         try {
-            this.channel.send(buffer, address);
+            for (int i = 0; i < count; i++) {
+                if (this.channel.send(this.fragmenter.fragment(i), address) == 0) {
+                    System.err.println("Cannot send packet: socket buffer is full.");
+                    return;
+                }
+            }
         } catch (IOException e) {
             System.err.println("Cannot send packet: " + e);
         }
@@ -60,9 +171,25 @@ public class ServerComUDP implements Com {
      */
     @Override
     public Pair<SocketAddress, Packet> receive() {
-        byte[] data = new byte[16384];
-        ByteBuffer buffer = ByteBuffer.wrap(data);
+        if (this.datagrams != null) {
+            return this.receiveDispatched();
+        }
+
+        ByteBuffer buffer = this.pool.acquire(PacketFragmenter.DATAGRAM_SIZE);
+        try {
+            return this.receive(buffer);
+        } finally {
+            this.pool.release(buffer);
+        }
+    }
 
+    /**
+     * Receives datagram into {@code buffer} and passes it to the assembler.
+     *
+     * @param buffer buffer of the datagram
+     * @return sender and packet, or null if there is no complete packet
+     */
+    private Pair<SocketAddress, Packet> receive(ByteBuffer buffer) {
         SocketAddress address;
         try {
             address = this.channel.receive(buffer);
@@ -71,7 +198,55 @@ public class ServerComUDP implements Com {
             return null;
         }
 
-        return new ImmutablePair<>(address, SerializationUtils.deserialize(data));
+        if (address == null) {
+            return null;
+        }
+
+        buffer.flip();
+
+        Packet packet;
+        try {
+            packet = this.assembler.accept(address, buffer);
+        } catch (PacketFormatException e) {
+            System.err.println("Cannot decode packet from " + address + ": " + e.getMessage());
+            return null;
+        }
+
+        if (packet == null) {
+            return null;
+        }
+
+        return new ImmutablePair<>(address, packet);
+    }
+
+    /**
+     * Takes datagram passed by dispatcher and passes it to the assembler.
+     *
+     * @return sender and packet, or null if there is no complete packet
+     */
+    private Pair<SocketAddress, Packet> receiveDispatched() {
+        Datagram datagram = (Datagram) this.datagrams.source().poll();
+        if (datagram == null) {
+            return null;
+        }
+
+        SocketAddress address = datagram.getAddress();
+
+        Packet packet;
+        try {
+            packet = this.assembler.accept(address, datagram.getBuffer());
+        } catch (PacketFormatException e) {
+            System.err.println("Cannot decode packet from " + address + ": " + e.getMessage());
+            return null;
+        } finally {
+            datagram.release();
+        }
+
+        if (packet == null) {
+            return null;
+        }
+
+        return new ImmutablePair<>(address, packet);
     }
 
     /**
@@ -79,6 +254,10 @@ public class ServerComUDP implements Com {
      */
     @Override
     public SelectableChannel getChannel() {
+        if (this.datagrams != null) {
+            return this.datagrams.source();
+        }
+
         return this.channel;
     }
 
@@ -0,0 +1,81 @@
+package server.net;
+
+import java.net.SocketAddress;
+
+import core.event.EventQueue;
+
+/**
+ * Session of the client with its queues to the client's handler.
+ *
+ * @author ivatolm
+ */
+public class Session {
+
+    // Client's address
+    private SocketAddress address;
+
+    // Queue from socket handler to client's handler
+    private EventQueue networkQueue;
+
+    // Queue from client's handler to socket handler
+    private EventQueue comQueue;
+
+    // Is client timed out?
+    private boolean expired;
+
+    /**
+     * Constructs new {@code Session} with new queues.
+     *
+     * @param address client's address
+     */
+    Session(SocketAddress address) {
+        this.address = address;
+        this.networkQueue = EventQueue.open();
+        this.comQueue = EventQueue.open();
+        this.expired = false;
+    }
+
+    /**
+     * @return client's address
+     */
+    public SocketAddress getAddress() {
+        return this.address;
+    }
+
+    /**
+     * @return queue from socket handler to client's handler
+     */
+    public EventQueue getNetworkQueue() {
+        return this.networkQueue;
+    }
+
+    /**
+     * @return queue from client's handler to socket handler
+     */
+    public EventQueue getComQueue() {
+        return this.comQueue;
+    }
+
+    /**
+     * @return true if client timed out, else false
+     */
+    public boolean isExpired() {
+        return this.expired;
+    }
+
+    /**
+     * Marks client as timed out.
+     */
+    void expire() {
+        this.expired = true;
+    }
+
+    /**
+     * Closes queues of the session.
+     */
+    void close() {
+        this.networkQueue.close();
+        this.comQueue.close();
+    }
+
+}
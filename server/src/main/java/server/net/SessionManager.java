@@ -0,0 +1,167 @@
+package server.net;
+
+import java.net.SocketAddress;
+import java.nio.channels.SelectableChannel;
+import java.util.HashMap;
+import java.util.LinkedList;
+
+import core.net.Com;
+import core.utils.TimerWheel;
+
+/**
+ * Keeps sessions of the clients from opening to teardown.
+ * Session is opened on the first packet of the client and expires if
+ * client is silent for {@code timeout}. Expired session can't be found
+ * by address anymore, so next packet of the client opens a new one,
+ * but it's kept by its queue until it's closed, so late responses of
+ * the client's handler still reach the client. Packets that the
+ * communicator keeps for delivery to the expired client are dropped.
+ * Session is closed
+ * once its handler was shut down. Manager is not thread-safe.
+ *
+ * @author ivatolm
+ */
+public class SessionManager {
+
+    // Resolution of timeouts
+    private static final int WHEEL_TICK = 100;
+    private static final int WHEEL_SIZE = 64;
+
+    // Time in milliseconds after which silent client is disconnected
+    private long timeout;
+
+    // Communicator of the clients
+    private Com com;
+
+    // Active sessions by address
+    private HashMap<SocketAddress, Session> sessions;
+
+    // Not closed sessions by queue from client's handler
+    private HashMap<SelectableChannel, Session> channels;
+
+    // Timeouts of active sessions
+    private TimerWheel<SocketAddress> timeouts;
+
+    // Number of sessions opened since start
+    private long totalCount;
+
+    /**
+     * Constructs new {@code SessionManager} without sessions.
+     *
+     * @param timeout time in milliseconds after which silent client is disconnected
+     * @param com communicator of the clients
+     */
+    public SessionManager(long timeout, Com com) {
+        this.timeout = timeout;
+        this.com = com;
+        this.sessions = new HashMap<>();
+        this.channels = new HashMap<>();
+        this.timeouts = new TimerWheel<>(WHEEL_TICK, WHEEL_SIZE, System.currentTimeMillis());
+        this.totalCount = 0;
+    }
+
+    /**
+     * Opens new session of the client.
+     *
+     * @param address client's address
+     * @param now current time in milliseconds
+     * @return new session
+     */
+    public Session open(SocketAddress address, long now) {
+        Session session = new Session(address);
+
+        this.sessions.put(address, session);
+        this.channels.put(session.getComQueue().source(), session);
+        this.timeouts.touch(address, this.timeout, now);
+        this.totalCount++;
+
+        return session;
+    }
+
+    /**
+     * Postpones timeout of the client.
+     *
+     * @param address client's address
+     * @param now current time in milliseconds
+     */
+    public void touch(SocketAddress address, long now) {
+        if (this.sessions.containsKey(address)) {
+            this.timeouts.touch(address, this.timeout, now);
+        }
+    }
+
+    /**
+     * Expires sessions of the clients that exceeded timeout.
+     *
+     * @param now current time in milliseconds
+     * @return expired sessions
+     */
+    public LinkedList<Session> expire(long now) {
+        LinkedList<Session> result = new LinkedList<>();
+        for (SocketAddress address : this.timeouts.expire(now)) {
+            Session session = this.sessions.remove(address);
+            session.expire();
+            this.com.forget(address);
+            result.add(session);
+        }
+
+        return result;
+    }
+
+    /**
+     * Closes {@code session} and its queues.
+     *
+     * @param session session to close
+     */
+    public void close(Session session) {
+        if (this.channels.remove(session.getComQueue().source()) == null) {
+            return;
+        }
+
+        if (this.sessions.get(session.getAddress()) == session) {
+            this.sessions.remove(session.getAddress());
+            this.timeouts.remove(session.getAddress());
+        }
+
+        session.close();
+    }
+
+    /**
+     * @param address client's address
+     * @return active session of the client, or null if there is no such session
+     */
+    public Session get(SocketAddress address) {
+        return this.sessions.get(address);
+    }
+
+    /**
+     * @param channel source of the queue from client's handler
+     * @return not closed session of the queue, or null if there is no such session
+     */
+    public Session get(SelectableChannel channel) {
+        return this.channels.get(channel);
+    }
+
+    /**
+     * @param now current time in milliseconds
+     * @return time in milliseconds until {@code expire} is due, 0 if there are no sessions
+     */
+    public long getTimeout(long now) {
+        return this.timeouts.getTimeout(now);
+    }
+
+    /**
+     * @return number of not closed sessions
+     */
+    public int getLiveCount() {
+        return this.channels.size();
+    }
+
+    /**
+     * @return number of sessions opened since start
+     */
+    public long getTotalCount() {
+        return this.totalCount;
+    }
+
+}
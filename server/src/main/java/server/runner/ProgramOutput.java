@@ -0,0 +1,119 @@
+package server.runner;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
+
+/**
+ * Output of the program split into pages of bounded size.
+ * Output entries are pulled lazily from their sources, so large outputs
+ * are never built in memory at once and each page fits into one packet,
+ * unless it holds a single entry longer than the page.
+ *
+ * @author ivatolm
+ */
+public class ProgramOutput {
+
+    /**
+     * Maximum number of characters in one page.
+     * Even if every character takes three bytes when serialized,
+     * page still fits into receive buffer of the peer.
+     */
+    public static final int PAGE_SIZE = 4096;
+
+    /** Sources of the output entries */
+    private LinkedList<Iterator<String>> sources;
+
+    /** Entry that didn't fit into the previous page */
+    private String pending;
+
+    /**
+     * Constructs new empty {@code ProgramOutput}.
+     */
+    public ProgramOutput() {
+        this.sources = new LinkedList<>();
+        this.pending = null;
+    }
+
+    /**
+     * Appends {@code entry} to the output.
+     *
+     * @param entry entry to append
+     */
+    public void add(String entry) {
+        this.sources.add(Collections.singletonList(entry).iterator());
+    }
+
+    /**
+     * Appends entries lazily produced by {@code entries} to the output.
+     *
+     * @param entries source of the entries
+     */
+    public void add(Iterator<String> entries) {
+        this.sources.add(entries);
+    }
+
+    /**
+     * Prepends {@code entry} to the output.
+     *
+     * @param entry entry to prepend
+     */
+    public void addFirst(String entry) {
+        if (this.pending != null) {
+            this.sources.addFirst(Collections.singletonList(this.pending).iterator());
+            this.pending = null;
+        }
+
+        this.sources.addFirst(Collections.singletonList(entry).iterator());
+    }
+
+    /**
+     * Checks if there are entries left in the output.
+     *
+     * @return true if there are entries left, else false
+     */
+    public boolean hasNext() {
+        if (this.pending != null) {
+            return true;
+        }
+
+        while (!this.sources.isEmpty()) {
+            if (this.sources.getFirst().hasNext()) {
+                return true;
+            }
+
+            this.sources.removeFirst();
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns next page of the output. Total length of entries of the page
+     * doesn't exceed {@code PAGE_SIZE}, unless the page consists of a single
+     * entry longer than that. Entries are never split between pages.
+     *
+     * @return next page, empty if there are no entries left
+     */
+    public LinkedList<String> nextPage() {
+        LinkedList<String> page = new LinkedList<>();
+        int size = 0;
+
+        while (this.hasNext()) {
+            String entry = this.pending != null ? this.pending : this.sources.getFirst().next();
+            this.pending = null;
+
+            // Entry is never split, one that is longer than a page takes a page of its own
+            if (!page.isEmpty() && size + entry.length() > PAGE_SIZE) {
+                this.pending = entry;
+                break;
+            }
+
+            page.add(entry);
+            size += entry.length();
+        }
+
+        return page;
+    }
+
+}
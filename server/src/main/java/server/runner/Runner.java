@@ -2,6 +2,7 @@ package server.runner;
 
 import java.util.Arrays;
 import java.util.Hashtable;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.Stack;
 
@@ -26,7 +27,7 @@ public class Runner {
     private Hashtable<Integer, LinkedList<Command>> subroutines;
 
     /** Program's output */
-    private LinkedList<String> programOutput;
+    private ProgramOutput programOutput;
 
     /** Program's result */
     private LinkedList<String> programResult;
@@ -62,7 +63,7 @@ public class Runner {
      */
     public LinkedList<String> run() {
         if (this.programOutput == null) {
-            this.programOutput = new LinkedList<>();
+            this.programOutput = new ProgramOutput();
         }
 
         while (!this.callstack.isEmpty()) {
@@ -84,6 +85,11 @@ public class Runner {
                     this.programOutput.add(commandOutput);
                 }
 
+                Iterator<String> commandOutputChunks = this.interpreter.getCommandOutputChunks();
+                if (commandOutputChunks != null) {
+                    this.programOutput.add(commandOutputChunks);
+                }
+
                 String commandResult = this.interpreter.getCommandResult();
                 if (commandResult != null) {
                     // Saving current state
@@ -157,13 +163,22 @@ public class Runner {
         return hashCode;
     }
 
+    /**
+     * Returns command interpreter of the runner.
+     *
+     * @return command interpreter
+     */
+    public Interpreter getInterpreter() {
+        return this.interpreter;
+    }
+
     /**
      * Returns output produced by the last execution of the program.
      *
      * @return output of the last program execution
      */
-    public LinkedList<String> getProgramOutput() {
-        LinkedList<String> result = this.programOutput;
+    public ProgramOutput getProgramOutput() {
+        ProgramOutput result = this.programOutput;
         this.programOutput = null;
         return result;
     }
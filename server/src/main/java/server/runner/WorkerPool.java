@@ -0,0 +1,135 @@
+package server.runner;
+
+import java.nio.channels.Selector;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pool of threads executing programs outside of the event loop.
+ * When a task is finished, its completion is queued and the selector
+ * of the event loop is woken up, so completions are always run by the
+ * event loop thread and handlers don't need to be thread-safe.
+ * Each event loop uses its own pool, pools of several loops can share
+ * the same threads.
+ *
+ * @author ivatolm
+ */
+public class WorkerPool {
+
+    /** Logger */
+    private static final Logger logger = LoggerFactory.getLogger("WorkerPool");
+
+    /** Executor of the tasks */
+    private ExecutorService executor;
+
+    /** Completions of finished tasks */
+    private ConcurrentLinkedQueue<Runnable> completions;
+
+    /** Selector of the event loop, null if not attached yet */
+    private volatile Selector selector;
+
+    /** Does the pool own its threads? */
+    private boolean owner;
+
+    /**
+     * Constructs new pool with {@code size} threads.
+     *
+     * @param size number of threads
+     */
+    public WorkerPool(int size) {
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(size, (r) -> new Thread(r, "worker-" + counter.incrementAndGet()));
+        this.completions = new ConcurrentLinkedQueue<>();
+        this.owner = true;
+    }
+
+    /**
+     * Constructs new pool running tasks on {@code executor}.
+     *
+     * @param executor executor of the tasks
+     */
+    private WorkerPool(ExecutorService executor) {
+        this.executor = executor;
+        this.completions = new ConcurrentLinkedQueue<>();
+        this.owner = false;
+    }
+
+    /**
+     * Returns pool running tasks on the same threads, whose completions
+     * are run by another event loop. Threads are stopped by the original pool.
+     *
+     * @return new pool sharing the threads
+     */
+    public WorkerPool share() {
+        return new WorkerPool(this.executor);
+    }
+
+    /**
+     * Sets selector to wake up when task is finished.
+     *
+     * @param selector selector of the event loop
+     */
+    public void setSelector(Selector selector) {
+        this.selector = selector;
+    }
+
+    /**
+     * Runs {@code task} in the pool. When it's finished, {@code completion}
+     * is run by the event loop thread.
+     *
+     * @param task task to run in the pool
+     * @param completion task to run by the event loop afterwards
+     */
+    public void submit(Runnable task, Runnable completion) {
+        this.executor.execute(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                logger.error("Task failed", e);
+            } finally {
+                this.completions.add(completion);
+
+                Selector selector = this.selector;
+                if (selector != null) {
+                    selector.wakeup();
+                }
+            }
+        });
+    }
+
+    /**
+     * Runs completions of finished tasks.
+     * Must be called by the event loop thread.
+     */
+    public void runCompletions() {
+        Runnable completion;
+        while ((completion = this.completions.poll()) != null) {
+            completion.run();
+        }
+    }
+
+    /**
+     * Waits for running tasks to finish and stops the threads.
+     * Does nothing if the threads are shared from another pool.
+     */
+    public void close() {
+        if (!this.owner) {
+            return;
+        }
+
+        this.executor.shutdown();
+
+        try {
+            this.executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            System.err.println("Interrupted while waiting for workers to finish.");
+        }
+    }
+
+}
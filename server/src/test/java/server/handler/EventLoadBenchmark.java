@@ -0,0 +1,159 @@
+package server.handler;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+import core.command.Command;
+import core.command.CommandType;
+import core.command.arguments.Argument;
+import core.event.Event;
+import core.event.EventType;
+import core.handler.ChannelType;
+import core.models.humanBeing.HumanBeing;
+import core.net.ReliableCom;
+import core.net.packet.Packet;
+import server.database.CSVDatabase;
+import server.interpreter.CheckpointScheduler;
+import server.interpreter.Interpreter;
+import server.net.ServerComUDP;
+import server.runner.WorkerPool;
+
+/**
+ * Load benchmark of {@code ServerEventHandler}.
+ * Starts a server event loop over the loopback and N clients, each in its
+ * own thread, sending {@code info} commands one after another, and reports
+ * completed requests per second. Event loop itself logs handled events per
+ * second at debug level.
+ *
+ * Run after {@code mvn install}:
+ * <pre>
+ * mvn -pl server test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=server.handler.EventLoadBenchmark -Dexec.args="16 10"
+ * </pre>
+ * Arguments are number of clients and duration in seconds.
+ *
+ * @author ivatolm
+ */
+public class EventLoadBenchmark {
+
+    private static final String IP = "127.0.0.1";
+
+    private static final long RESPONSE_TIMEOUT = 5000;
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args number of clients and duration in seconds
+     * @throws Exception if server cannot be started
+     */
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        long duration = (args.length > 1 ? Long.parseLong(args[1]) : 10) * 1000;
+
+        Path database = Files.createTempFile("load", ".csv");
+        database.toFile().deleteOnExit();
+        Files.write(database, Collections.singletonList(String.join(",", new HumanBeing().getAttributesList())));
+
+        Interpreter interpreter = new Interpreter(new CSVDatabase<>(database.toString()));
+        WorkerPool workerPool = new WorkerPool(Math.max(4, Runtime.getRuntime().availableProcessors()));
+        CheckpointScheduler checkpointScheduler = new CheckpointScheduler(interpreter, Long.MAX_VALUE, Integer.MAX_VALUE);
+
+        ServerComUDP serverCom = new ServerComUDP(IP, 0);
+        int port = ((DatagramChannel) serverCom.getChannel()).socket().getLocalPort();
+        ServerSocketHandler socketHandler = new ServerSocketHandler(
+            new LinkedList<Pair<ChannelType, SelectableChannel>>(),
+            new LinkedList<Pair<ChannelType, SelectableChannel>>(),
+            new ReliableCom(serverCom)
+        );
+        ServerEventHandler eventHandler = new ServerEventHandler(socketHandler, interpreter,
+                                                                 workerPool, checkpointScheduler);
+
+        Thread server = new Thread(eventHandler::run, "server");
+        server.setDaemon(true);
+        server.start();
+
+        SocketAddress address = new InetSocketAddress(IP, port);
+        AtomicLong completed = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        long[] deadline = new long[1];
+
+        LinkedList<Thread> threads = new LinkedList<>();
+        for (int i = 0; i < clients; i++) {
+            ReliableCom com = new ReliableCom(new ServerComUDP(IP, 0), address);
+
+            Thread client = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+
+                while (System.currentTimeMillis() < deadline[0]) {
+                    if (request(com)) {
+                        completed.incrementAndGet();
+                    } else {
+                        failed.incrementAndGet();
+                    }
+                }
+            }, "client-" + i);
+
+            client.setDaemon(true);
+            threads.add(client);
+            client.start();
+        }
+
+        long startTime = System.currentTimeMillis();
+        deadline[0] = startTime + duration;
+        start.countDown();
+
+        for (Thread client : threads) {
+            client.join();
+        }
+        double seconds = (System.currentTimeMillis() - startTime) / 1000.0;
+
+        System.out.printf("%d clients: %.0f requests/s, %d timed out%n",
+                          clients, completed.get() / seconds, failed.get());
+
+        System.exit(0);
+    }
+
+    /**
+     * Sends {@code info} command and waits for the response.
+     *
+     * @param com communicator of the client
+     * @return true if response was received, else false
+     */
+    private static boolean request(ReliableCom com) {
+        LinkedList<Command> commands = new LinkedList<>();
+        commands.add(new Command(CommandType.INFO, new LinkedList<Argument>()));
+        com.send(new Packet(EventType.NewCommands, new Event(EventType.NewCommands, commands)), null);
+
+        long timeout = System.currentTimeMillis() + RESPONSE_TIMEOUT;
+        while (System.currentTimeMillis() < timeout) {
+            Pair<SocketAddress, Packet> data = com.receive();
+            if (data == null) {
+                com.tick();
+                Thread.yield();
+                continue;
+            }
+
+            if (data.getValue().getType() == EventType.OutputResponse) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+}
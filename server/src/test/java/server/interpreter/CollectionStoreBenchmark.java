@@ -0,0 +1,144 @@
+package server.interpreter;
+
+import java.util.Random;
+import java.util.function.Supplier;
+
+import core.models.humanBeing.HumanBeing;
+import core.utils.SimpleParseException;
+
+/**
+ * Benchmark of collection stores.
+ * Runs the same workload against every {@code CollectionStore}: filling the
+ * store, looking up, replacing and removing elements by random ids, removing
+ * the head, iterating and copying to an array, as commands of the interpreter
+ * do. Reports time of every phase in milliseconds.
+ *
+ * Run after {@code mvn install}:
+ * <pre>
+ * mvn -pl server test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=server.interpreter.CollectionStoreBenchmark -Dexec.args="20000 5000"
+ * </pre>
+ * Arguments are number of elements and number of operations of each kind.
+ * Linked store looks elements up by scanning, so it needs minutes on hundreds
+ * of thousands of elements.
+ *
+ * @author ivatolm
+ */
+public class CollectionStoreBenchmark {
+
+    private static final int ROUNDS = 3;
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args number of elements and number of operations
+     * @throws SimpleParseException if elements cannot be created
+     */
+    public static void main(String[] args) throws SimpleParseException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 5000;
+
+        HumanBeing[] elements = new HumanBeing[count];
+        for (int i = 0; i < count; i++) {
+            elements[i] = element(i + 1);
+        }
+
+        String[] names = { "array", "indexed", "linked" };
+        System.out.printf("%-8s %8s %8s %8s %8s %8s %8s %8s%n",
+                          "store", "add", "get", "replace", "remove", "head", "iterate", "toArray");
+
+        // First rounds warm up the code of all stores, only the last one is reported
+        for (int round = 0; round < ROUNDS; round++) {
+            for (String name : names) {
+                long[] times = run(() -> CollectionStore.create(name), elements, operations);
+                if (round == ROUNDS - 1) {
+                    System.out.printf("%-8s %8.1f %8.1f %8.1f %8.1f %8.1f %8.1f %8.1f%n", name,
+                                      times[0] / 1e6, times[1] / 1e6, times[2] / 1e6, times[3] / 1e6,
+                                      times[4] / 1e6, times[5] / 1e6, times[6] / 1e6);
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs the workload against a new store.
+     *
+     * @param factory factory of the store
+     * @param elements elements to fill the store with
+     * @param operations number of operations of each kind
+     * @return time of every phase in nanoseconds
+     */
+    private static long[] run(Supplier<CollectionStore> factory, HumanBeing[] elements, int operations) {
+        CollectionStore store = factory.get();
+        Random random = new Random(1);
+        long[] times = new long[7];
+        long checksum = 0;
+
+        long start = System.nanoTime();
+        for (HumanBeing hb : elements) {
+            store.add(hb);
+        }
+        times[0] = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < operations; i++) {
+            HumanBeing hb = store.get((long) random.nextInt(elements.length) + 1);
+            checksum += hb == null ? 0 : 1;
+        }
+        times[1] = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < operations; i++) {
+            store.replace(elements[random.nextInt(elements.length)]);
+        }
+        times[2] = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < operations; i++) {
+            HumanBeing hb = store.remove((long) random.nextInt(elements.length) + 1);
+            checksum += hb == null ? 0 : 1;
+        }
+        times[3] = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < operations && !store.isEmpty(); i++) {
+            checksum += store.removeFirst().getId();
+        }
+        times[4] = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (HumanBeing hb : store) {
+            checksum += hb.getId();
+        }
+        times[5] = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        checksum += store.toArray().length;
+        times[6] = System.nanoTime() - start;
+
+        // Result is used, so that the work isn't optimized away
+        if (checksum == 42) {
+            System.out.println();
+        }
+
+        return times;
+    }
+
+    /**
+     * Creates element with {@code id}.
+     *
+     * @param id id of the element
+     * @return new element
+     * @throws SimpleParseException if element cannot be created
+     */
+    private static HumanBeing element(long id) throws SimpleParseException {
+        HumanBeing hb = new HumanBeing();
+        hb.deserialize(new String[] {
+            "" + id, "name" + id, "(" + id % 100 + "," + id % 7 + ".0)", "2023-02-19", "false", "true",
+            "" + id % 1000, "song" + id, "" + id % 500, "rage", "(car" + id + ",true)"
+        });
+
+        return hb;
+    }
+
+}
@@ -0,0 +1,109 @@
+package server.net;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.channels.DatagramChannel;
+import java.util.LinkedList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+import core.event.Event;
+import core.event.EventType;
+import core.net.packet.Packet;
+
+/**
+ * Benchmark of allocations made while receiving packets.
+ * Sender thread sends output packets to {@code ServerComUDP} over the
+ * loopback, main thread receives them, so that datagram and message buffers
+ * come from {@code BufferPool}, and reports bytes allocated by the receiving
+ * thread per packet and per second.
+ *
+ * Run after {@code mvn install}:
+ * <pre>
+ * mvn -pl server test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=server.net.ReceiveAllocationBenchmark -Dexec.args="200000 40"
+ * </pre>
+ * Arguments are number of packets and number of output entries in a packet.
+ *
+ * @author ivatolm
+ */
+public class ReceiveAllocationBenchmark {
+
+    private static final String IP = "127.0.0.1";
+
+    private static final int WINDOW = 32;
+
+    private static final long IDLE_TIMEOUT = 1000;
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args number of packets and number of entries in a packet
+     * @throws Exception if communicators cannot be created
+     */
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        int entries = args.length > 1 ? Integer.parseInt(args[1]) : 40;
+        int warmup = count / 10;
+
+        ServerComUDP receiver = new ServerComUDP(IP, 0);
+        ServerComUDP sender = new ServerComUDP(IP, 0);
+        SocketAddress address = new InetSocketAddress(IP, ((DatagramChannel) receiver.getChannel()).socket().getLocalPort());
+        receiver.getChannel().configureBlocking(false);
+
+        LinkedList<String> output = new LinkedList<>();
+        for (int i = 0; i < entries; i++) {
+            output.add("id: " + i + " name: element coordinates: (1, 2.0) mood: RAGE");
+        }
+        Packet packet = new Packet(EventType.OutputChunk, new Event(EventType.OutputChunk, output));
+
+        AtomicInteger received = new AtomicInteger();
+        Thread sending = new Thread(() -> {
+            for (int sent = 0; sent < count; sent++) {
+                long deadline = System.currentTimeMillis() + IDLE_TIMEOUT;
+                while (sent - received.get() >= WINDOW && System.currentTimeMillis() < deadline) {
+                    Thread.yield();
+                }
+
+                sender.send(packet, address);
+            }
+        }, "sender");
+        sending.setDaemon(true);
+        sending.start();
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+
+        long startBytes = 0;
+        long startTime = 0;
+        long lastReceive = System.currentTimeMillis();
+        while (received.get() < count && System.currentTimeMillis() - lastReceive < IDLE_TIMEOUT) {
+            Pair<SocketAddress, Packet> data = receiver.receive();
+            if (data == null) {
+                continue;
+            }
+
+            lastReceive = System.currentTimeMillis();
+            if (received.incrementAndGet() == warmup) {
+                startBytes = threads.getThreadAllocatedBytes(thread);
+                startTime = System.nanoTime();
+            }
+        }
+
+        long bytes = threads.getThreadAllocatedBytes(thread) - startBytes;
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        int measured = received.get() - warmup;
+
+        System.out.println("Received " + received.get() + " of " + count + " packets");
+        if (measured <= 0) {
+            System.out.println("Too many packets were lost to measure.");
+            return;
+        }
+
+        System.out.printf("%d B/packet, %.1f MB/s allocated, %.0f packets/s%n",
+                          bytes / measured, bytes / seconds / 1e6, measured / seconds);
+    }
+
+}